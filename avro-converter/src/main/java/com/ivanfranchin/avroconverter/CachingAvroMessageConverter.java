@@ -0,0 +1,206 @@
+package com.ivanfranchin.avroconverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaMessageConverter;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaServiceManager;
+import org.springframework.core.io.Resource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeType;
+
+/**
+ * An {@link AvroSchemaMessageConverter} that only allocates the encoded bytes and the decoded
+ * object per message. The stock converter creates a datum writer or reader, an encoder or decoder
+ * and an output stream for each message. Here, as the schema of the converter is fixed, the datum
+ * writers and readers are created once per payload class and writer schema, and each thread reuses
+ * its encoder, decoder and output buffer.
+ *
+ * <p>Avro needs the schema a record was written with to read it. The producer sets the {@value
+ * #SCHEMA_FINGERPRINT_HEADER} header of each message to the parsing fingerprint of its schema,
+ * {@link #schemaFingerprintOf}, which is resolved on read against the current schema and the ones
+ * set with {@link #setPreviousSchemaLocations}. A binary payload doesn't tell its schema, so
+ * messages written before the header existed are only read with the schema set with {@link
+ * #setLegacySchemaLocation}, or the current one when none is set. A payload that schema doesn't
+ * read whole fails the conversion, rather than being decoded into wrong values.
+ */
+public class CachingAvroMessageConverter extends AvroSchemaMessageConverter {
+
+  public static final String SCHEMA_FINGERPRINT_HEADER = "avroSchemaFingerprint";
+
+  private final Map<Class<?>, DatumWriter<Object>> datumWriters = new ConcurrentHashMap<>();
+  private final Map<Class<?>, WriterSchema> currentSchemas = new ConcurrentHashMap<>();
+  private final Map<ReaderKey, DatumReader<Object>> datumReaders = new ConcurrentHashMap<>();
+  private final ThreadLocal<Codec> codecs = ThreadLocal.withInitial(Codec::new);
+  private final Map<String, WriterSchema> previousSchemas = new LinkedHashMap<>();
+  private WriterSchema legacySchema;
+
+  public CachingAvroMessageConverter(
+      MimeType supportedMimeType, AvroSchemaServiceManager avroSchemaServiceManager) {
+    super(supportedMimeType, avroSchemaServiceManager);
+  }
+
+  /** Sets the schemas messages were written with before the current one, newest first. */
+  public void setPreviousSchemaLocations(Resource... locations) {
+    previousSchemas.clear();
+    for (Resource location : locations) {
+      WriterSchema writerSchema = parse(location);
+      previousSchemas.put(writerSchema.fingerprint(), writerSchema);
+    }
+  }
+
+  /** Sets the schema the messages without the fingerprint header were written with. */
+  public void setLegacySchemaLocation(Resource location) {
+    legacySchema = parse(location);
+  }
+
+  public static String fingerprintOf(Schema schema) {
+    return Long.toHexString(SchemaNormalization.parsingFingerprint64(schema));
+  }
+
+  /** Returns the fingerprint of the schema the messages of the payload class are written with. */
+  public String schemaFingerprintOf(Class<?> payloadClass) {
+    return currentSchemaOf(payloadClass).fingerprint();
+  }
+
+  @Override
+  protected Object convertToInternal(
+      Object payload, MessageHeaders headers, Object conversionHint) {
+    MimeType hintedContentType = conversionHint instanceof MimeType mimeType ? mimeType : null;
+    Schema schema = resolveSchemaForWriting(payload, headers, hintedContentType);
+    DatumWriter<Object> datumWriter =
+        datumWriters.computeIfAbsent(
+            payload.getClass(),
+            payloadClass -> avroSchemaServiceManager().getDatumWriter(payloadClass, schema));
+
+    Codec codec = codecs.get();
+    codec.output.reset();
+    codec.encoder = EncoderFactory.get().binaryEncoder(codec.output, codec.encoder);
+    try {
+      datumWriter.write(payload, codec.encoder);
+      codec.encoder.flush();
+    } catch (IOException e) {
+      throw new MessageConversionException("Failed to write payload", e);
+    }
+    return codec.output.toByteArray();
+  }
+
+  @Override
+  protected Object convertFromInternal(
+      Message<?> message, Class<?> targetClass, Object conversionHint) {
+    Schema readerSchema = resolveReaderSchemaForDeserialization(targetClass);
+    WriterSchema currentSchema = currentSchemaOf(targetClass);
+    byte[] payload = (byte[]) message.getPayload();
+
+    String fingerprint = fingerprintOf(message.getHeaders());
+    if (fingerprint != null) {
+      WriterSchema writerSchema =
+          fingerprint.equals(currentSchema.fingerprint())
+              ? currentSchema
+              : previousSchemas.get(fingerprint);
+      if (writerSchema == null) {
+        throw new MessageConversionException(
+            message, "Unknown writer schema with fingerprint " + fingerprint);
+      }
+      try {
+        return read(targetClass, readerSchema, writerSchema, payload, false);
+      } catch (IOException | RuntimeException e) {
+        throw new MessageConversionException(message, "Failed to read payload", e);
+      }
+    }
+
+    WriterSchema writerSchema = legacySchema != null ? legacySchema : currentSchema;
+    try {
+      return read(targetClass, readerSchema, writerSchema, payload, true);
+    } catch (IOException | RuntimeException e) {
+      throw new MessageConversionException(
+          message,
+          "Failed to read payload without fingerprint with schema " + writerSchema.fingerprint(),
+          e);
+    }
+  }
+
+  // Without the fingerprint, a payload left partly unread was written with another schema
+  private Object read(
+      Class<?> targetClass,
+      Schema readerSchema,
+      WriterSchema writerSchema,
+      byte[] payload,
+      boolean wholePayload)
+      throws IOException {
+    DatumReader<Object> datumReader =
+        datumReaders.computeIfAbsent(
+            new ReaderKey(targetClass, writerSchema.fingerprint()),
+            key ->
+                avroSchemaServiceManager()
+                    .getDatumReader(targetClass, readerSchema, writerSchema.schema()));
+
+    Codec codec = codecs.get();
+    codec.decoder = DecoderFactory.get().binaryDecoder(payload, codec.decoder);
+    Object result = datumReader.read(null, codec.decoder);
+    if (wholePayload && !codec.decoder.isEnd()) {
+      throw new AvroRuntimeException("Payload not fully read");
+    }
+    return result;
+  }
+
+  // Without a schema location, the schema of the generated payload class is used
+  private WriterSchema currentSchemaOf(Class<?> payloadClass) {
+    return currentSchemas.computeIfAbsent(
+        payloadClass,
+        targetClass -> {
+          Schema schema = resolveReaderSchemaForDeserialization(targetClass);
+          return WriterSchema.of(
+              schema != null ? schema : SpecificData.get().getSchema(targetClass));
+        });
+  }
+
+  private static WriterSchema parse(Resource location) {
+    try (InputStream inputStream = location.getInputStream()) {
+      return WriterSchema.of(new Schema.Parser().parse(inputStream));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read schema " + location, e);
+    }
+  }
+
+  private static String fingerprintOf(MessageHeaders headers) {
+    Object fingerprint = headers.get(SCHEMA_FINGERPRINT_HEADER);
+    if (fingerprint instanceof byte[] bytes) {
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+    return fingerprint == null ? null : fingerprint.toString();
+  }
+
+  private record WriterSchema(Schema schema, String fingerprint) {
+
+    static WriterSchema of(Schema schema) {
+      return new WriterSchema(schema, fingerprintOf(schema));
+    }
+  }
+
+  private record ReaderKey(Class<?> targetClass, String writerFingerprint) {}
+
+  private static class Codec {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+    private BinaryEncoder encoder;
+    private BinaryDecoder decoder;
+  }
+}
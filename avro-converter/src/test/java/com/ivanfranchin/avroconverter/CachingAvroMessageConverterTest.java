@@ -0,0 +1,163 @@
+package com.ivanfranchin.avroconverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaServiceManagerImpl;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+
+class CachingAvroMessageConverterTest {
+
+  private static final MimeType AVRO = MimeType.valueOf("application/*+avro");
+
+  private Schema currentSchema;
+  private Schema v1Schema;
+  private CachingAvroMessageConverter converter;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    currentSchema = parseSchema("avro/test-message.avsc");
+    v1Schema = parseSchema("avro-history/test-message-v1.avsc");
+    converter = createConverter();
+    converter.setPreviousSchemaLocations(
+        new ClassPathResource("avro-history/test-message-v1.avsc"));
+  }
+
+  @Test
+  void testSchemaFingerprintOf() {
+    assertThat(converter.schemaFingerprintOf(GenericData.Record.class))
+        .isEqualTo(CachingAvroMessageConverter.fingerprintOf(currentSchema));
+  }
+
+  @Test
+  void testFromMessageWrittenWithTheCurrentSchema() {
+    GenericRecord record = createCurrentRecord();
+    Message<?> message =
+        converter.toMessage(
+            record,
+            new MessageHeaders(
+                Map.of(
+                    CachingAvroMessageConverter.SCHEMA_FINGERPRINT_HEADER,
+                    converter.schemaFingerprintOf(GenericData.Record.class))));
+
+    assertThat(converter.fromMessage(message, GenericData.Record.class)).isEqualTo(record);
+  }
+
+  @Test
+  void testFromMessageWrittenWithV1SchemaAndFingerprint() throws IOException {
+    Message<byte[]> message =
+        MessageBuilder.withPayload(encode(createV1Record()))
+            .setHeader(
+                CachingAvroMessageConverter.SCHEMA_FINGERPRINT_HEADER,
+                CachingAvroMessageConverter.fingerprintOf(v1Schema))
+            .build();
+
+    assertV1Record(converter.fromMessage(message, GenericData.Record.class));
+  }
+
+  @Test
+  void testFromMessageWithUnknownFingerprint() throws IOException {
+    Message<byte[]> message =
+        MessageBuilder.withPayload(encode(createV1Record()))
+            .setHeader(CachingAvroMessageConverter.SCHEMA_FINGERPRINT_HEADER, "0")
+            .build();
+
+    assertThatExceptionOfType(MessageConversionException.class)
+        .isThrownBy(() -> converter.fromMessage(message, GenericData.Record.class));
+  }
+
+  @Test
+  void testFromMessageWithoutFingerprintIsReadWithTheLegacySchema() throws IOException {
+    converter.setLegacySchemaLocation(new ClassPathResource("avro-history/test-message-v1.avsc"));
+    Message<byte[]> message = MessageBuilder.withPayload(encode(createV1Record())).build();
+
+    assertV1Record(converter.fromMessage(message, GenericData.Record.class));
+  }
+
+  @Test
+  void testFromMessageWithoutFingerprintNotWrittenWithTheLegacySchema() throws IOException {
+    converter.setLegacySchemaLocation(new ClassPathResource("avro-history/test-message-v1.avsc"));
+    Message<byte[]> message = MessageBuilder.withPayload(encode(createCurrentRecord())).build();
+
+    assertThatExceptionOfType(MessageConversionException.class)
+        .isThrownBy(() -> converter.fromMessage(message, GenericData.Record.class));
+  }
+
+  @Test
+  void testFromMessageWithoutFingerprintIsReadWithTheCurrentSchemaWithoutLegacySchema()
+      throws IOException {
+    GenericRecord record = createCurrentRecord();
+    Message<byte[]> message = MessageBuilder.withPayload(encode(record)).build();
+
+    assertThat(converter.fromMessage(message, GenericData.Record.class)).isEqualTo(record);
+  }
+
+  @Test
+  void testFromMessageWithoutFingerprintNotWrittenWithTheCurrentSchema() throws IOException {
+    Message<byte[]> message = MessageBuilder.withPayload(encode(createV1Record())).build();
+
+    assertThatExceptionOfType(MessageConversionException.class)
+        .isThrownBy(() -> converter.fromMessage(message, GenericData.Record.class));
+  }
+
+  private static void assertV1Record(Object payload) {
+    assertThat(payload).isInstanceOf(GenericRecord.class);
+    GenericRecord record = (GenericRecord) payload;
+    assertThat(record.get("id")).hasToString("id");
+    assertThat(record.get("version")).isNull();
+    assertThat(record.get("name")).hasToString("Ivan");
+  }
+
+  private GenericRecord createCurrentRecord() {
+    GenericRecord record = new GenericData.Record(currentSchema);
+    record.put("id", "id");
+    record.put("version", 3L);
+    record.put("name", "Ivan");
+    return record;
+  }
+
+  private GenericRecord createV1Record() {
+    GenericRecord record = new GenericData.Record(v1Schema);
+    record.put("id", "id");
+    record.put("name", "Ivan");
+    return record;
+  }
+
+  private static CachingAvroMessageConverter createConverter() {
+    CachingAvroMessageConverter converter =
+        new CachingAvroMessageConverter(AVRO, new AvroSchemaServiceManagerImpl());
+    converter.setSchemaLocation(new ClassPathResource("avro/test-message.avsc"));
+    return converter;
+  }
+
+  private static byte[] encode(GenericRecord record) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+    new GenericDatumWriter<GenericRecord>(record.getSchema()).write(record, encoder);
+    encoder.flush();
+    return output.toByteArray();
+  }
+
+  private static Schema parseSchema(String location) throws IOException {
+    try (InputStream inputStream = new ClassPathResource(location).getInputStream()) {
+      return new Schema.Parser().parse(inputStream);
+    }
+  }
+}
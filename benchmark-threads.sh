@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+set -e
+
+# Compares the throughput and latency of user-service with platform threads (default) and with the
+# 'virtual-threads' profile. The environment must be up and user-service must not be running.
+# $1: concurrent requests (default 2000)
+# $2: duration of each run (default 30s)
+
+source scripts/my-functions.sh
+
+CONCURRENCY=${1:-2000}
+DURATION=${2:-30s}
+NETWORK=spring-cloud-stream-event-sourcing-testcontainers_default
+# Pages of 1000 users are read from MySQL on every request, so each request holds its thread for a while
+URL="http://user-service:9080/api/users?limit=1000"
+
+function start_user_service() {
+  docker run -d --rm --name user-service -p 9080:9080 \
+    -e SPRING_PROFILES_ACTIVE="$1" -e MYSQL_HOST=mysql -e KAFKA_HOST=kafka -e KAFKA_PORT=9092 \
+    -e SCHEMA_REGISTRY_HOST=schema-registry -e ZIPKIN_HOST=zipkin \
+    --network=$NETWORK \
+    ivanfranchin/user-service:1.0.0 > /dev/null
+  wait_for_container_log "user-service" "Started"
+}
+
+function seed_users() {
+  local suffix
+  suffix=$(date +%s)
+  local body
+  body=$(for i in $(seq 1 1000); do printf '{"email":"bench%s.%s@test.com","fullName":"Bench %s","active":true}\n' "$i" "$suffix" "$i"; done | paste -sd, -)
+  curl -s -o /dev/null -X POST localhost:9080/api/users/bulk -H "Content-Type: application/json" -d "[$body]"
+}
+
+RESULTS=()
+for MODE in default virtual-threads ; do
+  echo
+  echo "Benchmarking user-service with the '$MODE' profile: $CONCURRENCY concurrent requests for $DURATION..."
+  start_user_service "$MODE"
+  if [ "$MODE" = "default" ] ; then
+    seed_users
+  fi
+
+  # a short warm-up, so the JIT and the connection pool are ready before measuring
+  docker run --rm --network=$NETWORK williamyeh/hey -z 10s -c 100 "$URL" > /dev/null
+  OUTPUT=$(docker run --rm --network=$NETWORK williamyeh/hey -z "$DURATION" -c "$CONCURRENCY" "$URL")
+  docker stop user-service > /dev/null
+
+  RPS=$(echo "$OUTPUT" | awk '/Requests\/sec/ {print $2}')
+  P50=$(echo "$OUTPUT" | awk '/ 50% in/ {print $3}')
+  P99=$(echo "$OUTPUT" | awk '/ 99% in/ {print $3}')
+  ERRORS=$(echo "$OUTPUT" | awk '/^  \[[0-9]+\]/ && $1 != "[200]" {sum += $2} END {print sum + 0}')
+  RESULTS+=("$(printf "%16s | %12s | %10s | %10s | %8s |" "$MODE" "$RPS" "$P50" "$P99" "$ERRORS")")
+done
+
+printf "\n"
+printf "%16s | %12s | %10s | %10s | %8s |\n" "Profile" "Requests/sec" "p50 (s)" "p99 (s)" "Non-200"
+printf "%16s + %12s + %10s + %10s + %8s |\n" "----------------" "------------" "----------" "----------" "--------"
+for RESULT in "${RESULTS[@]}" ; do
+  echo "$RESULT"
+done
+printf "\n"
@@ -0,0 +1,26 @@
+package com.ivanfranchin.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected by the JMH command line options, always with the GC profiler, so
+ * every result comes with its allocation rate ({@code gc.alloc.rate.norm} is the bytes allocated
+ * per operation). Unless {@code -rff} is given, the results are also written to {@code
+ * jmh-result.json}.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    OptionsBuilder options = new OptionsBuilder();
+    options.parent(commandLineOptions).addProfiler(GCProfiler.class);
+    if (!commandLineOptions.getResult().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+    }
+    new Runner(options.build()).run();
+  }
+}
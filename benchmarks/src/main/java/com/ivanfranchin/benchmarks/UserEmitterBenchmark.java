@@ -0,0 +1,70 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.userservice.user.UserEmitter;
+import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * The JSON encoding of an event {@link UserEmitter} records, with the request fields carried as
+ * fields of the event, and, as events were sent before, with the request first encoded as a JSON
+ * string nested in the event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEmitterBenchmark {
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+  private final String eventId = UUID.randomUUID().toString();
+
+  private final UpdateUserRequest updateUserRequest =
+      new UpdateUserRequest(null, "Ivan Franchin", false);
+
+  @Benchmark
+  public byte[] writeStructuredEvent() {
+    return objectMapper.writeValueAsBytes(
+        new UserEventMessage(
+            eventId,
+            System.currentTimeMillis(),
+            EventType.UPDATED,
+            1L,
+            3L,
+            updateUserRequest.email(),
+            updateUserRequest.fullName(),
+            updateUserRequest.active(),
+            null));
+  }
+
+  @Benchmark
+  public byte[] writeNestedJsonEvent() {
+    return objectMapper.writeValueAsBytes(
+        new UserEventMessage(
+            eventId,
+            System.currentTimeMillis(),
+            EventType.UPDATED,
+            1L,
+            3L,
+            null,
+            null,
+            null,
+            objectMapper.writeValueAsString(updateUserRequest)));
+  }
+}
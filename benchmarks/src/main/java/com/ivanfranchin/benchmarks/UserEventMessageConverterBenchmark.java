@@ -0,0 +1,144 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.avroconverter.CachingAvroMessageConverter;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import com.ivanfranchin.userservice.user.event.EventType;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.function.context.config.JsonMessageConverter;
+import org.springframework.cloud.function.json.JacksonMapper;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaMessageConverter;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaServiceManagerImpl;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * The JSON and Avro conversions of a user event: encoding the message {@code user-service} sends
+ * and decoding it into the {@link UserEventMessage} {@code event-service} consumes. The Avro
+ * converters are the {@link CachingAvroMessageConverter} shared by both services, set up as their
+ * {@code SchemaRegistryConfig} does, and the stock {@link AvroSchemaMessageConverter}, for
+ * comparison.
+ *
+ * <p>The {@code payload} parameter compares the events with the user fields carried as fields of
+ * the event ({@code structured}) to the ones sent before, with the fields as a nested JSON string
+ * ({@code nested-json}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventMessageConverterBenchmark {
+
+  private static final MessageHeaders JSON_HEADERS =
+      new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON));
+  private static final MessageHeaders AVRO_HEADERS =
+      new MessageHeaders(
+          Map.of(MessageHeaders.CONTENT_TYPE, MimeType.valueOf("application/*+avro")));
+
+  @Param({"structured", "nested-json"})
+  private String payload;
+
+  private MessageConverter jsonMessageConverter;
+  private MessageConverter avroEncoder;
+  private MessageConverter avroDecoder;
+  private MessageConverter stockAvroMessageConverter;
+  private com.ivanfranchin.userservice.user.event.UserEventMessage sentMessage;
+  private Message<?> jsonMessage;
+  private Message<?> avroMessage;
+
+  @Setup
+  public void setUp() {
+    jsonMessageConverter =
+        new JsonMessageConverter(new JacksonMapper(JsonMapper.builder().build()));
+    CachingAvroMessageConverter userServiceConverter =
+        new CachingAvroMessageConverter(
+            MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+    userServiceConverter.setSchemaLocation(new ClassPathResource("avro/userevent-message.avsc"));
+    avroEncoder = userServiceConverter;
+    avroDecoder =
+        new CachingAvroMessageConverter(
+            MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+    AvroSchemaMessageConverter avroSchemaMessageConverter =
+        new AvroSchemaMessageConverter(
+            MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+    avroSchemaMessageConverter.setSchemaLocation(
+        new ClassPathResource("avro/userevent-message.avsc"));
+    stockAvroMessageConverter = avroSchemaMessageConverter;
+
+    sentMessage =
+        new com.ivanfranchin.userservice.user.event.UserEventMessage(
+            UUID.randomUUID().toString(),
+            System.currentTimeMillis(),
+            EventType.UPDATED,
+            1L,
+            3L,
+            null,
+            "Ivan Franchin",
+            false,
+            null);
+    if ("nested-json".equals(payload)) {
+      sentMessage =
+          new com.ivanfranchin.userservice.user.event.UserEventMessage(
+              sentMessage.getEventId(),
+              sentMessage.getEventTimestamp(),
+              sentMessage.getEventType(),
+              sentMessage.getUserId(),
+              sentMessage.getVersion(),
+              null,
+              null,
+              null,
+              "{\"email\":null,\"fullName\":\"Ivan Franchin\",\"active\":false}");
+    }
+    jsonMessage = jsonMessageConverter.toMessage(sentMessage, JSON_HEADERS);
+    avroMessage = avroEncoder.toMessage(sentMessage, AVRO_HEADERS);
+  }
+
+  @Benchmark
+  public Message<?> encodeJson() {
+    return jsonMessageConverter.toMessage(sentMessage, JSON_HEADERS);
+  }
+
+  @Benchmark
+  public Object decodeJson() {
+    return jsonMessageConverter.fromMessage(jsonMessage, UserEventMessage.class);
+  }
+
+  @Benchmark
+  public Message<?> encodeAvro() {
+    return avroEncoder.toMessage(sentMessage, AVRO_HEADERS);
+  }
+
+  @Benchmark
+  public Object decodeAvro() {
+    return avroDecoder.fromMessage(avroMessage, UserEventMessage.class);
+  }
+
+  @Benchmark
+  public Message<?> encodeAvroStock() {
+    return stockAvroMessageConverter.toMessage(sentMessage, AVRO_HEADERS);
+  }
+
+  @Benchmark
+  public Object decodeAvroStock() {
+    return stockAvroMessageConverter.fromMessage(avroMessage, UserEventMessage.class);
+  }
+}
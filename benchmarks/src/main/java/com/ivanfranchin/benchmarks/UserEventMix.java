@@ -0,0 +1,96 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A reproducible mix of the events {@code user-service} sends: each user is created, then updated
+ * up to four times, changing one or more of its fields, and one in ten users is deleted. The events
+ * of all the users are interleaved in time, as they are on the topic.
+ */
+public final class UserEventMix {
+
+  private static final String[] FIRST_NAMES = {
+    "Ivan", "Ana", "Bruno", "Carla", "Daniel", "Elena", "Felipe", "Gabriela", "Hugo", "Julia"
+  };
+  private static final String[] LAST_NAMES = {
+    "Franchin", "Silva", "Santos", "Oliveira", "Souza", "Costa", "Pereira", "Almeida", "Lima"
+  };
+  private static final long START = 1_700_000_000_000L;
+  private static final long DAY = 86_400_000L;
+
+  private UserEventMix() {}
+
+  public static List<UserEventMessage> generate(int users) {
+    Random random = new Random(42);
+    List<UserEventMessage> events = new ArrayList<>();
+    for (long userId = 1; userId <= users; userId++) {
+      String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+      String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+      long timestamp = START + random.nextLong(DAY);
+      long version = 0;
+      events.add(
+          event(
+              userId,
+              timestamp,
+              EventType.CREATED,
+              version,
+              email(firstName, lastName, userId),
+              firstName + " " + lastName,
+              true));
+
+      int updates = random.nextInt(5);
+      for (int i = 0; i < updates; i++) {
+        timestamp += random.nextLong(DAY);
+        String email = null;
+        String fullName = null;
+        Boolean active = null;
+        switch (random.nextInt(3)) {
+          case 0 -> {
+            lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            fullName = firstName + " " + lastName;
+          }
+          case 1 -> email = email(firstName, lastName, userId + users);
+          default -> active = random.nextBoolean();
+        }
+        events.add(event(userId, timestamp, EventType.UPDATED, ++version, email, fullName, active));
+      }
+
+      if (random.nextInt(10) == 0) {
+        timestamp += random.nextLong(DAY);
+        events.add(event(userId, timestamp, EventType.DELETED, ++version, null, null, null));
+      }
+    }
+    events.sort(Comparator.comparingLong(UserEventMessage::getEventTimestamp));
+    return events;
+  }
+
+  private static UserEventMessage event(
+      long userId,
+      long timestamp,
+      EventType eventType,
+      long version,
+      String email,
+      String fullName,
+      Boolean active) {
+    return new UserEventMessage(
+        UUID.nameUUIDFromBytes((userId + ":" + version).getBytes()).toString(),
+        timestamp,
+        eventType,
+        userId,
+        version,
+        email,
+        fullName,
+        active,
+        null);
+  }
+
+  private static String email(String firstName, String lastName, long n) {
+    return (firstName + "." + lastName + n + "@test.com").toLowerCase();
+  }
+}
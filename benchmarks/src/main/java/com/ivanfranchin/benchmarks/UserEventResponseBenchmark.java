@@ -0,0 +1,56 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.eventservice.userevent.dto.UserEventResponse;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * The conversion of a stored event to {@link UserEventResponse}, and its serialization, where the
+ * {@code datetime} is formatted with the {@code @JsonFormat} pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventResponseBenchmark {
+
+  private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+  private final UserEvent userEvent =
+      new UserEvent(
+          new UserEventKey(1L, new Date(), 3L),
+          UUID.randomUUID().toString(),
+          "UPDATED",
+          null,
+          "Ivan Franchin",
+          false,
+          null);
+
+  private final UserEventResponse userEventResponse = UserEventResponse.from(userEvent);
+
+  @Benchmark
+  public UserEventResponse from() {
+    return UserEventResponse.from(userEvent);
+  }
+
+  @Benchmark
+  public String write() {
+    return objectMapper.writeValueAsString(userEventResponse);
+  }
+}
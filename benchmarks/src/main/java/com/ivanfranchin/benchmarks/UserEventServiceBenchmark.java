@@ -0,0 +1,62 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.eventservice.userevent.UserEventService;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.userservice.messages.EventType;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The mapping of a consumed {@link UserEventMessage} to the {@link UserEvent} that {@link
+ * UserEventService#saveUserEvent(org.springframework.messaging.Message)} stores, for messages
+ * decoded from JSON and from Avro. Both carry {@code String} fields, as the Avro classes are
+ * generated with {@code stringType} {@code String}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventServiceBenchmark {
+
+  private UserEventMessage jsonDecodedMessage;
+  private UserEventMessage avroDecodedMessage;
+
+  @Setup
+  public void setUp() throws IOException {
+    jsonDecodedMessage =
+        UserEventMessage.newBuilder()
+            .setEventId(UUID.randomUUID().toString())
+            .setEventTimestamp(System.currentTimeMillis())
+            .setEventType(EventType.UPDATED)
+            .setUserId(1L)
+            .setVersion(3L)
+            .setFullName("Ivan Franchin")
+            .setActive(false)
+            .build();
+    avroDecodedMessage = UserEventMessage.fromByteBuffer(jsonDecodedMessage.toByteBuffer());
+  }
+
+  @Benchmark
+  public UserEvent toUserEventFromJson() {
+    return UserEventService.toUserEvent(jsonDecodedMessage);
+  }
+
+  @Benchmark
+  public UserEvent toUserEventFromAvro() {
+    return UserEventService.toUserEvent(avroDecodedMessage);
+  }
+}
@@ -0,0 +1,200 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.eventservice.config.TableCompressionPopulator;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.utils.BufferSupplier;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * The SSTable compression set by {@link TableCompressionPopulator}, on the {@code user_events} rows
+ * of {@link UserEventMix}. Cassandra compresses the rows of a data file in chunks of {@code
+ * chunk_length_in_kb}, and decompresses a whole chunk to read any row in it. The bytes on disk per
+ * row are reported with the results of {@link #compressChunk}, as its {@link DiskSize} counters,
+ * and the benchmarks measure the CPU cost of compressing a chunk, on flushes and compactions, and
+ * of decompressing it, on reads.
+ *
+ * <p>Cassandra's compressors are approximated by the codecs of the Kafka client, the same
+ * libraries: LZ4, Zstd at its default level of 3, Snappy, and gzip for Deflate. The rows are
+ * serialized as their column values, without the SSTable's row headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventsTableCompressionBenchmark {
+
+  private static final int USERS = 2000;
+
+  @Param({"none", "LZ4Compressor", "ZstdCompressor", "SnappyCompressor", "DeflateCompressor"})
+  private String compressor;
+
+  @Param({"4", "16", "64"})
+  private int chunkLengthKb;
+
+  private Compression compression;
+  private List<byte[]> chunks;
+  private List<byte[]> compressedChunks;
+  private double bytesPerRow;
+  private double compressionRatio;
+  private byte[] readBuffer;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    compression = Compression.of(kafkaCodecOf(compressor)).build();
+    List<UserEventMessage> events = new ArrayList<>(UserEventMix.generate(USERS));
+    // A partition's rows are stored together, in clustering order
+    events.sort(
+        Comparator.comparingLong(UserEventMessage::getUserId)
+            .thenComparingLong(UserEventMessage::getEventTimestamp));
+    byte[] rows = serialize(events);
+
+    int chunkLength = chunkLengthKb * 1024;
+    chunks = new ArrayList<>();
+    for (int from = 0; from < rows.length; from += chunkLength) {
+      chunks.add(Arrays.copyOfRange(rows, from, Math.min(from + chunkLength, rows.length)));
+    }
+    compressedChunks = new ArrayList<>(chunks.size());
+    long compressedBytes = 0;
+    for (byte[] chunk : chunks) {
+      byte[] compressed = compress(chunk);
+      compressedChunks.add(compressed);
+      compressedBytes += compressed.length;
+    }
+    readBuffer = new byte[chunkLength];
+    bytesPerRow = (double) compressedBytes / events.size();
+    compressionRatio = (double) rows.length / compressedBytes;
+  }
+
+  @Benchmark
+  public byte[] compressChunk(DiskSize diskSize) {
+    return compress(chunks.get(next++ % chunks.size()));
+  }
+
+  @Benchmark
+  public int decompressChunk() {
+    byte[] compressed = compressedChunks.get(next++ % compressedChunks.size());
+    try (InputStream input =
+        compression.wrapForInput(
+            ByteBuffer.wrap(compressed),
+            RecordBatch.CURRENT_MAGIC_VALUE,
+            BufferSupplier.NO_CACHING)) {
+      return input.readNBytes(readBuffer, 0, readBuffer.length);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * The bytes per row on disk, and how many times less they are than uncompressed. They are the
+   * same for every iteration, but JMH sums EVENTS counters over the measurement iterations, so each
+   * one reports its share.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class DiskSize {
+
+    private double bytesPerRow;
+    private double compressionRatio;
+
+    @Setup
+    public void setUp(UserEventsTableCompressionBenchmark benchmark, BenchmarkParams params) {
+      int iterations = params.getMeasurement().getCount();
+      bytesPerRow = benchmark.bytesPerRow / iterations;
+      compressionRatio = benchmark.compressionRatio / iterations;
+    }
+
+    public double bytesPerRow() {
+      return bytesPerRow;
+    }
+
+    public double compressionRatio() {
+      return compressionRatio;
+    }
+  }
+
+  private byte[] compress(byte[] chunk) {
+    ByteBufferOutputStream output = new ByteBufferOutputStream(chunk.length + 64);
+    try (OutputStream compressed =
+        compression.wrapForOutput(output, RecordBatch.CURRENT_MAGIC_VALUE)) {
+      compressed.write(chunk);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    ByteBuffer buffer = output.buffer().flip();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static String kafkaCodecOf(String compressor) {
+    return switch (compressor) {
+      case "LZ4Compressor" -> "lz4";
+      case "ZstdCompressor" -> "zstd";
+      case "SnappyCompressor" -> "snappy";
+      case "DeflateCompressor" -> "gzip";
+      default -> "none";
+    };
+  }
+
+  // The columns of a user_events row, in the order of event-service.cql
+  private static byte[] serialize(List<UserEventMessage> events) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      for (UserEventMessage event : events) {
+        output.writeLong(event.getUserId());
+        output.writeLong(event.getEventTimestamp());
+        output.writeLong(event.getVersion());
+        writeText(output, event.getEventId());
+        writeText(output, event.getEventType().name());
+        writeText(output, event.getEmail());
+        writeText(output, event.getFullName());
+        output.writeByte(event.getActive() == null ? -1 : event.getActive() ? 1 : 0);
+        writeText(output, event.getUserJson());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeText(DataOutputStream output, String value) throws IOException {
+    if (value == null) {
+      output.writeShort(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeShort(bytes.length);
+    output.write(bytes);
+  }
+}
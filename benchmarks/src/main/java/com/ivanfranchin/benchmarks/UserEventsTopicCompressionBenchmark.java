@@ -0,0 +1,206 @@
+package com.ivanfranchin.benchmarks;
+
+import com.ivanfranchin.avroconverter.CachingAvroMessageConverter;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.cloud.function.context.config.JsonMessageConverter;
+import org.springframework.cloud.function.json.JacksonMapper;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaServiceManagerImpl;
+import org.springframework.cloud.stream.binder.kafka.common.BinderHeaderMapper;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * The {@code compression.type} of the {@code users-out-0} producer, on batches of the records
+ * {@code user-service} sends for {@link UserEventMix}: the value encoded by the binding's
+ * converter, and the headers mapped by the binder. The broker stores the batches as the producer
+ * compressed them, so the bytes on the wire are also the bytes on the broker's disk. They are
+ * reported with the results of {@link #compressBatch}, as its {@link WireSize} counters, and the
+ * benchmarks measure the CPU cost of compressing a batch in the producer and of decompressing it in
+ * a consumer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventsTopicCompressionBenchmark {
+
+  private static final int USERS = 2000;
+  // About what fills the 64 KiB batch.size of users-out-0 with uncompressed JSON records
+  private static final int RECORDS_PER_BATCH = 200;
+
+  @Param({"none", "gzip", "snappy", "lz4", "zstd"})
+  private String compressionType;
+
+  @Param({"json", "avro"})
+  private String contentType;
+
+  private Compression compression;
+  private List<List<SimpleRecord>> batches;
+  private List<MemoryRecords> compressedBatches;
+  private double bytesPerEvent;
+  private double compressionRatio;
+  private ByteBuffer buffer;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    compression = Compression.of(compressionType).build();
+    batches = toBatches(UserEventMix.generate(USERS));
+    buffer = ByteBuffer.allocate(1024 * 1024);
+
+    compressedBatches = new ArrayList<>(batches.size());
+    long events = 0;
+    long uncompressedBytes = 0;
+    long compressedBytes = 0;
+    for (List<SimpleRecord> batch : batches) {
+      MemoryRecords uncompressed =
+          build(batch, Compression.NONE, ByteBuffer.allocate(buffer.capacity()));
+      MemoryRecords compressed = build(batch, compression, ByteBuffer.allocate(buffer.capacity()));
+      compressedBatches.add(compressed);
+      events += batch.size();
+      uncompressedBytes += uncompressed.sizeInBytes();
+      compressedBytes += compressed.sizeInBytes();
+    }
+    bytesPerEvent = (double) compressedBytes / events;
+    compressionRatio = (double) uncompressedBytes / compressedBytes;
+  }
+
+  @Benchmark
+  public MemoryRecords compressBatch(WireSize wireSize) {
+    buffer.clear();
+    return build(batches.get(next++ % batches.size()), compression, buffer);
+  }
+
+  @Benchmark
+  public void decompressBatch(Blackhole blackhole) {
+    for (Record record : compressedBatches.get(next++ % compressedBatches.size()).records()) {
+      blackhole.consume(record.value());
+    }
+  }
+
+  /**
+   * The bytes per event on the wire, and how many times less they are than uncompressed. They are
+   * the same for every iteration, but JMH sums EVENTS counters over the measurement iterations, so
+   * each one reports its share.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class WireSize {
+
+    private double bytesPerEvent;
+    private double compressionRatio;
+
+    @Setup
+    public void setUp(UserEventsTopicCompressionBenchmark benchmark, BenchmarkParams params) {
+      int iterations = params.getMeasurement().getCount();
+      bytesPerEvent = benchmark.bytesPerEvent / iterations;
+      compressionRatio = benchmark.compressionRatio / iterations;
+    }
+
+    public double bytesPerEvent() {
+      return bytesPerEvent;
+    }
+
+    public double compressionRatio() {
+      return compressionRatio;
+    }
+  }
+
+  private List<List<SimpleRecord>> toBatches(List<UserEventMessage> events) {
+    MessageConverter messageConverter;
+    MimeType mimeType;
+    String schemaFingerprint = null;
+    if ("avro".equals(contentType)) {
+      CachingAvroMessageConverter avroMessageConverter =
+          new CachingAvroMessageConverter(
+              MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+      avroMessageConverter.setSchemaLocation(new ClassPathResource("avro/userevent-message.avsc"));
+      messageConverter = avroMessageConverter;
+      mimeType = MimeType.valueOf("application/*+avro");
+      schemaFingerprint = avroMessageConverter.schemaFingerprintOf(UserEventMessage.class);
+    } else {
+      messageConverter = new JsonMessageConverter(new JacksonMapper(JsonMapper.builder().build()));
+      mimeType = MimeTypeUtils.APPLICATION_JSON;
+    }
+    BinderHeaderMapper headerMapper = new BinderHeaderMapper();
+    Random random = new Random(42);
+
+    List<List<SimpleRecord>> recordBatches = new ArrayList<>();
+    List<SimpleRecord> batch = new ArrayList<>(RECORDS_PER_BATCH);
+    long outboxId = 0;
+    for (UserEventMessage event : events) {
+      // The headers set by OutboxRelay, and the trace context of the observed send
+      Map<String, Object> headers = new HashMap<>();
+      headers.put(MessageHeaders.CONTENT_TYPE, mimeType);
+      headers.put("partitionKey", event.getUserId());
+      headers.put("outboxId", ++outboxId);
+      if (schemaFingerprint != null) {
+        headers.put(CachingAvroMessageConverter.SCHEMA_FINGERPRINT_HEADER, schemaFingerprint);
+      }
+      headers.put(
+          "traceparent",
+          "00-%016x%016x-%016x-01"
+              .formatted(random.nextLong(), random.nextLong(), random.nextLong()));
+      Message<?> message = messageConverter.toMessage(event, new MessageHeaders(headers));
+      RecordHeaders recordHeaders = new RecordHeaders();
+      headerMapper.fromHeaders(message.getHeaders(), recordHeaders);
+
+      batch.add(
+          new SimpleRecord(
+              event.getEventTimestamp(),
+              null,
+              (byte[]) message.getPayload(),
+              recordHeaders.toArray()));
+      if (batch.size() == RECORDS_PER_BATCH) {
+        recordBatches.add(batch);
+        batch = new ArrayList<>(RECORDS_PER_BATCH);
+      }
+    }
+    return recordBatches;
+  }
+
+  private static MemoryRecords build(
+      List<SimpleRecord> batch, Compression compression, ByteBuffer buffer) {
+    MemoryRecordsBuilder builder =
+        MemoryRecords.builder(buffer, compression, TimestampType.CREATE_TIME, 0L);
+    for (SimpleRecord record : batch) {
+      builder.append(record);
+    }
+    return builder.build();
+  }
+}
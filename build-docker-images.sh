@@ -13,11 +13,11 @@ EVENT_SERVICE_DOCKER_IMAGE_NAME="${DOCKER_IMAGE_PREFIX}/${EVENT_SERVICE_APP_NAME
 SKIP_TESTS="true"
 
 ./mvnw clean spring-boot:build-image \
-  --projects "$USER_SERVICE_APP_NAME" \
+  --projects "$USER_SERVICE_APP_NAME" --also-make \
   -DskipTests="$SKIP_TESTS" \
   -Dspring-boot.build-image.imageName="$USER_SERVICE_DOCKER_IMAGE_NAME"
 
 ./mvnw clean spring-boot:build-image \
-  --projects "$EVENT_SERVICE_APP_NAME" \
+  --projects "$EVENT_SERVICE_APP_NAME" --also-make \
   -DskipTests="$SKIP_TESTS" \
   -Dspring-boot.build-image.imageName="$EVENT_SERVICE_DOCKER_IMAGE_NAME"
@@ -0,0 +1,326 @@
+package com.ivanfranchin.endtoendtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ivanfranchin.endtoendtest.dto.CreateUserRequest;
+import com.ivanfranchin.endtoendtest.dto.UpdateUserRequest;
+import com.ivanfranchin.endtoendtest.dto.UserEventResponse;
+import com.ivanfranchin.endtoendtest.dto.UserResponse;
+import com.ivanfranchin.endtoendtest.load.HistogramSummary;
+import com.ivanfranchin.endtoendtest.load.LoadReport;
+import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.resttestclient.TestRestTemplate;
+import org.springframework.boot.resttestclient.autoconfigure.AutoConfigureTestRestTemplate;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Drives creates, updates and deletes against user-service at fixed rates and measures how long
+ * each event takes to be visible through event-service's {@code /api/events}. The requests are sent
+ * open loop, each on its own virtual thread, and their latency is measured from the time they were
+ * due, so a slow service shows up as latency instead of a lower request rate.
+ *
+ * <p>After each acknowledged request, the user's latest event is polled every {@code
+ * load.poll-interval} until it reaches the version user-service returned. The propagation lag is
+ * therefore measured with that resolution. The report is written to {@code load.report-file}.
+ *
+ * <p>Only runs with {@code -Dload.enabled=true}, and it expects empty databases, so run it on its
+ * own.
+ */
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+@AutoConfigureTestRestTemplate
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class UserLoadTest extends AbstractTestcontainers {
+
+  private static final Logger log = LoggerFactory.getLogger(UserLoadTest.class);
+
+  @Autowired private TestRestTemplate testRestTemplate;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @Value("${load.duration:60s}")
+  private Duration duration;
+
+  @Value("${load.create-rate:50}")
+  private double createRate;
+
+  @Value("${load.update-rate:30}")
+  private double updateRate;
+
+  @Value("${load.delete-rate:5}")
+  private double deleteRate;
+
+  @Value("${load.poll-interval:50ms}")
+  private Duration pollInterval;
+
+  @Value("${load.drain-timeout:60s}")
+  private Duration drainTimeout;
+
+  @Value("${load.report-file:target/load-test-report.json}")
+  private String reportFile;
+
+  @Value("${spring.profiles.active:default}")
+  private String profiles;
+
+  private final Map<String, ConcurrentHistogram> httpLatency = new ConcurrentHashMap<>();
+  private final ConcurrentHistogram propagationLag = new ConcurrentHistogram(3);
+  private final Map<Long, LongAdder> visibleBySecond = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+  private final LongAdder skippedOperations = new LongAdder();
+  private final LongAdder eventsExpected = new LongAdder();
+  private final LongAdder eventsVisible = new LongAdder();
+  private final LongAdder eventsTimedOut = new LongAdder();
+  private final AtomicLong emailSequence = new AtomicLong();
+
+  // Users that exist and have no request in progress, so updates and deletes never conflict
+  private final BlockingQueue<LiveUser> idleUsers = new LinkedBlockingQueue<>();
+
+  private ExecutorService executor;
+  private long startNanos;
+
+  @Test
+  void testUserLoad() {
+    Instant startedAt = Instant.now();
+    startNanos = System.nanoTime();
+    long endNanos = startNanos + duration.toNanos();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      this.executor = executor;
+      CompletableFuture.allOf(
+              CompletableFuture.runAsync(
+                  () -> generate(createRate, this::create, endNanos), executor),
+              CompletableFuture.runAsync(
+                  () -> generate(updateRate, this::update, endNanos), executor),
+              CompletableFuture.runAsync(
+                  () -> generate(deleteRate, this::delete, endNanos), executor))
+          .join();
+      log.info("Load finished, waiting for the pending events to be visible ...");
+    }
+
+    LoadReport loadReport =
+        new LoadReport(
+            new LoadReport.Settings(
+                startedAt.toString(),
+                duration.toString(),
+                createRate,
+                updateRate,
+                deleteRate,
+                pollInterval.toString(),
+                drainTimeout.toString(),
+                profiles),
+            sums(requests),
+            sums(errors),
+            skippedOperations.sum(),
+            eventsExpected.sum(),
+            eventsVisible.sum(),
+            eventsTimedOut.sum(),
+            summarizeHttpLatency(),
+            HistogramSummary.from(propagationLag, 1000.0),
+            HistogramSummary.from(consumerThroughput(), 1.0));
+    File file = new File(reportFile);
+    file.getAbsoluteFile().getParentFile().mkdirs();
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, loadReport);
+    log.info(
+        "Load report written to {}: propagation lag p99 {} ms, {} of {} events visible",
+        reportFile,
+        loadReport.propagationLag().percentiles().get("p99"),
+        loadReport.eventsVisible(),
+        loadReport.eventsExpected());
+
+    assertThat(loadReport.errors()).isEmpty();
+    assertThat(loadReport.eventsTimedOut()).isZero();
+  }
+
+  /*
+   * Operations
+   * ========== */
+
+  private void create(long intendedNanos) {
+    String email = String.format("load%d@test", emailSequence.incrementAndGet());
+    CreateUserRequest createUserRequest = new CreateUserRequest(email, "Load Test", true);
+    ResponseEntity<UserResponse> responseEntity =
+        testRestTemplate.postForEntity(
+            String.format("%s/users", USER_SERVICE_API_URL), createUserRequest, UserResponse.class);
+    if (recordResponse("POST", intendedNanos, responseEntity, HttpStatus.CREATED)) {
+      UserResponse userResponse = responseEntity.getBody();
+      awaitVisible(userResponse.id(), userResponse.version());
+      idleUsers.offer(new LiveUser(userResponse.id(), userResponse.version()));
+    }
+  }
+
+  private void update(long intendedNanos) {
+    LiveUser liveUser = idleUsers.poll();
+    if (liveUser == null) {
+      skippedOperations.increment();
+      return;
+    }
+    UpdateUserRequest updateUserRequest =
+        new UpdateUserRequest(null, "Load Test " + intendedNanos, null);
+    ResponseEntity<UserResponse> responseEntity =
+        testRestTemplate.exchange(
+            String.format("%s/users/%s", USER_SERVICE_API_URL, liveUser.id()),
+            HttpMethod.PUT,
+            new HttpEntity<>(updateUserRequest),
+            UserResponse.class);
+    if (recordResponse("PUT", intendedNanos, responseEntity, HttpStatus.OK)) {
+      UserResponse userResponse = responseEntity.getBody();
+      awaitVisible(userResponse.id(), userResponse.version());
+      idleUsers.offer(new LiveUser(userResponse.id(), userResponse.version()));
+    } else {
+      idleUsers.offer(liveUser);
+    }
+  }
+
+  private void delete(long intendedNanos) {
+    LiveUser liveUser = idleUsers.poll();
+    if (liveUser == null) {
+      skippedOperations.increment();
+      return;
+    }
+    ResponseEntity<Void> responseEntity =
+        testRestTemplate.exchange(
+            String.format("%s/users/%s", USER_SERVICE_API_URL, liveUser.id()),
+            HttpMethod.DELETE,
+            null,
+            Void.class);
+    if (recordResponse("DELETE", intendedNanos, responseEntity, HttpStatus.NO_CONTENT)) {
+      // the DELETED event takes the version after the user's last one
+      awaitVisible(liveUser.id(), liveUser.version() + 1);
+    } else {
+      idleUsers.offer(liveUser);
+    }
+  }
+
+  /*
+   * Measurements
+   * ============ */
+
+  // Sends an operation every 1/rate seconds until endNanos, without waiting for the previous ones
+  private void generate(double rate, LongConsumer operation, long endNanos) {
+    if (rate <= 0) {
+      return;
+    }
+    long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    for (long intendedNanos = System.nanoTime();
+        intendedNanos < endNanos;
+        intendedNanos += intervalNanos) {
+      long dueNanos = intendedNanos;
+      executor.execute(() -> operation.accept(dueNanos));
+      sleepUntil(intendedNanos + intervalNanos);
+    }
+  }
+
+  private boolean recordResponse(
+      String method, long intendedNanos, ResponseEntity<?> responseEntity, HttpStatus expected) {
+    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+    httpLatency
+        .computeIfAbsent(method, key -> new ConcurrentHistogram(3))
+        .recordValue(latencyMicros);
+    requests.computeIfAbsent(method, key -> new LongAdder()).increment();
+    if (responseEntity.getStatusCode() != expected) {
+      errors
+          .computeIfAbsent(
+              method + " " + responseEntity.getStatusCode().value(), key -> new LongAdder())
+          .increment();
+      return false;
+    }
+    return true;
+  }
+
+  // Polls the user's latest event until it reaches version. Runs on the calling virtual thread,
+  // so the user is only handed to the next operation once its event is visible
+  private void awaitVisible(Long userId, Long version) {
+    eventsExpected.increment();
+    long acknowledgedNanos = System.nanoTime();
+    long deadlineNanos = acknowledgedNanos + drainTimeout.toNanos();
+    String eventServiceUrl =
+        String.format("%s/events?userId=%s&order=desc&limit=1", EVENT_SERVICE_API_URL, userId);
+    while (System.nanoTime() < deadlineNanos) {
+      ResponseEntity<UserEventResponse[]> responseEntity =
+          testRestTemplate.getForEntity(eventServiceUrl, UserEventResponse[].class);
+      UserEventResponse[] userEventResponses = responseEntity.getBody();
+      if (userEventResponses != null
+          && userEventResponses.length > 0
+          && userEventResponses[0].version() >= version) {
+        long visibleNanos = System.nanoTime();
+        propagationLag.recordValue(TimeUnit.NANOSECONDS.toMicros(visibleNanos - acknowledgedNanos));
+        visibleBySecond
+            .computeIfAbsent(
+                TimeUnit.NANOSECONDS.toSeconds(visibleNanos - startNanos), key -> new LongAdder())
+            .increment();
+        eventsVisible.increment();
+        return;
+      }
+      sleepUntil(System.nanoTime() + pollInterval.toNanos());
+    }
+    eventsTimedOut.increment();
+  }
+
+  private Map<String, HistogramSummary> summarizeHttpLatency() {
+    Map<String, HistogramSummary> summaries = new TreeMap<>();
+    httpLatency.forEach(
+        (method, histogram) -> summaries.put(method, HistogramSummary.from(histogram, 1000.0)));
+    return summaries;
+  }
+
+  // One value per second from the first event made visible to the last, empty seconds included
+  private Histogram consumerThroughput() {
+    Histogram histogram = new Histogram(3);
+    if (visibleBySecond.isEmpty()) {
+      return histogram;
+    }
+    long first = visibleBySecond.keySet().stream().min(Long::compare).orElseThrow();
+    long last = visibleBySecond.keySet().stream().max(Long::compare).orElseThrow();
+    for (long second = first; second <= last; second++) {
+      LongAdder visible = visibleBySecond.get(second);
+      histogram.recordValue(visible == null ? 0 : visible.sum());
+    }
+    return histogram;
+  }
+
+  private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+    Map<String, Long> sums = new TreeMap<>();
+    counters.forEach((key, counter) -> sums.put(key, counter.sum()));
+    return sums;
+  }
+
+  private static void sleepUntil(long nanos) {
+    long remaining = nanos - System.nanoTime();
+    if (remaining > 0) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private record LiveUser(Long id, Long version) {}
+}
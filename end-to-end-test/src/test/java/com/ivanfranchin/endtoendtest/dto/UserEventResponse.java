@@ -1,3 +1,11 @@
 package com.ivanfranchin.endtoendtest.dto;
 
-public record UserEventResponse(Long userId, String datetime, String type, String data) {}
+public record UserEventResponse(
+    Long userId,
+    String datetime,
+    Long version,
+    String type,
+    String email,
+    String fullName,
+    Boolean active,
+    String data) {}
@@ -1,3 +1,3 @@
 package com.ivanfranchin.endtoendtest.dto;
 
-public record UserResponse(Long id, String email, String fullName, Boolean active) {}
+public record UserResponse(Long id, String email, String fullName, Boolean active, Long version) {}
@@ -0,0 +1,46 @@
+package com.ivanfranchin.endtoendtest.load;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.HdrHistogram.AbstractHistogram;
+
+/**
+ * The percentiles of a histogram, in the unit of the report. {@code histogram} is the whole
+ * histogram in the HdrHistogram compressed format, base64 encoded, with the recorded values (so in
+ * microseconds for latencies); it can be decoded to compare runs at any percentile.
+ */
+public record HistogramSummary(
+    long count,
+    double min,
+    double mean,
+    double max,
+    Map<String, Double> percentiles,
+    String histogram) {
+
+  private static final double[] PERCENTILES = {50, 75, 90, 95, 99, 99.9, 100};
+
+  /** Summarizes {@code histogram}, dividing the recorded values by {@code unitRatio}. */
+  public static HistogramSummary from(AbstractHistogram histogram, double unitRatio) {
+    Map<String, Double> percentiles = new LinkedHashMap<>();
+    for (double percentile : PERCENTILES) {
+      String name = percentile % 1 == 0 ? "p" + (long) percentile : "p" + percentile;
+      percentiles.put(name, histogram.getValueAtPercentile(percentile) / unitRatio);
+    }
+    return new HistogramSummary(
+        histogram.getTotalCount(),
+        histogram.getMinValue() / unitRatio,
+        histogram.getMean() / unitRatio,
+        histogram.getMaxValue() / unitRatio,
+        percentiles,
+        encode(histogram));
+  }
+
+  private static String encode(AbstractHistogram histogram) {
+    ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+    return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+  }
+}
@@ -0,0 +1,40 @@
+package com.ivanfranchin.endtoendtest.load;
+
+import java.util.Map;
+
+/**
+ * The result of a load test run, written as JSON so runs can be compared. Latencies and lags are in
+ * milliseconds; consumer throughput is in events made visible per second.
+ *
+ * @param requests requests sent per operation
+ * @param errors responses other than the expected status, per method and status
+ * @param skippedOperations updates and deletes not sent because every user was busy or deleted
+ * @param eventsExpected events acknowledged by user-service
+ * @param eventsVisible events seen through event-service's {@code /api/events}
+ * @param eventsTimedOut events not seen within the drain timeout
+ * @param httpLatency latency of user-service requests per operation, from their intended start
+ * @param propagationLag time from user-service's response until the event is visible
+ * @param consumerThroughput events made visible in each second of the run
+ */
+public record LoadReport(
+    Settings settings,
+    Map<String, Long> requests,
+    Map<String, Long> errors,
+    long skippedOperations,
+    long eventsExpected,
+    long eventsVisible,
+    long eventsTimedOut,
+    Map<String, HistogramSummary> httpLatency,
+    HistogramSummary propagationLag,
+    HistogramSummary consumerThroughput) {
+
+  public record Settings(
+      String startedAt,
+      String duration,
+      double createRate,
+      double updateRate,
+      double deleteRate,
+      String pollInterval,
+      String drainTimeout,
+      String profiles) {}
+}
@@ -1,5 +1,8 @@
 package com.ivanfranchin.eventservice.config;
 
+import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
 import java.util.Collections;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +13,7 @@ import org.springframework.data.cassandra.SessionFactory;
 import org.springframework.data.cassandra.config.CqlSessionFactoryBean;
 import org.springframework.data.cassandra.core.cql.keyspace.CreateKeyspaceSpecification;
 import org.springframework.data.cassandra.core.cql.keyspace.KeyspaceOption;
+import org.springframework.data.cassandra.core.cql.session.init.CompositeKeyspacePopulator;
 import org.springframework.data.cassandra.core.cql.session.init.KeyspacePopulator;
 import org.springframework.data.cassandra.core.cql.session.init.ResourceKeyspacePopulator;
 import org.springframework.data.cassandra.core.cql.session.init.SessionFactoryInitializer;
@@ -32,6 +36,21 @@ public class CassandraConfig {
   @Value("${spring.cassandra.password:@null}")
   private String password;
 
+  @Value("${app.events.compression.compressor}")
+  private String compressor;
+
+  @Value("${app.events.compression.chunk-length-kb}")
+  private int chunkLengthKb;
+
+  @Value("${spring.cassandra.request.throttler.type:none}")
+  private String throttlerType;
+
+  @Value("${spring.cassandra.request.throttler.max-concurrent-requests:0}")
+  private int throttlerMaxConcurrentRequests;
+
+  @Value("${spring.cassandra.request.throttler.max-queue-size:0}")
+  private int throttlerMaxQueueSize;
+
   @Bean
   CqlSessionFactoryBean session() {
     CqlSessionFactoryBean session = new CqlSessionFactoryBean();
@@ -41,6 +60,7 @@ public class CassandraConfig {
     session.setUsername(username);
     session.setPassword(password);
     session.setKeyspaceCreations(getKeyspaceCreations());
+    session.setSessionBuilderConfigurer(this::configureThrottler);
     return session;
   }
 
@@ -61,7 +81,26 @@ public class CassandraConfig {
     return Collections.singletonList(specification);
   }
 
+  // With virtual threads, thousands of threads can call the driver at once. The throttler queues
+  // the requests over the limit instead of failing them when every connection is busy
+  private CqlSessionBuilder configureThrottler(CqlSessionBuilder builder) {
+    if (!"concurrency-limiting".equals(throttlerType)) {
+      return builder;
+    }
+    return builder.withConfigLoader(
+        DriverConfigLoader.programmaticBuilder()
+            .withString(
+                DefaultDriverOption.REQUEST_THROTTLER_CLASS, "ConcurrencyLimitingRequestThrottler")
+            .withInt(
+                DefaultDriverOption.REQUEST_THROTTLER_MAX_CONCURRENT_REQUESTS,
+                throttlerMaxConcurrentRequests)
+            .withInt(DefaultDriverOption.REQUEST_THROTTLER_MAX_QUEUE_SIZE, throttlerMaxQueueSize)
+            .build());
+  }
+
   protected KeyspacePopulator keyspacePopulator() {
-    return new ResourceKeyspacePopulator(new ClassPathResource("event-service.cql"));
+    return new CompositeKeyspacePopulator(
+        new ResourceKeyspacePopulator(new ClassPathResource("event-service.cql")),
+        new TableCompressionPopulator(keyspaceName, compressor, chunkLengthKb));
   }
 }
@@ -0,0 +1,36 @@
+package com.ivanfranchin.eventservice.config;
+
+import org.springframework.cloud.stream.config.ListenerContainerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+  // The binder only applies a single customizer, so all the container settings are made here
+  @Bean
+  ListenerContainerCustomizer<AbstractMessageListenerContainer<?, ?>> listenerContainerCustomizer(
+      Environment environment) {
+    // Records are acknowledged from the Cassandra driver threads or the user event lanes, possibly
+    // out of order. With async acks, the container defers the commit until there are no gaps below
+    // the acknowledged offset.
+    boolean asyncAcks = environment.acceptsProfiles(Profiles.of("async | lanes"));
+    // The binder creates its own containers, so 'spring.threads.virtual.enabled' doesn't reach them
+    boolean virtualThreads =
+        environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+    return (container, destinationName, group) -> {
+      if (asyncAcks) {
+        container.getContainerProperties().setAsyncAcks(true);
+      }
+      if (virtualThreads) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(destinationName + "-");
+        executor.setVirtualThreads(true);
+        container.getContainerProperties().setListenerTaskExecutor(executor);
+      }
+    };
+  }
+}
@@ -1,12 +1,13 @@
 package com.ivanfranchin.eventservice.config;
 
+import com.ivanfranchin.avroconverter.CachingAvroMessageConverter;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.schema.registry.avro.AvroSchemaMessageConverter;
 import org.springframework.cloud.schema.registry.avro.AvroSchemaServiceManagerImpl;
 import org.springframework.cloud.schema.registry.client.ConfluentSchemaRegistryClient;
 import org.springframework.cloud.schema.registry.client.SchemaRegistryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.util.MimeType;
 
@@ -23,7 +24,15 @@ public class SchemaRegistryConfig {
 
   @Bean
   MessageConverter avroSchemaMessageConverter() {
-    return new AvroSchemaMessageConverter(
-        MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+    CachingAvroMessageConverter converter =
+        new CachingAvroMessageConverter(
+            MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+    converter.setPreviousSchemaLocations(
+        new ClassPathResource("avro-history/userevent-message-v2.avsc"),
+        new ClassPathResource("avro-history/userevent-message-v1.avsc"));
+    // v2 was the last schema sent without the fingerprint header
+    converter.setLegacySchemaLocation(
+        new ClassPathResource("avro-history/userevent-message-v2.avsc"));
+    return converter;
   }
 }
@@ -0,0 +1,68 @@
+package com.ivanfranchin.eventservice.config;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.cassandra.core.cql.session.init.KeyspacePopulator;
+
+/**
+ * Applies the SSTable compression of {@code app.events.compression} to the event tables, once they
+ * are created by {@code event-service.cql}. A table is only altered when its compression differs.
+ * The new compression applies to the SSTables written from then on; the existing ones are rewritten
+ * as they are compacted, or at once with {@code nodetool upgradesstables -a}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TableCompressionPopulator implements KeyspacePopulator {
+
+  public static final String NONE = "none";
+
+  static final List<String> EVENT_TABLES = List.of("user_events", "user_events_by_bucket");
+
+  private static final String SELECT_COMPRESSION =
+      "SELECT compression FROM system_schema.tables WHERE keyspace_name = ? AND table_name = ?";
+
+  private final String keyspaceName;
+  private final String compressor;
+  private final int chunkLengthKb;
+
+  @Override
+  public void populate(CqlSession session) {
+    for (String table : EVENT_TABLES) {
+      Row row =
+          session
+              .execute(SimpleStatement.newInstance(SELECT_COMPRESSION, keyspaceName, table))
+              .one();
+      Map<String, String> current =
+          row == null ? Map.of() : row.getMap("compression", String.class, String.class);
+      if (matches(current)) {
+        continue;
+      }
+      session.execute(
+          "ALTER TABLE %s.%s WITH compression = %s".formatted(keyspaceName, table, options()));
+      log.info(
+          "Compression of {}.{} changed from {} to {}", keyspaceName, table, current, options());
+    }
+  }
+
+  // The class is stored fully qualified, e.g. org.apache.cassandra.io.compress.ZstdCompressor
+  private boolean matches(Map<String, String> current) {
+    if (NONE.equals(compressor)) {
+      return "false".equals(current.get("enabled"));
+    }
+    String currentClass = current.getOrDefault("class", "");
+    return (currentClass.equals(compressor) || currentClass.endsWith("." + compressor))
+        && String.valueOf(chunkLengthKb).equals(current.get("chunk_length_in_kb"));
+  }
+
+  private String options() {
+    if (NONE.equals(compressor)) {
+      return "{'enabled': 'false'}";
+    }
+    return "{'class': '%s', 'chunk_length_in_kb': %d}".formatted(compressor, chunkLengthKb);
+  }
+}
@@ -0,0 +1,82 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies the events of the {@code user_events} table into {@code user_events_by_bucket}, using the
+ * bucket size set in {@code app.events.time-bucket}, and exits. It runs when the application is
+ * started with the {@code bucket-migration} profile, which also keeps the Kafka consumer and the
+ * web server down. Writes are idempotent, so the migration can be run again if interrupted.
+ */
+@Slf4j
+@Profile("bucket-migration")
+@Component
+public class BucketMigrationRunner implements ApplicationRunner {
+
+  private static final String SELECT_ALL_USER_EVENTS =
+      "SELECT userId, datetime, version, eventId, type, email, fullName, active, data"
+          + " FROM user_events";
+
+  private final CqlSession session;
+  private final UserEventWriter userEventWriter;
+  private final ConfigurableApplicationContext applicationContext;
+  private final TimeBucket timeBucket;
+  private final int batchSize;
+
+  public BucketMigrationRunner(
+      CqlSession session,
+      UserEventWriter userEventWriter,
+      ConfigurableApplicationContext applicationContext,
+      @Value("${app.events.time-bucket}") TimeBucket timeBucket,
+      @Value("${app.events.migration.batch-size}") int batchSize) {
+    this.session = session;
+    this.userEventWriter = userEventWriter;
+    this.applicationContext = applicationContext;
+    this.timeBucket = timeBucket;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (timeBucket == TimeBucket.NONE) {
+      throw new IllegalStateException(
+          "Set app.events.time-bucket to DAY or MONTH before running the bucket migration");
+    }
+    log.info("Migrating user_events into {} buckets", timeBucket);
+
+    long migrated = 0;
+    List<UserEvent> userEvents = new ArrayList<>(batchSize);
+    SimpleStatement statement =
+        SimpleStatement.newInstance(SELECT_ALL_USER_EVENTS).setPageSize(batchSize);
+    for (Row row : session.execute(statement)) {
+      userEvents.add(BucketedUserEventReader.toUserEvent(row));
+      if (userEvents.size() == batchSize) {
+        userEventWriter.writeAll(userEvents).join();
+        migrated += userEvents.size();
+        userEvents.clear();
+        log.info("Migrated {} userEvents", migrated);
+      }
+    }
+    if (!userEvents.isEmpty()) {
+      userEventWriter.writeAll(userEvents).join();
+      migrated += userEvents.size();
+    }
+    log.info("Migration finished, {} userEvents migrated", migrated);
+
+    System.exit(SpringApplication.exit(applicationContext));
+  }
+}
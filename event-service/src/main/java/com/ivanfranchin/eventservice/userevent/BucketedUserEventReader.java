@@ -0,0 +1,196 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.ivanfranchin.eventservice.userevent.exception.InvalidUserEventQueryException;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserEventPage;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Reads user events from {@code user_events_by_bucket}, used when {@code app.events.time-bucket} is
+ * set. The buckets a user has in the requested range are looked up in {@code user_event_buckets}
+ * and then queried in order, {@code app.events.bucket-fan-out} at a time in parallel. Buckets cover
+ * disjoint time ranges, so concatenating their rows in bucket order keeps the events sorted.
+ *
+ * <p>Paging is keyset based: the page token carries the {@code (datetime, version)} of the last
+ * event returned, which is unique within a user, and the next page starts right after it.
+ */
+@Component
+public class BucketedUserEventReader {
+
+  private static final String SELECT_BUCKETS_ASC =
+      "SELECT bucket FROM user_event_buckets WHERE userId = ? AND bucket >= ? AND bucket <= ?"
+          + " ORDER BY bucket ASC";
+  private static final String SELECT_BUCKETS_DESC =
+      "SELECT bucket FROM user_event_buckets WHERE userId = ? AND bucket >= ? AND bucket <= ?"
+          + " ORDER BY bucket DESC";
+  private static final String SELECT_USER_EVENTS_ASC =
+      "SELECT userId, datetime, version, eventId, type, email, fullName, active, data"
+          + " FROM user_events_by_bucket"
+          + " WHERE userId = ? AND bucket = ?"
+          + " AND (datetime, version) >= (?, ?) AND (datetime, version) <= (?, ?)"
+          + " ORDER BY datetime ASC LIMIT ?";
+  private static final String SELECT_USER_EVENTS_DESC =
+      "SELECT userId, datetime, version, eventId, type, email, fullName, active, data"
+          + " FROM user_events_by_bucket"
+          + " WHERE userId = ? AND bucket = ?"
+          + " AND (datetime, version) >= (?, ?) AND (datetime, version) <= (?, ?)"
+          + " ORDER BY datetime DESC LIMIT ?";
+
+  private final CqlSession session;
+  private final TimeBucket timeBucket;
+  private final int fanOut;
+  private final Supplier<PreparedStatement> selectBucketsAsc;
+  private final Supplier<PreparedStatement> selectBucketsDesc;
+  private final Supplier<PreparedStatement> selectUserEventsAsc;
+  private final Supplier<PreparedStatement> selectUserEventsDesc;
+
+  public BucketedUserEventReader(
+      CqlSession session,
+      @Value("${app.events.time-bucket}") TimeBucket timeBucket,
+      @Value("${app.events.bucket-fan-out}") int fanOut) {
+    this.session = session;
+    this.timeBucket = timeBucket;
+    this.fanOut = fanOut;
+    this.selectBucketsAsc = SingletonSupplier.of(() -> session.prepare(SELECT_BUCKETS_ASC));
+    this.selectBucketsDesc = SingletonSupplier.of(() -> session.prepare(SELECT_BUCKETS_DESC));
+    this.selectUserEventsAsc = SingletonSupplier.of(() -> session.prepare(SELECT_USER_EVENTS_ASC));
+    this.selectUserEventsDesc =
+        SingletonSupplier.of(() -> session.prepare(SELECT_USER_EVENTS_DESC));
+  }
+
+  /**
+   * Reads one page of the user's events with {@code datetime} between {@code from} and {@code to}
+   * (both inclusive). Each bucket query asks only for the rows still missing to fill the page, plus
+   * one to tell whether there is a next page.
+   */
+  public UserEventPage getUserEvents(
+      Long id, Date from, Date to, Sort.Direction direction, int limit, String pageToken) {
+    Position lower = new Position(from.toInstant(), Long.MIN_VALUE);
+    Position upper = new Position(to.toInstant(), Long.MAX_VALUE);
+    if (pageToken != null) {
+      Position last = decodePageToken(pageToken);
+      if (direction.isAscending()) {
+        lower = new Position(last.datetime(), last.version() + 1);
+      } else {
+        upper = new Position(last.datetime(), last.version() - 1);
+      }
+    }
+
+    List<UserEvent> userEvents = new ArrayList<>();
+    if (lower.compareTo(upper) <= 0) {
+      List<Long> buckets = findBuckets(id, lower.datetime(), upper.datetime(), direction);
+      for (int i = 0; i < buckets.size() && userEvents.size() <= limit; i += fanOut) {
+        List<CompletableFuture<List<UserEvent>>> futures = new ArrayList<>();
+        for (Long bucket : buckets.subList(i, Math.min(i + fanOut, buckets.size()))) {
+          futures.add(
+              findUserEvents(id, bucket, lower, upper, direction, limit + 1 - userEvents.size()));
+        }
+        for (CompletableFuture<List<UserEvent>> future : futures) {
+          userEvents.addAll(future.join());
+        }
+      }
+    }
+
+    if (userEvents.size() <= limit) {
+      return new UserEventPage(userEvents, null);
+    }
+    List<UserEvent> page = List.copyOf(userEvents.subList(0, limit));
+    return new UserEventPage(page, encodePageToken(page.getLast().getKey()));
+  }
+
+  static UserEvent toUserEvent(Row row) {
+    return new UserEvent(
+        new UserEventKey(
+            row.getLong("userId"), Date.from(row.getInstant("datetime")), row.getLong("version")),
+        row.getString("eventId"),
+        row.getString("type"),
+        row.getString("email"),
+        row.getString("fullName"),
+        row.get("active", Boolean.class),
+        row.getString("data"));
+  }
+
+  private List<Long> findBuckets(Long id, Instant lower, Instant upper, Sort.Direction direction) {
+    PreparedStatement statement =
+        direction.isAscending() ? selectBucketsAsc.get() : selectBucketsDesc.get();
+    List<Long> buckets = new ArrayList<>();
+    for (Row row :
+        session.execute(statement.bind(id, timeBucket.of(lower), timeBucket.of(upper)))) {
+      buckets.add(row.getLong("bucket"));
+    }
+    return buckets;
+  }
+
+  private CompletableFuture<List<UserEvent>> findUserEvents(
+      Long id, long bucket, Position lower, Position upper, Sort.Direction direction, int limit) {
+    PreparedStatement statement =
+        direction.isAscending() ? selectUserEventsAsc.get() : selectUserEventsDesc.get();
+    return session
+        .executeAsync(
+            statement.bind(
+                id,
+                bucket,
+                lower.datetime(),
+                lower.version(),
+                upper.datetime(),
+                upper.version(),
+                limit))
+        .toCompletableFuture()
+        .thenApply(
+            resultSet -> {
+              List<UserEvent> userEvents = new ArrayList<>();
+              for (Row row : resultSet.currentPage()) {
+                userEvents.add(toUserEvent(row));
+              }
+              return userEvents;
+            });
+  }
+
+  private static String encodePageToken(UserEventKey last) {
+    byte[] bytes =
+        ByteBuffer.allocate(2 * Long.BYTES)
+            .putLong(last.getDatetime().getTime())
+            .putLong(last.getVersion())
+            .array();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private static Position decodePageToken(String pageToken) {
+    try {
+      byte[] bytes = Base64.getUrlDecoder().decode(pageToken);
+      if (bytes.length != 2 * Long.BYTES) {
+        throw new IllegalArgumentException("Unexpected page token length " + bytes.length);
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      return new Position(Instant.ofEpochMilli(buffer.getLong()), buffer.getLong());
+    } catch (IllegalArgumentException e) {
+      throw new InvalidUserEventQueryException("The page token is malformed.", e);
+    }
+  }
+
+  /** A position in the clustering order of a user's events. */
+  private record Position(Instant datetime, long version) implements Comparable<Position> {
+
+    @Override
+    public int compareTo(Position other) {
+      int compare = datetime.compareTo(other.datetime);
+      return compare != 0 ? compare : Long.compare(version, other.version);
+    }
+  }
+}
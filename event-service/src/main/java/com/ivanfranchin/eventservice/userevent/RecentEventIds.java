@@ -0,0 +1,84 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded probabilistic set of the event ids seen recently. Ids are added to a Bloom filter sized
+ * for {@code generationSize} ids at the given false positive rate. Once it is full, it becomes the
+ * previous generation, replacing the one before it, and a new filter is started. So memory stays
+ * fixed, and lookups cover between one and two generations of ids.
+ *
+ * <p>There are no false negatives within that window: when {@link #mightContainThenAdd} returns
+ * {@code false}, the id was not seen.
+ */
+class RecentEventIds {
+
+  private final int generationSize;
+  private final int numBits;
+  private final int numHashes;
+  private long[] current;
+  private long[] previous;
+  private int currentSize;
+
+  RecentEventIds(int generationSize, double falsePositiveRate) {
+    this.generationSize = generationSize;
+    // optimal Bloom filter sizing: m = -n ln(p) / ln(2)^2 and k = m / n ln(2)
+    this.numBits =
+        (int)
+            Math.max(
+                Long.SIZE,
+                Math.ceil(
+                    -generationSize * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+    this.numHashes = Math.max(1, (int) Math.round((double) numBits / generationSize * Math.log(2)));
+    this.current = new long[(numBits + Long.SIZE - 1) / Long.SIZE];
+    this.previous = new long[current.length];
+  }
+
+  /** Adds {@code eventId} and tells whether it might have been added before. */
+  synchronized boolean mightContainThenAdd(String eventId) {
+    long hash = hash(eventId);
+    boolean mightContain = mightContain(current, hash) || mightContain(previous, hash);
+    if (currentSize == generationSize) {
+      previous = current;
+      current = new long[previous.length];
+      currentSize = 0;
+    }
+    add(current, hash);
+    currentSize++;
+    return mightContain;
+  }
+
+  // Kirsch-Mitzenmacher: the k indexes are derived from the two halves of a single 64-bit hash
+  private boolean mightContain(long[] bits, long hash) {
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+    for (int i = 1; i <= numHashes; i++) {
+      int index = Math.floorMod(hash1 + i * hash2, numBits);
+      if ((bits[index >>> 6] & (1L << index)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void add(long[] bits, long hash) {
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+    for (int i = 1; i <= numHashes; i++) {
+      int index = Math.floorMod(hash1 + i * hash2, numBits);
+      bits[index >>> 6] |= 1L << index;
+    }
+  }
+
+  // FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer to spread the bits
+  private static long hash(String eventId) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : eventId.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+}
@@ -0,0 +1,111 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * The progress of the {@code replay} profile. Each Kafka partition is replayed from the offset it
+ * was positioned at up to its end offset when it was first assigned; the events sent afterwards are
+ * left to the live consumer. The progress is published as:
+ *
+ * <ul>
+ *   <li>{@code user.events.replay.replayed}: events written to Cassandra, by partition;
+ *   <li>{@code user.events.replay.skipped}: records that could not be decoded, by partition;
+ *   <li>{@code user.events.replay.remaining}: events left to replay, by partition;
+ *   <li>{@code user.events.replay.eta}: seconds left, at the average rate since the replay started.
+ * </ul>
+ */
+@Profile("replay")
+@Component
+public class ReplayProgress {
+
+  private final MeterRegistry meterRegistry;
+  private final Map<Integer, PartitionProgress> partitions = new ConcurrentHashMap<>();
+  private final AtomicLong replayed = new AtomicLong();
+  private final long startNanos = System.nanoTime();
+  private volatile int partitionCount;
+
+  public ReplayProgress(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("user.events.replay.eta", this, ReplayProgress::getEtaSeconds)
+        .baseUnit("seconds")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Registers {@code partition}, one of the {@code partitionCount} of the topic, to be replayed
+   * from {@code position} up to {@code endOffset}. A partition already registered keeps its
+   * progress, as when a rebalance moves it to another consumer.
+   */
+  public void start(int partition, long position, long endOffset, int partitionCount) {
+    this.partitionCount = partitionCount;
+    partitions.computeIfAbsent(
+        partition,
+        key -> {
+          PartitionProgress progress = new PartitionProgress(endOffset, new AtomicLong(position));
+          Gauge.builder("user.events.replay.remaining", progress, PartitionProgress::remaining)
+              .tag("partition", key.toString())
+              .register(meterRegistry);
+          return progress;
+        });
+  }
+
+  /**
+   * Records that {@code records} events of {@code partition}, up to {@code nextOffset}, are
+   * written.
+   */
+  public void advance(int partition, long nextOffset, int records) {
+    PartitionProgress progress = partitions.get(partition);
+    if (progress != null) {
+      progress.position().accumulateAndGet(nextOffset, Math::max);
+    }
+    replayed.addAndGet(records);
+    Counter.builder("user.events.replay.replayed")
+        .tag("partition", String.valueOf(partition))
+        .register(meterRegistry)
+        .increment(records);
+  }
+
+  /** Records that a record of {@code partition} could not be decoded and is not replayed. */
+  public void skip(int partition) {
+    Counter.builder("user.events.replay.skipped")
+        .tag("partition", String.valueOf(partition))
+        .register(meterRegistry)
+        .increment();
+  }
+
+  public long getRemaining() {
+    return partitions.values().stream().mapToLong(PartitionProgress::remaining).sum();
+  }
+
+  /** Tells whether every partition of the topic is registered and replayed up to its end offset. */
+  public boolean isFinished() {
+    return partitionCount > 0 && partitions.size() == partitionCount && getRemaining() == 0;
+  }
+
+  public long getReplayed() {
+    return replayed.get();
+  }
+
+  private double getEtaSeconds() {
+    long replayedSoFar = replayed.get();
+    if (replayedSoFar == 0) {
+      return Double.NaN;
+    }
+    double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+    return getRemaining() * elapsedSeconds / replayedSoFar;
+  }
+
+  private record PartitionProgress(long endOffset, AtomicLong position) {
+
+    long remaining() {
+      return Math.max(0, endOffset - position.get());
+    }
+  }
+}
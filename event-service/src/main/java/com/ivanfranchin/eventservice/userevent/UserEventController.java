@@ -1,13 +1,28 @@
 package com.ivanfranchin.eventservice.userevent;
 
 import com.ivanfranchin.eventservice.userevent.dto.UserEventResponse;
+import com.ivanfranchin.eventservice.userevent.dto.UserEventSummaryResponse;
+import com.ivanfranchin.eventservice.userevent.dto.UserProjectionResponse;
+import com.ivanfranchin.eventservice.userevent.dto.UserStateResponse;
+import com.ivanfranchin.eventservice.userevent.exception.InvalidUserEventQueryException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventPage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -15,11 +30,109 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/events")
 public class UserEventController {
 
+  public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
   private final UserEventService userEventService;
+  private final UserStateService userStateService;
+  private final UserProjectionService userProjectionService;
+  private final UserEventSummaryService userEventSummaryService;
+  private final ObjectMapper objectMapper;
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<UserEventResponse>> getUserEvents(
+      @RequestParam(name = "userId") Long id,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(defaultValue = "asc") String order,
+      @RequestParam(required = false) String pageToken) {
+    log.info(
+        "GET Request, id: {}, from: {}, to: {}, limit: {}, order: {}", id, from, to, limit, order);
+    Sort.Direction direction = toDirection(order);
+
+    UserEventPage userEventPage =
+        userEventService.getUserEvents(id, from, to, direction, limit, pageToken);
+
+    ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+    if (userEventPage.nextPageToken() != null) {
+      responseBuilder.header(NEXT_PAGE_TOKEN_HEADER, userEventPage.nextPageToken());
+    }
+    return responseBuilder.body(
+        userEventPage.userEvents().stream().map(UserEventResponse::from).toList());
+  }
+
+  /**
+   * Streams all the user's events in the range as newline-delimited JSON. Rows are read from
+   * Cassandra page by page and each page is flushed to the client before the next one is fetched.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamUserEvents(
+      @RequestParam(name = "userId") Long id,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to,
+      @RequestParam(defaultValue = "asc") String order) {
+    log.info("GET Stream Request, id: {}, from: {}, to: {}, order: {}", id, from, to, order);
+    Sort.Direction direction = toDirection(order);
+
+    StreamingResponseBody body =
+        outputStream ->
+            userEventService.forEachUserEventPage(
+                id,
+                from,
+                to,
+                direction,
+                userEvents -> {
+                  try {
+                    for (UserEvent userEvent : userEvents) {
+                      outputStream.write(
+                          objectMapper.writeValueAsBytes(UserEventResponse.from(userEvent)));
+                      outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * Returns the state of the user as of {@code asOf} (default now), rebuilt from the latest
+   * snapshot before it plus the events that followed.
+   */
+  @GetMapping("/state")
+  public UserStateResponse getUserState(
+      @RequestParam(name = "userId") Long id, @RequestParam(required = false) Instant asOf) {
+    log.info("GET State Request, id: {}, asOf: {}", id, asOf);
+    return UserStateResponse.from(
+        userStateService.getUserState(id, asOf == null ? Instant.now() : asOf));
+  }
+
+  /**
+   * Returns the current state of the user from the {@code user_state} projection, with a single
+   * partition read.
+   */
+  @GetMapping("/users/{id}")
+  public UserProjectionResponse getUser(@PathVariable Long id) {
+    log.info("GET User Request, id: {}", id);
+    return UserProjectionResponse.from(userProjectionService.getUser(id));
+  }
+
+  /**
+   * Returns the user's latest event and its number of events of each type, from two
+   * single-partition reads instead of a read of its events.
+   */
+  @GetMapping("/summary")
+  public UserEventSummaryResponse getUserEventSummary(@RequestParam(name = "userId") Long id) {
+    log.info("GET Summary Request, id: {}", id);
+    return UserEventSummaryResponse.from(userEventSummaryService.getUserEventSummary(id));
+  }
 
-  @GetMapping
-  public List<UserEventResponse> getUserEvents(@RequestParam(name = "userId") Long id) {
-    log.info("GET Request, id: {}", id);
-    return userEventService.getUserEvents(id).stream().map(UserEventResponse::from).toList();
+  private static Sort.Direction toDirection(String order) {
+    return Sort.Direction.fromOptionalString(order)
+        .orElseThrow(
+            () ->
+                new InvalidUserEventQueryException(
+                    String.format("Invalid order '%s'. Use 'asc' or 'desc'.", order)));
   }
 }
@@ -0,0 +1,61 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.ivanfranchin.eventservice.userevent.UserEventMetrics.Outcome;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import java.util.concurrent.CompletionException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends the events that could not be saved after their retries to the {@code users-dlt-out-0}
+ * binding, so their records can be acknowledged instead of stopping the commits of their partition.
+ * The dead letter carries the original topic, partition and offset, and the exception, in the same
+ * headers as Spring Kafka's dead letter publishing. The binding sends synchronously, so a dead
+ * letter the broker didn't accept is reported as not sent.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class UserEventDeadLetters {
+
+  public static final String BINDING_NAME = "users-dlt-out-0";
+
+  private final StreamBridge streamBridge;
+  private final UserEventMetrics userEventMetrics;
+
+  /** Returns whether the dead letter was sent, so the record can be acknowledged. */
+  public boolean send(Message<UserEventMessage> message, Throwable throwable) {
+    Throwable cause =
+        throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause()
+            : throwable;
+    MessageHeaders headers = message.getHeaders();
+    Integer partition = headers.get(KafkaHeaders.RECEIVED_PARTITION, Integer.class);
+    Message<UserEventMessage> deadLetter =
+        MessageBuilder.withPayload(message.getPayload())
+            .setHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC, headers.get(KafkaHeaders.RECEIVED_TOPIC))
+            .setHeader(KafkaHeaders.DLT_ORIGINAL_PARTITION, partition)
+            .setHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET, headers.get(KafkaHeaders.OFFSET))
+            .setHeader(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName())
+            .setHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE, cause.getMessage())
+            .build();
+    try {
+      if (!streamBridge.send(BINDING_NAME, deadLetter)) {
+        log.error("Dead letter of userEvent {} was not sent", message);
+        return false;
+      }
+    } catch (RuntimeException e) {
+      log.error("Dead letter of userEvent {} was not sent", message, e);
+      return false;
+    }
+    log.error("userEvent {} could not be saved, sent to the dead letter topic", message, cause);
+    userEventMetrics.countConsumed(partition, message.getPayload(), Outcome.DEAD_LETTERED);
+    return true;
+  }
+}
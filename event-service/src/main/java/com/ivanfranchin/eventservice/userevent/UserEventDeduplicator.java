@@ -0,0 +1,115 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Drops events that were already stored, such as the ones redelivered after a rebalance or a failed
+ * commit. Each Kafka partition has its own {@link RecentEventIds} filter of the ids seen recently.
+ * Cassandra is only read when the filter reports a possible match: the row with the event's key is
+ * looked up and its {@code eventId} compared. Most events are new and are written without any read.
+ * The lookup is asynchronous, so a possible match doesn't block the consumer thread, and completes
+ * on a virtual thread rather than a driver thread, so callers can go on with blocking calls.
+ *
+ * <p>A partition's filter starts empty after a restart or a rebalance. Redelivered events it
+ * doesn't know are written again, which overwrites the same row.
+ */
+@Slf4j
+@Component
+public class UserEventDeduplicator {
+
+  private static final String SELECT_EVENT_ID =
+      "SELECT eventId FROM user_events WHERE userId = ? AND datetime = ? AND version = ?";
+  private static final String SELECT_EVENT_ID_BY_BUCKET =
+      "SELECT eventId FROM user_events_by_bucket"
+          + " WHERE userId = ? AND bucket = ? AND datetime = ? AND version = ?";
+
+  private final CqlSession session;
+  private final TimeBucket timeBucket;
+  private final int generationSize;
+  private final double falsePositiveRate;
+  private final Supplier<PreparedStatement> selectEventId;
+  private final Map<Integer, RecentEventIds> recentEventIdsByPartition = new ConcurrentHashMap<>();
+  private final Executor lookupCompletions = Executors.newVirtualThreadPerTaskExecutor();
+
+  public UserEventDeduplicator(
+      CqlSession session,
+      @Value("${app.events.time-bucket}") TimeBucket timeBucket,
+      @Value("${app.ingest.dedup.ids-per-partition}") int generationSize,
+      @Value("${app.ingest.dedup.false-positive-rate}") double falsePositiveRate) {
+    this.session = session;
+    this.timeBucket = timeBucket;
+    this.generationSize = generationSize;
+    this.falsePositiveRate = falsePositiveRate;
+    this.selectEventId =
+        SingletonSupplier.of(
+            () ->
+                session.prepare(
+                    timeBucket == TimeBucket.NONE ? SELECT_EVENT_ID : SELECT_EVENT_ID_BY_BUCKET));
+  }
+
+  /**
+   * Tells whether {@code userEvent}, received from {@code partition}, is already stored, and
+   * remembers its id. Events without an id, sent before ids were stored, are never duplicates. The
+   * returned future is already complete unless Cassandra has to be read.
+   */
+  public CompletableFuture<Boolean> isDuplicate(Integer partition, UserEvent userEvent) {
+    String eventId = userEvent.getEventId();
+    if (eventId == null) {
+      return CompletableFuture.completedFuture(false);
+    }
+    RecentEventIds recentEventIds =
+        recentEventIdsByPartition.computeIfAbsent(
+            partition == null ? -1 : partition,
+            key -> new RecentEventIds(generationSize, falsePositiveRate));
+    if (!recentEventIds.mightContainThenAdd(eventId)) {
+      return CompletableFuture.completedFuture(false);
+    }
+    return findEventId(userEvent.getKey())
+        .thenApplyAsync(
+            storedEventId -> {
+              boolean duplicate = eventId.equals(storedEventId);
+              if (duplicate) {
+                log.info(
+                    "Dropping duplicate event {} of user {}",
+                    eventId,
+                    userEvent.getKey().getUserId());
+              }
+              return duplicate;
+            },
+            lookupCompletions);
+  }
+
+  private CompletableFuture<String> findEventId(UserEventKey key) {
+    PreparedStatement statement = selectEventId.get();
+    return session
+        .executeAsync(
+            timeBucket == TimeBucket.NONE
+                ? statement.bind(key.getUserId(), key.getDatetime().toInstant(), key.getVersion())
+                : statement.bind(
+                    key.getUserId(),
+                    timeBucket.of(key.getDatetime().toInstant()),
+                    key.getDatetime().toInstant(),
+                    key.getVersion()))
+        .toCompletableFuture()
+        .thenApply(
+            resultSet -> {
+              Row row = resultSet.one();
+              return row == null ? null : row.getString("eventId");
+            });
+  }
+}
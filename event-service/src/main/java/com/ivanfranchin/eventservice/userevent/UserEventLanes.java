@@ -0,0 +1,75 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the tasks of the same user in order, and the tasks of different users in parallel. Each user
+ * is mapped by id to one of {@code app.ingest.lanes.count} lanes. A lane runs its tasks one at a
+ * time, in submission order, on a virtual thread, so a single Kafka partition can be processed by
+ * as many threads as there are lanes.
+ *
+ * <p>The number of tasks queued or running is capped by {@code app.ingest.lanes.max-pending}. When
+ * the cap is reached, {@link #submit} blocks the calling thread until a task completes, which
+ * pushes back on the consumer instead of queueing an unbounded number of records.
+ */
+@Component
+public class UserEventLanes {
+
+  private final ExecutorService[] lanes;
+  private final int maxPending;
+  private final Semaphore pending;
+
+  public UserEventLanes(
+      @Value("${app.ingest.lanes.count}") int count,
+      @Value("${app.ingest.lanes.max-pending}") int maxPending) {
+    ThreadFactory threadFactory = Thread.ofVirtual().name("user-event-lane-", 0).factory();
+    this.lanes = new ExecutorService[count];
+    for (int i = 0; i < count; i++) {
+      lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+    }
+    this.maxPending = maxPending;
+    this.pending = new Semaphore(maxPending);
+  }
+
+  /** Queues {@code task} on the lane of {@code userId}, after the tasks already queued on it. */
+  public void submit(Long userId, Runnable task) {
+    pending.acquireUninterruptibly();
+    try {
+      lanes[laneOf(userId)].execute(
+          () -> {
+            try {
+              task.run();
+            } finally {
+              pending.release();
+            }
+          });
+    } catch (RuntimeException e) {
+      pending.release();
+      throw e;
+    }
+  }
+
+  public int getPendingTasks() {
+    return maxPending - pending.availablePermits();
+  }
+
+  int laneOf(Long userId) {
+    return Math.floorMod(Long.hashCode(userId), lanes.length);
+  }
+
+  // Queued tasks are dropped and a retrying task is interrupted. Their records are not
+  // acknowledged,
+  // so they are redelivered
+  @PreDestroy
+  void shutdown() {
+    for (ExecutorService lane : lanes) {
+      lane.shutdownNow();
+    }
+  }
+}
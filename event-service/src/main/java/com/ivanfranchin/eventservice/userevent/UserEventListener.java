@@ -1,10 +1,16 @@
 package com.ivanfranchin.eventservice.userevent;
 
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
 import com.ivanfranchin.userservice.messages.UserEventMessage;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
@@ -14,17 +20,143 @@ import org.springframework.stereotype.Component;
 public class UserEventListener {
 
   private final UserEventService userEventService;
+  private final UserStateService userStateService;
+  private final UserEventVersionTracker userEventVersionTracker;
+  private final UserEventLanes userEventLanes;
+  private final UserEventRetrier userEventRetrier;
+  private final UserEventDeadLetters userEventDeadLetters;
+  private final UserEventMetrics userEventMetrics;
 
   @Bean
   Consumer<Message<UserEventMessage>> users() {
     return message -> {
       log.info(
           "\n---\nHeaders: {}\n\nPayload: {}\n---", message.getHeaders(), message.getPayload());
-      try {
-        userEventService.saveUserEvent(message);
-      } catch (Exception e) {
-        log.error("An error occurred while saving userEvent {}", message, e);
+      userEventVersionTracker.track(message.getPayload());
+      userEventMetrics.recordPropagationLag(
+          message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, Integer.class),
+          message.getPayload());
+      saveUserEvent(message);
+    };
+  }
+
+  /**
+   * Used when the {@code async} profile is active. The write is handed to {@link UserEventWriter}
+   * and the record is acknowledged when it completes, so the consumer thread can keep several
+   * writes in flight. The listener container is configured with async acks, so offsets are only
+   * committed up to the lowest record whose write has not completed yet.
+   *
+   * <p>Async acks don't support {@code nack}, and an unacknowledged record would stop the commits
+   * of its partition. So a failed write is retried by {@link UserEventRetrier}, and an event still
+   * not saved after the last attempt is sent to the dead letter topic by {@link
+   * UserEventDeadLetters} and acknowledged. The record is only left unacknowledged when the dead
+   * letter can't be sent either, and is then redelivered after the next rebalance or restart.
+   */
+  @Bean
+  Consumer<Message<UserEventMessage>> usersAsync() {
+    return message -> {
+      log.info(
+          "\n---\nHeaders: {}\n\nPayload: {}\n---", message.getHeaders(), message.getPayload());
+      userEventVersionTracker.track(message.getPayload());
+      userEventMetrics.recordPropagationLag(
+          message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, Integer.class),
+          message.getPayload());
+      Acknowledgment acknowledgment =
+          message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+      userEventRetrier
+          .retryAsync(() -> userEventService.saveUserEventAsync(message))
+          .whenComplete(
+              (saved, throwable) -> {
+                if (throwable != null) {
+                  if (!userEventDeadLetters.send(message, throwable)) {
+                    log.error("userEvent {} left unacknowledged", message);
+                    return;
+                  }
+                } else if (saved) {
+                  recordUserEvent(message.getPayload());
+                }
+                if (acknowledgment != null) {
+                  acknowledgment.acknowledge();
+                }
+              });
+    };
+  }
+
+  /**
+   * Used when the {@code lanes} profile is active. Each record is handed to {@link UserEventLanes}
+   * by its {@code userId}, so the events of a partition are saved by many threads while the events
+   * of each user keep their order. As in the {@code async} mode, the record is acknowledged once
+   * saved, and the container only commits up to the lowest record not saved yet. Also as there, a
+   * failed save is retried, on the lane's thread so the user's next events wait for it, and an
+   * event still not saved is dead-lettered and acknowledged. The record is left unacknowledged, to
+   * be redelivered after the next rebalance or restart, when the dead letter can't be sent or the
+   * lanes are shut down while it is retried.
+   */
+  @Bean
+  Consumer<Message<UserEventMessage>> usersLanes() {
+    return message -> {
+      log.info(
+          "\n---\nHeaders: {}\n\nPayload: {}\n---", message.getHeaders(), message.getPayload());
+      userEventVersionTracker.track(message.getPayload());
+      userEventMetrics.recordPropagationLag(
+          message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, Integer.class),
+          message.getPayload());
+      Acknowledgment acknowledgment =
+          message.getHeaders().get(KafkaHeaders.ACKNOWLEDGMENT, Acknowledgment.class);
+      userEventLanes.submit(
+          message.getPayload().getUserId(),
+          () -> {
+            Optional<UserEvent> saved;
+            try {
+              saved = userEventRetrier.retry(() -> userEventService.saveUserEvent(message));
+            } catch (RuntimeException e) {
+              if (Thread.currentThread().isInterrupted()
+                  || !userEventDeadLetters.send(message, e)) {
+                log.error("userEvent {} left unacknowledged", message, e);
+                return;
+              }
+              saved = Optional.empty();
+            }
+            saved.ifPresent(userEvent -> recordUserEvent(message.getPayload()));
+            if (acknowledgment != null) {
+              acknowledgment.acknowledge();
+            }
+          });
+    };
+  }
+
+  /**
+   * Used when the {@code batch} profile is active. Exceptions are not caught: the listener
+   * container only commits the offsets of the poll after all events are durable in Cassandra, and
+   * redelivers the batch otherwise.
+   */
+  @Bean
+  Consumer<Message<List<UserEventMessage>>> usersBatch() {
+    return message -> {
+      List<UserEventMessage> payloads = message.getPayload();
+      log.info("Received a batch of {} userEvents", payloads.size());
+      payloads.forEach(userEventVersionTracker::track);
+      List<?> partitions = message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, List.class);
+      for (int i = 0; i < payloads.size(); i++) {
+        userEventMetrics.recordPropagationLag(
+            partitions == null ? null : (Integer) partitions.get(i), payloads.get(i));
       }
+      userEventService.saveUserEvents(message).forEach(this::recordUserEvent);
     };
   }
+
+  private void saveUserEvent(Message<UserEventMessage> message) {
+    try {
+      userEventService
+          .saveUserEvent(message)
+          .ifPresent(userEvent -> recordUserEvent(message.getPayload()));
+    } catch (Exception e) {
+      log.error("An error occurred while saving userEvent {}", message, e);
+    }
+  }
+
+  private void recordUserEvent(UserEventMessage payload) {
+    userStateService.recordUserEvent(
+        payload.getUserId(), Instant.ofEpochMilli(payload.getEventTimestamp()));
+  }
 }
@@ -0,0 +1,74 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * The ingest metrics of event-service, all tagged by Kafka partition:
+ *
+ * <ul>
+ *   <li>{@code user.events.propagation.lag}: milliseconds from the event's timestamp, set by
+ *       user-service when the user changed, until the event is consumed. It is the freshness of the
+ *       event log;
+ *   <li>{@code user.events.write}: duration of the Cassandra write, by consumption mode;
+ *   <li>{@code user.events.consumed}: events consumed, by event type and outcome. A failed save is
+ *       counted at each attempt, and an event sent to the dead letter topic once more.
+ * </ul>
+ *
+ * The {@code user.events} meters are published with percentile histograms, see {@code
+ * management.metrics.distribution} in {@code application.yml}.
+ */
+@RequiredArgsConstructor
+@Component
+public class UserEventMetrics {
+
+  public enum Outcome {
+    SAVED,
+    DUPLICATE,
+    FAILED,
+    DEAD_LETTERED
+  }
+
+  // Tag value of the writes that span several partitions, in batch mode
+  public static final String ALL_PARTITIONS = "all";
+
+  private final MeterRegistry meterRegistry;
+
+  public void recordPropagationLag(Integer partition, UserEventMessage payload) {
+    DistributionSummary.builder("user.events.propagation.lag")
+        .baseUnit("milliseconds")
+        .tag("partition", tagOf(partition))
+        .register(meterRegistry)
+        .record(Math.max(0, System.currentTimeMillis() - payload.getEventTimestamp()));
+  }
+
+  public Timer.Sample startWrite() {
+    return Timer.start(meterRegistry);
+  }
+
+  public void stopWrite(Timer.Sample sample, String mode, String partition) {
+    sample.stop(
+        Timer.builder("user.events.write")
+            .tag("mode", mode)
+            .tag("partition", partition)
+            .register(meterRegistry));
+  }
+
+  public void countConsumed(Integer partition, UserEventMessage payload, Outcome outcome) {
+    Counter.builder("user.events.consumed")
+        .tag("partition", tagOf(partition))
+        .tag("type", payload.getEventType().toString())
+        .tag("outcome", outcome.name().toLowerCase())
+        .register(meterRegistry)
+        .increment();
+  }
+
+  public static String tagOf(Integer partition) {
+    return partition == null ? "unknown" : partition.toString();
+  }
+}
@@ -0,0 +1,222 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.cloud.function.context.config.JsonMessageConverter;
+import org.springframework.cloud.function.json.JsonMapper;
+import org.springframework.cloud.stream.binder.kafka.KafkaBindingRebalanceListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.StringUtils;
+
+/**
+ * Rebuilds the event tables from the {@code com.ivanfranchin.userservice.user} topic. It runs when
+ * the application is started with the {@code replay} profile, which binds {@link #usersReplay()}
+ * under its own consumer group, {@code eventServiceReplayGroup}, with a consumer per partition and
+ * large polls. Each poll is written with {@link UserEventWriter#writeAll} and applied to the {@code
+ * user_state} projection with {@link UserProjectionService#applyAll}, and its offsets are only
+ * committed once it is durable, so an interrupted replay resumes where it stopped. The writes are
+ * idempotent, so the events already stored are just written again.
+ *
+ * <p>The records are consumed as bytes and decoded one by one with the converter of their own
+ * {@code contentType} header, or {@code app.replay.default-content-type} when they have none, so a
+ * topic can mix JSON and Avro events. A record that cannot be decoded is skipped, logged and
+ * counted by {@code user.events.replay.skipped}, rather than failing its whole poll.
+ *
+ * <p>The replay starts at the first offset of {@code app.replay.start-timestamp}, or else at {@code
+ * app.replay.start-offset}. When neither is set, it starts from the committed offsets of the replay
+ * group, or the beginning of the topic. Once every partition is replayed up to the end it had when
+ * assigned, see {@link ReplayProgress}, the application exits.
+ */
+@Slf4j
+@Profile("replay")
+@Component
+public class UserEventReplayer implements KafkaBindingRebalanceListener {
+
+  private final UserEventWriter userEventWriter;
+  private final UserProjectionService userProjectionService;
+  private final ReplayProgress replayProgress;
+  private final CompositeMessageConverter messageConverter;
+  private final MimeType defaultContentType;
+  private final ConfigurableApplicationContext applicationContext;
+  private final Instant startTimestamp;
+  private final Long startOffset;
+  private final AtomicBoolean exiting = new AtomicBoolean();
+
+  public UserEventReplayer(
+      UserEventWriter userEventWriter,
+      UserProjectionService userProjectionService,
+      ReplayProgress replayProgress,
+      @Qualifier("avroSchemaMessageConverter") MessageConverter avroSchemaMessageConverter,
+      JsonMapper jsonMapper,
+      ConfigurableApplicationContext applicationContext,
+      @Value("${app.replay.default-content-type}") String defaultContentType,
+      @Value("${app.replay.start-timestamp}") String startTimestamp,
+      @Value("${app.replay.start-offset}") Long startOffset) {
+    this.userEventWriter = userEventWriter;
+    this.userProjectionService = userProjectionService;
+    this.replayProgress = replayProgress;
+    this.messageConverter =
+        new CompositeMessageConverter(
+            List.of(avroSchemaMessageConverter, new JsonMessageConverter(jsonMapper)));
+    this.defaultContentType = MimeType.valueOf(defaultContentType);
+    this.applicationContext = applicationContext;
+    this.startTimestamp =
+        StringUtils.hasText(startTimestamp) ? Instant.parse(startTimestamp) : null;
+    this.startOffset = startOffset;
+  }
+
+  @Bean
+  Consumer<Message<List<byte[]>>> usersReplay() {
+    return message -> {
+      List<byte[]> payloads = message.getPayload();
+      List<?> partitions = message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, List.class);
+      List<?> offsets = message.getHeaders().get(KafkaHeaders.OFFSET, List.class);
+      List<?> headers = message.getHeaders().get(KafkaHeaders.BATCH_CONVERTED_HEADERS, List.class);
+      List<UserEvent> userEvents = new ArrayList<>(payloads.size());
+      Map<Integer, Long> nextOffsets = new HashMap<>();
+      Map<Integer, Integer> records = new HashMap<>();
+      for (int i = 0; i < payloads.size(); i++) {
+        Integer partition = (Integer) partitions.get(i);
+        nextOffsets.merge(partition, (Long) offsets.get(i) + 1, Math::max);
+        Map<?, ?> recordHeaders = headers == null ? Map.of() : (Map<?, ?>) headers.get(i);
+        UserEventMessage userEventMessage;
+        try {
+          userEventMessage = decode(payloads.get(i), recordHeaders);
+        } catch (RuntimeException e) {
+          log.warn(
+              "Skipped undecodable userEvent at partition {} offset {}",
+              partition,
+              offsets.get(i),
+              e);
+          replayProgress.skip(partition);
+          continue;
+        }
+        userEvents.add(UserEventService.toUserEvent(userEventMessage));
+        records.merge(partition, 1, Integer::sum);
+      }
+      CompletableFuture.allOf(
+              userEventWriter.writeAll(userEvents), userProjectionService.applyAll(userEvents))
+          .join();
+
+      nextOffsets.forEach(
+          (partition, nextOffset) ->
+              replayProgress.advance(partition, nextOffset, records.getOrDefault(partition, 0)));
+      log.info(
+          "Replayed {} userEvents, {} remaining",
+          replayProgress.getReplayed(),
+          replayProgress.getRemaining());
+      exitIfFinished();
+    };
+  }
+
+  private UserEventMessage decode(byte[] payload, Map<?, ?> headers) {
+    MessageBuilder<byte[]> builder = MessageBuilder.withPayload(payload);
+    headers.forEach((name, value) -> builder.setHeader(name.toString(), value));
+    Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+    builder.setHeader(
+        MessageHeaders.CONTENT_TYPE,
+        contentType instanceof byte[] bytes
+            ? new String(bytes, StandardCharsets.UTF_8)
+            : contentType == null ? defaultContentType : contentType);
+    Message<byte[]> record = builder.build();
+    Object userEventMessage = messageConverter.fromMessage(record, UserEventMessage.class);
+    if (userEventMessage == null) {
+      throw new MessageConversionException(
+          record, "No converter for " + record.getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+    return (UserEventMessage) userEventMessage;
+  }
+
+  @Override
+  public void onPartitionsAssigned(
+      String bindingName,
+      org.apache.kafka.clients.consumer.Consumer<?, ?> consumer,
+      Collection<TopicPartition> partitions,
+      boolean initial) {
+    if (partitions.isEmpty()) {
+      return;
+    }
+    if (initial) {
+      seekToStart(consumer, partitions);
+    }
+    Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+    int partitionCount = consumer.partitionsFor(partitions.iterator().next().topic()).size();
+    for (TopicPartition partition : partitions) {
+      long position = consumer.position(partition);
+      replayProgress.start(
+          partition.partition(), position, endOffsets.get(partition), partitionCount);
+      log.info(
+          "Replaying partition {} from offset {} to {}",
+          partition,
+          position,
+          endOffsets.get(partition));
+    }
+    exitIfFinished();
+  }
+
+  private void seekToStart(
+      org.apache.kafka.clients.consumer.Consumer<?, ?> consumer,
+      Collection<TopicPartition> partitions) {
+    if (startTimestamp != null) {
+      Map<TopicPartition, OffsetAndTimestamp> offsets =
+          consumer.offsetsForTimes(
+              partitions.stream()
+                  .collect(
+                      Collectors.toMap(
+                          partition -> partition, partition -> startTimestamp.toEpochMilli())));
+      // Partitions without events at or after the timestamp have nothing to replay
+      Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+      for (TopicPartition partition : partitions) {
+        OffsetAndTimestamp offset = offsets.get(partition);
+        consumer.seek(partition, offset == null ? endOffsets.get(partition) : offset.offset());
+      }
+    } else if (startOffset != null) {
+      Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+      Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+      for (TopicPartition partition : partitions) {
+        consumer.seek(
+            partition,
+            Math.clamp(startOffset, beginningOffsets.get(partition), endOffsets.get(partition)));
+      }
+    }
+  }
+
+  private void exitIfFinished() {
+    if (!replayProgress.isFinished() || !exiting.compareAndSet(false, true)) {
+      return;
+    }
+    log.info("Replay finished, {} userEvents replayed", replayProgress.getReplayed());
+    // Closing the context stops the listener containers, which wait for this consumer thread
+    Thread.ofPlatform()
+        .name("replay-exit")
+        .start(() -> System.exit(SpringApplication.exit(applicationContext)));
+  }
+}
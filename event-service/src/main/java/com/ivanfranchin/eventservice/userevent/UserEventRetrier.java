@@ -0,0 +1,96 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retries the saving of a consumed event, so a transient Cassandra error doesn't leave its record
+ * unacknowledged. An event is saved up to {@code app.ingest.retry.max-attempts} times, waiting
+ * {@code app.ingest.retry.initial-backoff} after the first failure, twice as long after each next
+ * one, and at most {@code app.ingest.retry.max-backoff}. Saving an event again is safe: its rows
+ * are overwritten, and it is only counted once stored.
+ */
+@Slf4j
+@Component
+public class UserEventRetrier {
+
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+
+  public UserEventRetrier(
+      @Value("${app.ingest.retry.max-attempts}") int maxAttempts,
+      @Value("${app.ingest.retry.initial-backoff}") Duration initialBackoff,
+      @Value("${app.ingest.retry.max-backoff}") Duration maxBackoff) {
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+  }
+
+  /** Runs {@code save} until it succeeds or fails {@code max-attempts} times, without blocking. */
+  public <T> CompletableFuture<T> retryAsync(Supplier<CompletableFuture<T>> save) {
+    return attemptAsync(save, 1, initialBackoff);
+  }
+
+  /**
+   * Runs {@code save} until it succeeds or fails {@code max-attempts} times, sleeping between the
+   * attempts, so it is meant for virtual threads such as the user event lanes.
+   */
+  public <T> T retry(Supplier<T> save) {
+    Duration backoff = initialBackoff;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return save.get();
+      } catch (RuntimeException e) {
+        if (attempt >= maxAttempts) {
+          throw e;
+        }
+        log.warn(
+            "Saving userEvent failed, attempt {} of {}: {}", attempt, maxAttempts, e.toString());
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+        backoff = nextBackoff(backoff);
+      }
+    }
+  }
+
+  private <T> CompletableFuture<T> attemptAsync(
+      Supplier<CompletableFuture<T>> save, int attempt, Duration backoff) {
+    CompletableFuture<T> saved;
+    try {
+      saved = save.get();
+    } catch (RuntimeException e) {
+      saved = CompletableFuture.failedFuture(e);
+    }
+    return saved.exceptionallyCompose(
+        throwable -> {
+          if (attempt >= maxAttempts) {
+            return CompletableFuture.failedFuture(throwable);
+          }
+          log.warn(
+              "Saving userEvent failed, attempt {} of {}: {}",
+              attempt,
+              maxAttempts,
+              throwable.toString());
+          Executor delayed =
+              CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS);
+          return CompletableFuture.supplyAsync(() -> null, delayed)
+              .thenCompose(ignored -> attemptAsync(save, attempt + 1, nextBackoff(backoff)));
+        });
+  }
+
+  private Duration nextBackoff(Duration backoff) {
+    Duration doubled = backoff.multipliedBy(2);
+    return doubled.compareTo(maxBackoff) > 0 ? maxBackoff : doubled;
+  }
+}
@@ -1,11 +1,30 @@
 package com.ivanfranchin.eventservice.userevent;
 
+import com.ivanfranchin.eventservice.userevent.UserEventMetrics.Outcome;
+import com.ivanfranchin.eventservice.userevent.exception.InvalidUserEventQueryException;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
 import com.ivanfranchin.eventservice.userevent.model.UserEvent;
 import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserEventPage;
 import com.ivanfranchin.userservice.messages.UserEventMessage;
+import io.micrometer.core.instrument.Timer;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
@@ -13,25 +32,284 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserEventService {
 
+  private static final Date MIN_DATETIME = new Date(0);
+  private static final Date MAX_DATETIME = new Date(Long.MAX_VALUE);
+
   private final UserEventRepository userEventRepository;
+  private final UserEventWriter userEventWriter;
+  private final BucketedUserEventReader bucketedUserEventReader;
+  private final UserEventDeduplicator userEventDeduplicator;
+  private final UserProjectionService userProjectionService;
+  private final UserEventSummaryService userEventSummaryService;
+  private final UserEventMetrics userEventMetrics;
+
+  @Value("${app.events.time-bucket}")
+  private TimeBucket timeBucket;
+
+  @Value("${app.events.default-limit}")
+  private int defaultLimit;
+
+  @Value("${app.events.max-limit}")
+  private int maxLimit;
+
+  @Value("${app.events.stream-fetch-size}")
+  private int streamFetchSize;
+
+  /**
+   * Reads one page of the user's events with {@code datetime} between {@code from} and {@code to}
+   * (both inclusive and optional). Only {@code limit} rows are fetched from Cassandra; the next
+   * page is resumed from the driver paging state carried by {@code pageToken}. A token is only
+   * valid for the same user, bounds and direction it was issued for.
+   *
+   * <p>When {@code app.events.time-bucket} is set, the read is delegated to {@link
+   * BucketedUserEventReader}, which fans out over the user's buckets in the range.
+   */
+  public UserEventPage getUserEvents(
+      Long id,
+      Instant from,
+      Instant to,
+      Sort.Direction direction,
+      Integer limit,
+      String pageToken) {
+    int pageSize = limit == null ? defaultLimit : Math.clamp(limit, 1, maxLimit);
+    if (timeBucket != TimeBucket.NONE) {
+      return bucketedUserEventReader.getUserEvents(
+          id, fromDatetime(from), toDatetime(to), direction, pageSize, pageToken);
+    }
+
+    CassandraPageRequest pageRequest = CassandraPageRequest.first(pageSize, byDatetime(direction));
+    if (pageToken != null) {
+      pageRequest = CassandraPageRequest.of(pageRequest, decodePageToken(pageToken));
+    }
+
+    Slice<UserEvent> slice;
+    try {
+      slice =
+          userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(
+              id, fromDatetime(from), toDatetime(to), pageRequest);
+    } catch (InvalidDataAccessApiUsageException e) {
+      if (pageToken == null) {
+        throw e;
+      }
+      throw new InvalidUserEventQueryException("The page token doesn't match this query.", e);
+    }
 
-  public List<UserEvent> getUserEvents(Long id) {
-    return userEventRepository.findByKeyUserId(id);
+    String nextPageToken = null;
+    if (slice.hasNext()) {
+      nextPageToken =
+          encodePageToken(((CassandraPageRequest) slice.nextPageable()).getPagingState());
+    }
+    return new UserEventPage(slice.getContent(), nextPageToken);
+  }
+
+  /**
+   * Reads all the user's events with {@code datetime} between {@code from} and {@code to}, fetching
+   * {@code app.events.stream-fetch-size} rows at a time. Each page is handed to {@code
+   * pageConsumer} before the next one is fetched, so only one page is held in memory.
+   */
+  public void forEachUserEventPage(
+      Long id,
+      Instant from,
+      Instant to,
+      Sort.Direction direction,
+      Consumer<List<UserEvent>> pageConsumer) {
+    if (timeBucket != TimeBucket.NONE) {
+      String pageToken = null;
+      do {
+        UserEventPage userEventPage =
+            bucketedUserEventReader.getUserEvents(
+                id, fromDatetime(from), toDatetime(to), direction, streamFetchSize, pageToken);
+        pageConsumer.accept(userEventPage.userEvents());
+        pageToken = userEventPage.nextPageToken();
+      } while (pageToken != null);
+      return;
+    }
+
+    Pageable pageable = CassandraPageRequest.first(streamFetchSize, byDatetime(direction));
+    Slice<UserEvent> slice;
+    do {
+      slice =
+          userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(
+              id, fromDatetime(from), toDatetime(to), pageable);
+      pageConsumer.accept(slice.getContent());
+      pageable = slice.nextPageable();
+    } while (slice.hasNext());
   }
 
   public UserEvent saveUserEvent(UserEvent userEvent) {
     return userEventRepository.save(userEvent);
   }
 
-  public UserEvent saveUserEvent(Message<UserEventMessage> message) {
+  /**
+   * Saves the event, unless it was already stored, applies it to the user's projection and counts
+   * it. Returns the event saved, or an empty optional when it was dropped as a duplicate.
+   *
+   * <p>Duplicates are still applied to the projection, which is idempotent, in case the event was
+   * stored but its projection update failed. Counter increments are not idempotent, so the event is
+   * only counted once it is stored: when its write fails, the redelivered event is counted then.
+   */
+  public Optional<UserEvent> saveUserEvent(Message<UserEventMessage> message) {
+    UserEventMessage payload = message.getPayload();
+    Integer partition = partitionOf(message);
+    UserEvent userEvent = toUserEvent(payload);
+    if (userEventDeduplicator.isDuplicate(partition, userEvent).join()) {
+      userProjectionService.apply(userEvent).join();
+      userEventMetrics.countConsumed(partition, payload, Outcome.DUPLICATE);
+      return Optional.empty();
+    }
+    Timer.Sample sample = userEventMetrics.startWrite();
+    try {
+      CompletableFuture<Void> projected = userProjectionService.apply(userEvent);
+      if (timeBucket != TimeBucket.NONE) {
+        userEventWriter.write(userEvent).join();
+      } else {
+        userEvent = saveUserEvent(userEvent);
+      }
+      CompletableFuture.allOf(projected, userEventSummaryService.count(userEvent)).join();
+    } catch (RuntimeException e) {
+      userEventMetrics.countConsumed(partition, payload, Outcome.FAILED);
+      throw e;
+    } finally {
+      userEventMetrics.stopWrite(sample, "single", UserEventMetrics.tagOf(partition));
+    }
+    userEventMetrics.countConsumed(partition, payload, Outcome.SAVED);
+    return Optional.of(userEvent);
+  }
+
+  /**
+   * Saves the event asynchronously, unless it was already stored, applies it to the user's
+   * projection and counts it once it is stored. The returned future completes when all of them are
+   * durable, with {@code false} when the event was dropped as a duplicate.
+   */
+  public CompletableFuture<Boolean> saveUserEventAsync(Message<UserEventMessage> message) {
     UserEventMessage payload = message.getPayload();
+    Integer partition = partitionOf(message);
+    UserEvent userEvent = toUserEvent(payload);
+    CompletableFuture<Void> projected = userProjectionService.apply(userEvent);
+    return userEventDeduplicator
+        .isDuplicate(partition, userEvent)
+        .thenCompose(
+            duplicate -> {
+              if (duplicate) {
+                userEventMetrics.countConsumed(partition, payload, Outcome.DUPLICATE);
+                return projected.thenApply(result -> false);
+              }
+              Timer.Sample sample = userEventMetrics.startWrite();
+              CompletableFuture<Void> countedOnceWritten =
+                  userEventWriter
+                      .write(userEvent)
+                      .thenCompose(result -> userEventSummaryService.count(userEvent));
+              return CompletableFuture.allOf(countedOnceWritten, projected)
+                  .whenComplete(
+                      (result, throwable) -> {
+                        userEventMetrics.stopWrite(
+                            sample, "async", UserEventMetrics.tagOf(partition));
+                        userEventMetrics.countConsumed(
+                            partition, payload, throwable == null ? Outcome.SAVED : Outcome.FAILED);
+                      })
+                  .thenApply(result -> true);
+            });
+  }
+
+  /**
+   * Saves the events that were not already stored and counts them once they are all written,
+   * applies all of them to the users' projections, and only returns once everything is durable in
+   * Cassandra. Returns the payloads of the events saved.
+   */
+  public List<UserEventMessage> saveUserEvents(Message<List<UserEventMessage>> message) {
+    List<UserEventMessage> payloads = message.getPayload();
+    List<?> partitions = message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, List.class);
+    List<UserEventMessage> saved = new ArrayList<>(payloads.size());
+    List<Integer> savedPartitions = new ArrayList<>(payloads.size());
+    List<UserEvent> userEvents = new ArrayList<>(payloads.size());
+    List<UserEvent> consumed = new ArrayList<>(payloads.size());
+    List<CompletableFuture<Boolean>> duplicates = new ArrayList<>(payloads.size());
+    for (int i = 0; i < payloads.size(); i++) {
+      UserEvent userEvent = toUserEvent(payloads.get(i));
+      consumed.add(userEvent);
+      duplicates.add(userEventDeduplicator.isDuplicate(partitionOf(partitions, i), userEvent));
+    }
+    // The duplicates are looked up concurrently, then the events are sorted out in order
+    for (int i = 0; i < payloads.size(); i++) {
+      UserEvent userEvent = consumed.get(i);
+      Integer partition = partitionOf(partitions, i);
+      if (duplicates.get(i).join()) {
+        userEventMetrics.countConsumed(partition, payloads.get(i), Outcome.DUPLICATE);
+      } else {
+        saved.add(payloads.get(i));
+        savedPartitions.add(partition);
+        userEvents.add(userEvent);
+      }
+    }
+    Timer.Sample sample = userEventMetrics.startWrite();
+    Outcome outcome = Outcome.FAILED;
+    try {
+      CompletableFuture.allOf(
+              userEventWriter
+                  .writeAll(userEvents)
+                  .thenCompose(result -> userEventSummaryService.countAll(userEvents)),
+              userProjectionService.applyAll(consumed))
+          .join();
+      outcome = Outcome.SAVED;
+    } finally {
+      userEventMetrics.stopWrite(sample, "batch", UserEventMetrics.ALL_PARTITIONS);
+      for (int i = 0; i < saved.size(); i++) {
+        userEventMetrics.countConsumed(savedPartitions.get(i), saved.get(i), outcome);
+      }
+    }
+    return saved;
+  }
+
+  /**
+   * Maps a consumed message to the event stored for it. Events without version, sent before it
+   * existed, are stored with version 0.
+   */
+  public static UserEvent toUserEvent(UserEventMessage payload) {
     UserEvent userEvent = new UserEvent();
-    userEvent.setKey(new UserEventKey(payload.getUserId(), new Date(payload.getEventTimestamp())));
-    userEvent.setType(payload.getEventType().toString());
-    CharSequence userJson = payload.getUserJson();
-    if (userJson != null) {
-      userEvent.setData(userJson.toString());
+    userEvent.setEventId(payload.getEventId());
+    Long version = payload.getVersion() == null ? 0L : payload.getVersion();
+    userEvent.setKey(
+        new UserEventKey(payload.getUserId(), new Date(payload.getEventTimestamp()), version));
+    userEvent.setType(payload.getEventType().name());
+    userEvent.setEmail(payload.getEmail());
+    userEvent.setFullName(payload.getFullName());
+    userEvent.setActive(payload.getActive());
+    userEvent.setData(payload.getUserJson());
+    return userEvent;
+  }
+
+  private static Integer partitionOf(Message<?> message) {
+    return message.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, Integer.class);
+  }
+
+  private static Integer partitionOf(List<?> partitions, int index) {
+    return partitions == null ? null : (Integer) partitions.get(index);
+  }
+
+  private static Sort byDatetime(Sort.Direction direction) {
+    return Sort.by(direction, "key.datetime");
+  }
+
+  private static Date fromDatetime(Instant from) {
+    return from == null ? MIN_DATETIME : Date.from(from);
+  }
+
+  private static Date toDatetime(Instant to) {
+    return to == null ? MAX_DATETIME : Date.from(to);
+  }
+
+  private static String encodePageToken(ByteBuffer pagingState) {
+    ByteBuffer buffer = pagingState.duplicate();
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private static ByteBuffer decodePageToken(String pageToken) {
+    try {
+      return ByteBuffer.wrap(Base64.getUrlDecoder().decode(pageToken));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidUserEventQueryException("The page token is malformed.", e);
     }
-    return saveUserEvent(userEvent);
   }
 }
@@ -0,0 +1,153 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventSummary;
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Serves the summary of a user's events, its latest event and how many events of each type it has,
+ * without reading the user's events. The latest event is kept in the {@code user_state} projection,
+ * see {@link UserProjectionService}; the counts are {@code user_event_counts} counters, incremented
+ * as the events are saved. A summary is therefore two single-partition reads, made concurrently.
+ *
+ * <p>Unlike the other writes, counter increments are not idempotent. They are only made for the
+ * events that are not dropped as duplicates, once the event is stored, so a failed write that is
+ * redelivered is not counted twice. An event is still counted again when it is redelivered after
+ * the deduplicator forgot it, as after a restart before its offset was committed, and an event
+ * whose increment fails is not counted when redelivered, as it is then a duplicate. The {@code
+ * replay} profile doesn't count the events it writes again.
+ *
+ * <p>Like {@link UserEventWriter}, the increments in flight are capped by {@code
+ * app.ingest.max-in-flight}. They are chained on the driver's threads once the events are written,
+ * and those must not block, so an increment that finds the window full waits for it on a virtual
+ * thread.
+ */
+@Service
+public class UserEventSummaryService {
+
+  private static final String INCREMENT_COUNT =
+      "UPDATE user_event_counts SET count = count + ? WHERE userId = ? AND type = ?";
+  private static final String SELECT_COUNTS =
+      "SELECT type, count FROM user_event_counts WHERE userId = ?";
+
+  private final CqlSession session;
+  private final UserProjectionRepository userProjectionRepository;
+  private final Supplier<PreparedStatement> incrementCount;
+  private final Supplier<PreparedStatement> selectCounts;
+  private final Semaphore inFlight;
+  private final Executor inFlightWaiters = Executors.newVirtualThreadPerTaskExecutor();
+
+  public UserEventSummaryService(
+      CqlSession session,
+      UserProjectionRepository userProjectionRepository,
+      @Value("${app.ingest.max-in-flight}") int maxInFlight) {
+    this.session = session;
+    this.userProjectionRepository = userProjectionRepository;
+    this.incrementCount = SingletonSupplier.of(() -> session.prepare(INCREMENT_COUNT));
+    this.selectCounts = SingletonSupplier.of(() -> session.prepare(SELECT_COUNTS));
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  public UserEventSummary getUserEventSummary(Long id) {
+    CompletableFuture<Map<String, Long>> counts =
+        session
+            .executeAsync(selectCounts.get().bind(id))
+            .thenApply(UserEventSummaryService::countsOf)
+            .toCompletableFuture();
+    Optional<UserProjection> userProjection = userProjectionRepository.findById(id);
+    Map<String, Long> countsByType = counts.join();
+    if (userProjection.isEmpty() && countsByType.isEmpty()) {
+      throw new UserStateNotFoundException(String.format("User with id '%s' has no events", id));
+    }
+    return new UserEventSummary(
+        id,
+        userProjection.map(UserProjection::getLastEventId).orElse(null),
+        userProjection.map(UserProjection::getLastType).orElse(null),
+        userProjection.map(UserProjection::getUpdatedAt).orElse(null),
+        userProjection.map(UserProjection::getVersion).orElse(null),
+        countsByType);
+  }
+
+  /**
+   * Counts the events, grouped by user into a counter batch each. The returned future completes
+   * when every batch is acknowledged.
+   */
+  public CompletableFuture<Void> countAll(List<UserEvent> userEvents) {
+    Map<Long, Map<String, Long>> countsByUserId = new LinkedHashMap<>();
+    for (UserEvent userEvent : userEvents) {
+      countsByUserId
+          .computeIfAbsent(userEvent.getKey().getUserId(), userId -> new LinkedHashMap<>())
+          .merge(userEvent.getType(), 1L, Long::sum);
+    }
+
+    List<CompletableFuture<?>> futures = new ArrayList<>(countsByUserId.size());
+    countsByUserId.forEach(
+        (userId, counts) -> {
+          BatchStatementBuilder builder = BatchStatement.builder(BatchType.COUNTER);
+          counts.forEach(
+              (type, count) ->
+                  builder.addStatement(incrementCount.get().bind(count, userId, type)));
+          futures.add(execute(builder.build()));
+        });
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+  }
+
+  /** Counts a single event. The returned future completes when Cassandra acknowledges it. */
+  public CompletableFuture<Void> count(UserEvent userEvent) {
+    return execute(
+        incrementCount.get().bind(1L, userEvent.getKey().getUserId(), userEvent.getType()));
+  }
+
+  private CompletableFuture<Void> execute(Statement<?> statement) {
+    if (inFlight.tryAcquire()) {
+      return executeAcquired(statement);
+    }
+    return CompletableFuture.runAsync(inFlight::acquireUninterruptibly, inFlightWaiters)
+        .thenCompose(result -> executeAcquired(statement));
+  }
+
+  private CompletableFuture<Void> executeAcquired(Statement<?> statement) {
+    try {
+      return session
+          .executeAsync(statement)
+          .toCompletableFuture()
+          .<Void>thenApply(resultSet -> null)
+          .whenComplete((result, throwable) -> inFlight.release());
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+
+  // A user has a row per event type, so they all fit in the first page
+  private static Map<String, Long> countsOf(AsyncResultSet resultSet) {
+    Map<String, Long> counts = new TreeMap<>();
+    for (Row row : resultSet.currentPage()) {
+      counts.put(row.getString("type"), row.getLong("count"));
+    }
+    return counts;
+  }
+}
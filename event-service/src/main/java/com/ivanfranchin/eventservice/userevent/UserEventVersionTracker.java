@@ -0,0 +1,67 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks the last version received of each user, so missing and duplicated events are detected with
+ * an in-memory comparison as they arrive. Events of a user share a partition, so they are received
+ * in version order. Duplicates are expected after a redelivery and are harmless, as writing an
+ * event again overwrites the same row.
+ *
+ * <p>Only the users seen since the service started are tracked, up to {@code
+ * app.ingest.version-tracker.max-users}; the least used ones are forgotten beyond that. So the
+ * first event of each user after a restart, or after being forgotten, is accepted as is.
+ */
+@Slf4j
+@Component
+public class UserEventVersionTracker {
+
+  public enum Result {
+    IN_ORDER,
+    GAP,
+    DUPLICATE,
+    UNVERSIONED
+  }
+
+  private final Cache<Long, Long> lastVersionByUserId;
+
+  public UserEventVersionTracker(@Value("${app.ingest.version-tracker.max-users}") long maxUsers) {
+    // Evicts on the calling thread, so the size is bounded as soon as a user is added
+    this.lastVersionByUserId =
+        Caffeine.newBuilder().maximumSize(maxUsers).executor(Runnable::run).build();
+  }
+
+  public Result track(UserEventMessage payload) {
+    Long userId = payload.getUserId();
+    Long version = payload.getVersion();
+    if (version == null) {
+      return Result.UNVERSIONED;
+    }
+    Long lastVersion = lastVersionByUserId.getIfPresent(userId);
+    if (lastVersion != null && version <= lastVersion) {
+      log.info(
+          "Duplicate event of user {}: version {}, last seen {}", userId, version, lastVersion);
+      return Result.DUPLICATE;
+    }
+    lastVersionByUserId.put(userId, version);
+    if (lastVersion != null && version > lastVersion + 1) {
+      log.warn(
+          "Missing events of user {}: versions {} to {} were not received",
+          userId,
+          lastVersion + 1,
+          version - 1);
+      return Result.GAP;
+    }
+    return Result.IN_ORDER;
+  }
+
+  long trackedUsers() {
+    lastVersionByUserId.cleanUp();
+    return lastVersionByUserId.estimatedSize();
+  }
+}
@@ -0,0 +1,189 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Writes user events to Cassandra with a cached prepared statement and {@code executeAsync}. The
+ * statement is prepared on first use, so it is not prepared before the keyspace populator has
+ * created the table.
+ *
+ * <p>When {@code app.events.time-bucket} is set, events are written to {@code
+ * user_events_by_bucket}, partitioned by {@code (userId, bucket)}, and the bucket is recorded in
+ * {@code user_event_buckets} so readers know which partitions a user has.
+ *
+ * <p>The number of requests in flight is capped by {@code app.ingest.max-in-flight}. When the
+ * window is full, the calling thread blocks until a request completes, which pushes back on the
+ * consumer instead of queueing an unbounded number of writes in the driver.
+ */
+@Component
+public class UserEventWriter {
+
+  private static final String INSERT_USER_EVENT =
+      "INSERT INTO user_events"
+          + " (userId, datetime, version, eventId, type, email, fullName, active, data)"
+          + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_USER_EVENT_BY_BUCKET =
+      "INSERT INTO user_events_by_bucket"
+          + " (userId, bucket, datetime, version, eventId, type, email, fullName, active, data)"
+          + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_USER_EVENT_BUCKET =
+      "INSERT INTO user_event_buckets (userId, bucket) VALUES (?, ?)";
+
+  private final CqlSession session;
+  private final Supplier<PreparedStatement> insertUserEvent;
+  private final Supplier<PreparedStatement> insertUserEventBucket;
+  private final TimeBucket timeBucket;
+  private final int maxBatchStatements;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+
+  public UserEventWriter(
+      CqlSession session,
+      @Value("${app.ingest.max-batch-statements}") int maxBatchStatements,
+      @Value("${app.ingest.max-in-flight}") int maxInFlight,
+      @Value("${app.events.time-bucket}") TimeBucket timeBucket) {
+    this.session = session;
+    this.insertUserEvent =
+        SingletonSupplier.of(
+            () ->
+                session.prepare(
+                    timeBucket == TimeBucket.NONE
+                        ? INSERT_USER_EVENT
+                        : INSERT_USER_EVENT_BY_BUCKET));
+    this.insertUserEventBucket =
+        SingletonSupplier.of(() -> session.prepare(INSERT_USER_EVENT_BUCKET));
+    this.timeBucket = timeBucket;
+    this.maxBatchStatements = maxBatchStatements;
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /** Writes a single event. The returned future completes when Cassandra acknowledges it. */
+  public CompletableFuture<Void> write(UserEvent userEvent) {
+    if (timeBucket == TimeBucket.NONE) {
+      return execute(bind(userEvent));
+    }
+    UserEventKey key = userEvent.getKey();
+    return CompletableFuture.allOf(
+        execute(bindBucket(key.getUserId(), bucketOf(key))), execute(bind(userEvent)));
+  }
+
+  /**
+   * Groups the events by partition ({@code userId}, plus the bucket when bucketing) and writes each
+   * group as an unlogged batch, so every batch is applied by a single replica set. Groups larger
+   * than {@code app.ingest.max-batch-statements} are split to stay below Cassandra's batch size
+   * thresholds. The batches are sent concurrently, within the in-flight window; the returned future
+   * completes when every one of them is acknowledged.
+   */
+  public CompletableFuture<Void> writeAll(List<UserEvent> userEvents) {
+    Map<PartitionKey, List<UserEvent>> userEventsByPartition = new LinkedHashMap<>();
+    for (UserEvent userEvent : userEvents) {
+      UserEventKey key = userEvent.getKey();
+      userEventsByPartition
+          .computeIfAbsent(
+              new PartitionKey(key.getUserId(), bucketOf(key)), partitionKey -> new ArrayList<>())
+          .add(userEvent);
+    }
+
+    List<CompletableFuture<?>> futures = new ArrayList<>();
+    for (Map.Entry<PartitionKey, List<UserEvent>> entry : userEventsByPartition.entrySet()) {
+      if (timeBucket != TimeBucket.NONE) {
+        PartitionKey partitionKey = entry.getKey();
+        futures.add(execute(bindBucket(partitionKey.userId(), partitionKey.bucket())));
+      }
+      List<UserEvent> partition = entry.getValue();
+      for (int from = 0; from < partition.size(); from += maxBatchStatements) {
+        List<UserEvent> chunk =
+            partition.subList(from, Math.min(from + maxBatchStatements, partition.size()));
+        futures.add(execute(toBatchStatement(chunk)));
+      }
+    }
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+  }
+
+  public int getInFlightWrites() {
+    return maxInFlight - inFlight.availablePermits();
+  }
+
+  private CompletableFuture<Void> execute(Statement<?> statement) {
+    inFlight.acquireUninterruptibly();
+    try {
+      return session
+          .executeAsync(statement)
+          .toCompletableFuture()
+          .<Void>thenApply(resultSet -> null)
+          .whenComplete((result, throwable) -> inFlight.release());
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+
+  private BatchStatement toBatchStatement(List<UserEvent> userEvents) {
+    BatchStatementBuilder builder = BatchStatement.builder(BatchType.UNLOGGED);
+    for (UserEvent userEvent : userEvents) {
+      builder.addStatement(bind(userEvent));
+    }
+    return builder.build();
+  }
+
+  private BoundStatement bind(UserEvent userEvent) {
+    UserEventKey key = userEvent.getKey();
+    if (timeBucket == TimeBucket.NONE) {
+      return insertUserEvent
+          .get()
+          .bind(
+              key.getUserId(),
+              key.getDatetime().toInstant(),
+              key.getVersion(),
+              userEvent.getEventId(),
+              userEvent.getType(),
+              userEvent.getEmail(),
+              userEvent.getFullName(),
+              userEvent.getActive(),
+              userEvent.getData());
+    }
+    return insertUserEvent
+        .get()
+        .bind(
+            key.getUserId(),
+            bucketOf(key),
+            key.getDatetime().toInstant(),
+            key.getVersion(),
+            userEvent.getEventId(),
+            userEvent.getType(),
+            userEvent.getEmail(),
+            userEvent.getFullName(),
+            userEvent.getActive(),
+            userEvent.getData());
+  }
+
+  private BoundStatement bindBucket(Long userId, long bucket) {
+    return insertUserEventBucket.get().bind(userId, bucket);
+  }
+
+  private long bucketOf(UserEventKey key) {
+    return timeBucket.of(key.getDatetime().toInstant());
+  }
+
+  private record PartitionKey(Long userId, long bucket) {}
+}
@@ -0,0 +1,8 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserProjectionRepository extends CassandraRepository<UserProjection, Long> {}
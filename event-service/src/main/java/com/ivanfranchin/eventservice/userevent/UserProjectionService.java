@@ -0,0 +1,186 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.UserStateService.UserData;
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import com.ivanfranchin.userservice.messages.EventType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.function.SingletonSupplier;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps the {@code user_state} table, the current state of every user, up to date with the events
+ * consumed, so it can be read without replaying the event log.
+ *
+ * <p>Each event is applied with an {@code UPDATE} of the fields it carries, written {@code USING
+ * TIMESTAMP} its position in the user's history, see {@link #writeTimestampOf}. Cassandra keeps the
+ * value with the highest timestamp of each field, so applying an event again, or after a later one,
+ * leaves the row as it was. Events are therefore applied as they are consumed, duplicates included,
+ * without reading the row first.
+ *
+ * <p>Like {@link UserEventWriter}, the requests in flight are capped by {@code
+ * app.ingest.max-in-flight}.
+ */
+@Service
+public class UserProjectionService {
+
+  private static final String UPDATE_USER_STATE =
+      "UPDATE user_state USING TIMESTAMP :writeTimestamp"
+          + " SET email = :email, fullName = :fullName, active = :active, deleted = :deleted,"
+          + " version = :version, createdAt = :createdAt, updatedAt = :updatedAt,"
+          + " lastEventId = :lastEventId, lastType = :lastType"
+          + " WHERE userId = :userId";
+
+  // Datetimes take the low 43 bits, enough for epoch milliseconds until the year 2248
+  private static final int VERSION_SHIFT = 43;
+  private static final long MAX_VERSION = (1L << (Long.SIZE - 1 - VERSION_SHIFT)) - 1;
+
+  private final CqlSession session;
+  private final UserProjectionRepository userProjectionRepository;
+  private final ObjectMapper objectMapper;
+  private final Supplier<PreparedStatement> updateUserState;
+  private final int maxBatchStatements;
+  private final Semaphore inFlight;
+
+  public UserProjectionService(
+      CqlSession session,
+      UserProjectionRepository userProjectionRepository,
+      ObjectMapper objectMapper,
+      @Value("${app.ingest.max-batch-statements}") int maxBatchStatements,
+      @Value("${app.ingest.max-in-flight}") int maxInFlight) {
+    this.session = session;
+    this.userProjectionRepository = userProjectionRepository;
+    this.objectMapper = objectMapper;
+    this.updateUserState = SingletonSupplier.of(() -> session.prepare(UPDATE_USER_STATE));
+    this.maxBatchStatements = maxBatchStatements;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Returns the current state of the user. Users that were deleted, or whose {@code CREATED} event
+   * was not consumed yet, are not found.
+   */
+  public UserProjection getUser(Long id) {
+    return userProjectionRepository
+        .findById(id)
+        .filter(user -> user.getCreatedAt() != null && !Boolean.TRUE.equals(user.getDeleted()))
+        .orElseThrow(
+            () -> new UserStateNotFoundException(String.format("User with id '%s' not found", id)));
+  }
+
+  /** Applies a single event. The returned future completes when Cassandra acknowledges it. */
+  public CompletableFuture<Void> apply(UserEvent userEvent) {
+    return execute(bind(userEvent));
+  }
+
+  /**
+   * Groups the events by user and applies each group as an unlogged batch, which Cassandra merges
+   * into a single mutation of the user's row. The returned future completes when every batch is
+   * acknowledged.
+   */
+  public CompletableFuture<Void> applyAll(List<UserEvent> userEvents) {
+    Map<Long, List<UserEvent>> userEventsByUserId = new LinkedHashMap<>();
+    for (UserEvent userEvent : userEvents) {
+      userEventsByUserId
+          .computeIfAbsent(userEvent.getKey().getUserId(), userId -> new ArrayList<>())
+          .add(userEvent);
+    }
+
+    List<CompletableFuture<?>> futures = new ArrayList<>();
+    for (List<UserEvent> user : userEventsByUserId.values()) {
+      for (int from = 0; from < user.size(); from += maxBatchStatements) {
+        BatchStatementBuilder builder = BatchStatement.builder(BatchType.UNLOGGED);
+        for (UserEvent userEvent :
+            user.subList(from, Math.min(from + maxBatchStatements, user.size()))) {
+          builder.addStatement(bind(userEvent));
+        }
+        futures.add(execute(builder.build()));
+      }
+    }
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+  }
+
+  /**
+   * Orders the events of a user by version, then by datetime, as the events sent before versions
+   * all have version 0. Versions above {@code MAX_VERSION}, about a million updates, are ordered by
+   * datetime only.
+   */
+  static long writeTimestampOf(UserEventKey key) {
+    return (Math.min(key.getVersion(), MAX_VERSION) << VERSION_SHIFT) + key.getDatetime().getTime();
+  }
+
+  // Fields left unset are not written, so they keep the value of the event that last set them
+  private BoundStatement bind(UserEvent userEvent) {
+    UserEventKey key = userEvent.getKey();
+    BoundStatementBuilder builder =
+        updateUserState
+            .get()
+            .boundStatementBuilder()
+            .setLong("writeTimestamp", writeTimestampOf(key))
+            .setLong("userId", key.getUserId())
+            .setLong("version", key.getVersion())
+            .setInstant("updatedAt", key.getDatetime().toInstant())
+            .setString("lastType", userEvent.getType());
+    if (userEvent.getEventId() != null) {
+      builder.setString("lastEventId", userEvent.getEventId());
+    }
+    EventType eventType = EventType.valueOf(userEvent.getType());
+    if (eventType == EventType.DELETED) {
+      return builder.setBoolean("deleted", true).build();
+    }
+    if (eventType == EventType.CREATED) {
+      builder.setInstant("createdAt", key.getDatetime().toInstant());
+    }
+    UserData userData = userDataOf(userEvent);
+    if (userData.email() != null) {
+      builder.setString("email", userData.email());
+    }
+    if (userData.fullName() != null) {
+      builder.setString("fullName", userData.fullName());
+    }
+    if (userData.active() != null) {
+      builder.setBoolean("active", userData.active());
+    }
+    return builder.build();
+  }
+
+  // Events sent before the typed fields existed only carry the changed fields as JSON
+  private UserData userDataOf(UserEvent userEvent) {
+    if (userEvent.getData() != null) {
+      return objectMapper.readValue(userEvent.getData(), UserData.class);
+    }
+    return new UserData(userEvent.getEmail(), userEvent.getFullName(), userEvent.getActive());
+  }
+
+  private CompletableFuture<Void> execute(Statement<?> statement) {
+    inFlight.acquireUninterruptibly();
+    try {
+      return session
+          .executeAsync(statement)
+          .toCompletableFuture()
+          .<Void>thenApply(resultSet -> null)
+          .whenComplete((result, throwable) -> inFlight.release());
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+}
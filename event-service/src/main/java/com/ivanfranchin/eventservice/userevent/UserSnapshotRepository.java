@@ -0,0 +1,15 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.ivanfranchin.eventservice.userevent.model.UserSnapshot;
+import com.ivanfranchin.eventservice.userevent.model.UserSnapshotKey;
+import java.util.Date;
+import java.util.Optional;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserSnapshotRepository extends CassandraRepository<UserSnapshot, UserSnapshotKey> {
+
+  /** Snapshots are clustered by {@code datetime} descending, so the first one is the latest. */
+  Optional<UserSnapshot> findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(Long id, Date datetime);
+}
@@ -0,0 +1,181 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserSnapshot;
+import com.ivanfranchin.eventservice.userevent.model.UserState;
+import com.ivanfranchin.userservice.messages.EventType;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Rebuilds user state from the event log. The latest snapshot before the requested time is loaded
+ * and only the events after it are replayed, so the cost doesn't grow with the user's history.
+ *
+ * <p>A snapshot is taken once a user has {@code app.snapshots.every-events} new events, or once the
+ * new events span {@code app.snapshots.every-duration}. Snapshots are taken on a background thread,
+ * {@code app.snapshots.delay} after the triggering event is durable; the delay lets earlier writes
+ * still in flight complete first when events are written asynchronously.
+ */
+@Slf4j
+@Service
+public class UserStateService {
+
+  private final UserSnapshotRepository userSnapshotRepository;
+  private final UserEventService userEventService;
+  private final ObjectMapper objectMapper;
+  private final int everyEvents;
+  private final Duration everyDuration;
+  private final Duration delay;
+  private final Map<Long, PendingEvents> pendingEventsByUserId = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService snapshotExecutor =
+      Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("user-snapshot").daemon().factory());
+
+  public UserStateService(
+      UserSnapshotRepository userSnapshotRepository,
+      UserEventService userEventService,
+      ObjectMapper objectMapper,
+      @Value("${app.snapshots.every-events}") int everyEvents,
+      @Value("${app.snapshots.every-duration}") Duration everyDuration,
+      @Value("${app.snapshots.delay}") Duration delay) {
+    this.userSnapshotRepository = userSnapshotRepository;
+    this.userEventService = userEventService;
+    this.objectMapper = objectMapper;
+    this.everyEvents = everyEvents;
+    this.everyDuration = everyDuration;
+    this.delay = delay;
+  }
+
+  /** Returns the state of the user with all the events up to {@code asOf} (inclusive) applied. */
+  public UserState getUserState(Long id, Instant asOf) {
+    Optional<UserSnapshot> userSnapshot =
+        userSnapshotRepository.findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(id, Date.from(asOf));
+    AtomicReference<UserState> userState =
+        new AtomicReference<>(
+            userSnapshot.map(UserSnapshot::toUserState).orElseGet(() -> UserState.empty(id)));
+    // Other events may share the snapshot's millisecond, so the replay starts at it and skips the
+    // events the snapshot already includes
+    Instant from =
+        userSnapshot.map(snapshot -> snapshot.getKey().getDatetime().toInstant()).orElse(null);
+
+    userEventService.forEachUserEventPage(
+        id,
+        from,
+        asOf,
+        Sort.Direction.ASC,
+        userEvents -> {
+          for (UserEvent userEvent : userEvents) {
+            if (userState.get().precedes(userEvent.getKey())) {
+              userState.set(apply(userState.get(), userEvent));
+            }
+          }
+        });
+
+    if (userState.get().datetime() == null) {
+      throw new UserStateNotFoundException(
+          String.format("User with id '%s' has no events up to %s", id, asOf));
+    }
+    return userState.get();
+  }
+
+  /**
+   * Counts an event that is now durable in Cassandra and schedules a snapshot of the user when the
+   * thresholds are reached. It never throws, so it doesn't interfere with event consumption.
+   */
+  public void recordUserEvent(Long userId, Instant datetime) {
+    PendingEvents pendingEvents =
+        pendingEventsByUserId.merge(userId, new PendingEvents(1, datetime), PendingEvents::add);
+    if (pendingEvents.count() >= everyEvents
+        || Duration.between(pendingEvents.first(), datetime).compareTo(everyDuration) >= 0) {
+      pendingEventsByUserId.remove(userId);
+      snapshotExecutor.schedule(
+          () -> takeSnapshot(userId, datetime), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void takeSnapshot(Long userId, Instant asOf) {
+    try {
+      UserState userState = getUserState(userId, asOf);
+      userSnapshotRepository.save(new UserSnapshot(userState));
+      log.debug("Snapshot of user {} taken as of {}", userId, userState.datetime());
+    } catch (Exception e) {
+      log.warn("An error occurred while taking a snapshot of user {}", userId, e);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    snapshotExecutor.shutdownNow();
+  }
+
+  private UserState apply(UserState userState, UserEvent userEvent) {
+    Date datetime = userEvent.getKey().getDatetime();
+    Long version = userEvent.getKey().getVersion();
+    return switch (EventType.valueOf(userEvent.getType())) {
+      case CREATED -> {
+        UserData userData = userDataOf(userEvent);
+        yield new UserState(
+            userState.userId(),
+            userData.email(),
+            userData.fullName(),
+            userData.active(),
+            false,
+            datetime,
+            version);
+      }
+      case UPDATED -> {
+        UserData userData = userDataOf(userEvent);
+        yield new UserState(
+            userState.userId(),
+            userData.email() != null ? userData.email() : userState.email(),
+            userData.fullName() != null ? userData.fullName() : userState.fullName(),
+            userData.active() != null ? userData.active() : userState.active(),
+            userState.deleted(),
+            datetime,
+            version);
+      }
+      case DELETED ->
+          new UserState(
+              userState.userId(),
+              userState.email(),
+              userState.fullName(),
+              userState.active(),
+              true,
+              datetime,
+              version);
+    };
+  }
+
+  // Events sent before the typed fields existed only carry the changed fields as JSON
+  private UserData userDataOf(UserEvent userEvent) {
+    if (userEvent.getData() != null) {
+      return objectMapper.readValue(userEvent.getData(), UserData.class);
+    }
+    return new UserData(userEvent.getEmail(), userEvent.getFullName(), userEvent.getActive());
+  }
+
+  /** The fields of the create and update requests carried by a {@code UserEvent}. */
+  record UserData(String email, String fullName, Boolean active) {}
+
+  private record PendingEvents(int count, Instant first) {
+
+    PendingEvents add(PendingEvents other) {
+      return new PendingEvents(count + other.count, first);
+    }
+  }
+}
@@ -12,12 +12,25 @@ public record UserEventResponse(
             pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
             timezone = "UTC")
         Date datetime,
+    Long version,
+    String eventId,
     String type,
+    String email,
+    String fullName,
+    Boolean active,
     String data) {
 
   public static UserEventResponse from(UserEvent userEvent) {
     UserEventKey key = userEvent.getKey();
     return new UserEventResponse(
-        key.getUserId(), key.getDatetime(), userEvent.getType(), userEvent.getData());
+        key.getUserId(),
+        key.getDatetime(),
+        key.getVersion(),
+        userEvent.getEventId(),
+        userEvent.getType(),
+        userEvent.getEmail(),
+        userEvent.getFullName(),
+        userEvent.getActive(),
+        userEvent.getData());
   }
 }
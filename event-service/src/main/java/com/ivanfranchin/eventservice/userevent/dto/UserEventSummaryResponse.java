@@ -0,0 +1,29 @@
+package com.ivanfranchin.eventservice.userevent.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.ivanfranchin.eventservice.userevent.model.UserEventSummary;
+import java.util.Date;
+import java.util.Map;
+
+public record UserEventSummaryResponse(
+    Long userId,
+    String lastEventId,
+    String lastType,
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            timezone = "UTC")
+        Date lastDatetime,
+    Long lastVersion,
+    Map<String, Long> counts) {
+
+  public static UserEventSummaryResponse from(UserEventSummary userEventSummary) {
+    return new UserEventSummaryResponse(
+        userEventSummary.userId(),
+        userEventSummary.lastEventId(),
+        userEventSummary.lastType(),
+        userEventSummary.lastDatetime(),
+        userEventSummary.lastVersion(),
+        userEventSummary.counts());
+  }
+}
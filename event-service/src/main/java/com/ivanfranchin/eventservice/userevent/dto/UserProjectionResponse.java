@@ -0,0 +1,34 @@
+package com.ivanfranchin.eventservice.userevent.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import java.util.Date;
+
+public record UserProjectionResponse(
+    Long id,
+    String email,
+    String fullName,
+    Boolean active,
+    Long version,
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            timezone = "UTC")
+        Date createdAt,
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            timezone = "UTC")
+        Date updatedAt) {
+
+  public static UserProjectionResponse from(UserProjection userProjection) {
+    return new UserProjectionResponse(
+        userProjection.getUserId(),
+        userProjection.getEmail(),
+        userProjection.getFullName(),
+        userProjection.getActive(),
+        userProjection.getVersion(),
+        userProjection.getCreatedAt(),
+        userProjection.getUpdatedAt());
+  }
+}
@@ -0,0 +1,30 @@
+package com.ivanfranchin.eventservice.userevent.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.ivanfranchin.eventservice.userevent.model.UserState;
+import java.util.Date;
+
+public record UserStateResponse(
+    Long userId,
+    String email,
+    String fullName,
+    Boolean active,
+    boolean deleted,
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            timezone = "UTC")
+        Date datetime,
+    Long version) {
+
+  public static UserStateResponse from(UserState userState) {
+    return new UserStateResponse(
+        userState.userId(),
+        userState.email(),
+        userState.fullName(),
+        userState.active(),
+        userState.deleted(),
+        userState.datetime(),
+        userState.version());
+  }
+}
@@ -0,0 +1,16 @@
+package com.ivanfranchin.eventservice.userevent.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidUserEventQueryException extends RuntimeException {
+
+  public InvalidUserEventQueryException(String message) {
+    super(message);
+  }
+
+  public InvalidUserEventQueryException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,12 @@
+package com.ivanfranchin.eventservice.userevent.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class UserStateNotFoundException extends RuntimeException {
+
+  public UserStateNotFoundException(String message) {
+    super(message);
+  }
+}
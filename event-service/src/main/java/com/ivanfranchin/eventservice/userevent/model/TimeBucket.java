@@ -0,0 +1,26 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Size of the time buckets that split a user's events into several Cassandra partitions. A bucket
+ * is identified by its UTC date, formatted as {@code yyyyMMdd} ({@code DAY}) or {@code yyyyMM}
+ * ({@code MONTH}), so bucket ids sort in time order. {@code NONE} keeps all the user's events in a
+ * single {@code user_events} partition.
+ */
+public enum TimeBucket {
+  NONE,
+  DAY,
+  MONTH;
+
+  public long of(Instant instant) {
+    LocalDate date = LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    return switch (this) {
+      case NONE -> 0;
+      case DAY -> date.getYear() * 10000L + date.getMonthValue() * 100L + date.getDayOfMonth();
+      case MONTH -> date.getYear() * 100L + date.getMonthValue();
+    };
+  }
+}
@@ -14,6 +14,14 @@ public class UserEvent {
 
   @PrimaryKey private UserEventKey key;
 
+  private String eventId;
   private String type;
+
+  // The fields set by the change; the ones an update leaves unchanged are null
+  private String email;
+  private String fullName;
+  private Boolean active;
+
+  // JSON of the changed fields, only set by events sent before the fields above
   private String data;
 }
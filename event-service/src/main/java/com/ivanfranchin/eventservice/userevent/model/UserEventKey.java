@@ -20,4 +20,9 @@ public class UserEventKey {
 
   @PrimaryKeyColumn(ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
   private Date datetime;
+
+  // The per-user version assigned by user-service. Events in the same millisecond no longer
+  // overwrite each other, and events without a version (sent before it existed) have 0
+  @PrimaryKeyColumn(ordinal = 2, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.ASCENDING)
+  private Long version;
 }
@@ -0,0 +1,9 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import java.util.List;
+
+/**
+ * A page of user events. {@code nextPageToken} is an opaque token wrapping the Cassandra paging
+ * state, or {@code null} when there are no more events.
+ */
+public record UserEventPage(List<UserEvent> userEvents, String nextPageToken) {}
@@ -0,0 +1,16 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * The latest event of a user and its number of events of each type. The latest event is unknown
+ * when only counts were found.
+ */
+public record UserEventSummary(
+    Long userId,
+    String lastEventId,
+    String lastType,
+    Date lastDatetime,
+    Long lastVersion,
+    Map<String, Long> counts) {}
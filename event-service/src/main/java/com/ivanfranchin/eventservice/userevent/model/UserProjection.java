@@ -0,0 +1,32 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+/**
+ * Current state of a user, with all the events consumed so far applied. Written by {@code
+ * UserProjectionService}; a field is null until an event sets it. {@code version} and {@code
+ * updatedAt}, with {@code lastEventId} and {@code lastType}, are those of the latest event.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("user_state")
+public class UserProjection {
+
+  @PrimaryKey private Long userId;
+
+  private String email;
+  private String fullName;
+  private Boolean active;
+  private Boolean deleted;
+  private Long version;
+  private Date createdAt;
+  private Date updatedAt;
+  private String lastEventId;
+  private String lastType;
+}
@@ -0,0 +1,40 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+/**
+ * State of a user as of the event with {@code key.datetime} and {@code version}, all events up to
+ * it included.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table("user_snapshots")
+public class UserSnapshot {
+
+  @PrimaryKey private UserSnapshotKey key;
+
+  private String email;
+  private String fullName;
+  private Boolean active;
+  private boolean deleted;
+  private Long version;
+
+  public UserSnapshot(UserState userState) {
+    this.key = new UserSnapshotKey(userState.userId(), userState.datetime());
+    this.email = userState.email();
+    this.fullName = userState.fullName();
+    this.active = userState.active();
+    this.deleted = userState.deleted();
+    this.version = userState.version();
+  }
+
+  public UserState toUserState() {
+    return new UserState(
+        key.getUserId(), email, fullName, active, deleted, key.getDatetime(), version);
+  }
+}
@@ -0,0 +1,23 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.cassandra.core.cql.Ordering;
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyClass;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@PrimaryKeyClass
+public class UserSnapshotKey {
+
+  @PrimaryKeyColumn(ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+  private Long userId;
+
+  @PrimaryKeyColumn(ordinal = 1, type = PrimaryKeyType.CLUSTERED, ordering = Ordering.DESCENDING)
+  private Date datetime;
+}
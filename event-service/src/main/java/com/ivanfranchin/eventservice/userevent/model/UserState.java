@@ -0,0 +1,30 @@
+package com.ivanfranchin.eventservice.userevent.model;
+
+import java.util.Date;
+
+/**
+ * State of a user rebuilt from its events. {@code datetime} and {@code version} are the ones of the
+ * last event applied, or {@code null} when no event was applied yet.
+ */
+public record UserState(
+    Long userId,
+    String email,
+    String fullName,
+    Boolean active,
+    boolean deleted,
+    Date datetime,
+    Long version) {
+
+  public static UserState empty(Long userId) {
+    return new UserState(userId, null, null, null, false, null, null);
+  }
+
+  /** Tells whether the event with {@code key} comes after the last event applied. */
+  public boolean precedes(UserEventKey key) {
+    if (datetime == null) {
+      return true;
+    }
+    int compare = key.getDatetime().compareTo(datetime);
+    return compare > 0 || (compare == 0 && key.getVersion() > version);
+  }
+}
@@ -9,17 +9,16 @@ import org.apache.avro.message.BinaryMessageDecoder;
 import org.apache.avro.message.BinaryMessageEncoder;
 import org.apache.avro.message.SchemaStore;
 import org.apache.avro.specific.SpecificData;
-import org.apache.avro.util.Utf8;
 
 @org.apache.avro.specific.AvroGenerated
 public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBase
     implements org.apache.avro.specific.SpecificRecord {
-  private static final long serialVersionUID = -943644479468478271L;
+  private static final long serialVersionUID = 8284282821248538488L;
 
   public static final org.apache.avro.Schema SCHEMA$ =
       new org.apache.avro.Schema.Parser()
           .parse(
-              "{\"type\":\"record\",\"name\":\"UserEventMessage\",\"namespace\":\"com.ivanfranchin.userservice.messages\",\"fields\":[{\"name\":\"eventId\",\"type\":\"string\"},{\"name\":\"eventTimestamp\",\"type\":\"long\"},{\"name\":\"eventType\",\"type\":{\"type\":\"enum\",\"name\":\"EventType\",\"symbols\":[\"CREATED\",\"UPDATED\",\"DELETED\"]}},{\"name\":\"userId\",\"type\":\"long\"},{\"name\":\"userJson\",\"type\":[\"null\",\"string\"],\"default\":null}]}");
+              "{\"type\":\"record\",\"name\":\"UserEventMessage\",\"namespace\":\"com.ivanfranchin.userservice.messages\",\"fields\":[{\"name\":\"eventId\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},{\"name\":\"eventTimestamp\",\"type\":\"long\"},{\"name\":\"eventType\",\"type\":{\"type\":\"enum\",\"name\":\"EventType\",\"symbols\":[\"CREATED\",\"UPDATED\",\"DELETED\"]}},{\"name\":\"userId\",\"type\":\"long\"},{\"name\":\"version\",\"type\":[\"null\",\"long\"],\"default\":null},{\"name\":\"email\",\"type\":[\"null\",{\"type\":\"string\",\"avro.java.string\":\"String\"}],\"default\":null},{\"name\":\"fullName\",\"type\":[\"null\",{\"type\":\"string\",\"avro.java.string\":\"String\"}],\"default\":null},{\"name\":\"active\",\"type\":[\"null\",\"boolean\"],\"default\":null},{\"name\":\"userJson\",\"type\":[\"null\",{\"type\":\"string\",\"avro.java.string\":\"String\"}],\"doc\":\"JSON of the changed fields, only set by events sent before email, fullName and active\",\"default\":null}]}");
 
   public static org.apache.avro.Schema getClassSchema() {
     return SCHEMA$;
@@ -84,11 +83,17 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
     return DECODER.decode(b);
   }
 
-  private java.lang.CharSequence eventId;
+  private java.lang.String eventId;
   private long eventTimestamp;
   private com.ivanfranchin.userservice.messages.EventType eventType;
   private long userId;
-  private java.lang.CharSequence userJson;
+  private java.lang.Long version;
+  private java.lang.String email;
+  private java.lang.String fullName;
+  private java.lang.Boolean active;
+
+  /** JSON of the changed fields, only set by events sent before email, fullName and active */
+  private java.lang.String userJson;
 
   /**
    * Default constructor. Note that this does not initialize fields to their default values from the
@@ -103,18 +108,31 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
    * @param eventTimestamp The new value for eventTimestamp
    * @param eventType The new value for eventType
    * @param userId The new value for userId
-   * @param userJson The new value for userJson
+   * @param version The new value for version
+   * @param email The new value for email
+   * @param fullName The new value for fullName
+   * @param active The new value for active
+   * @param userJson JSON of the changed fields, only set by events sent before email, fullName and
+   *     active
    */
   public UserEventMessage(
-      java.lang.CharSequence eventId,
+      java.lang.String eventId,
       java.lang.Long eventTimestamp,
       com.ivanfranchin.userservice.messages.EventType eventType,
       java.lang.Long userId,
-      java.lang.CharSequence userJson) {
+      java.lang.Long version,
+      java.lang.String email,
+      java.lang.String fullName,
+      java.lang.Boolean active,
+      java.lang.String userJson) {
     this.eventId = eventId;
     this.eventTimestamp = eventTimestamp;
     this.eventType = eventType;
     this.userId = userId;
+    this.version = version;
+    this.email = email;
+    this.fullName = fullName;
+    this.active = active;
     this.userJson = userJson;
   }
 
@@ -141,6 +159,14 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
       case 3:
         return userId;
       case 4:
+        return version;
+      case 5:
+        return email;
+      case 6:
+        return fullName;
+      case 7:
+        return active;
+      case 8:
         return userJson;
       default:
         throw new IndexOutOfBoundsException("Invalid index: " + field$);
@@ -153,7 +179,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
   public void put(int field$, java.lang.Object value$) {
     switch (field$) {
       case 0:
-        eventId = (java.lang.CharSequence) value$;
+        eventId = value$ != null ? value$.toString() : null;
         break;
       case 1:
         eventTimestamp = (java.lang.Long) value$;
@@ -165,7 +191,19 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
         userId = (java.lang.Long) value$;
         break;
       case 4:
-        userJson = (java.lang.CharSequence) value$;
+        version = (java.lang.Long) value$;
+        break;
+      case 5:
+        email = value$ != null ? value$.toString() : null;
+        break;
+      case 6:
+        fullName = value$ != null ? value$.toString() : null;
+        break;
+      case 7:
+        active = (java.lang.Boolean) value$;
+        break;
+      case 8:
+        userJson = value$ != null ? value$.toString() : null;
         break;
       default:
         throw new IndexOutOfBoundsException("Invalid index: " + field$);
@@ -177,7 +215,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
    *
    * @return The value of the 'eventId' field.
    */
-  public java.lang.CharSequence getEventId() {
+  public java.lang.String getEventId() {
     return eventId;
   }
 
@@ -186,7 +224,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
    *
    * @param value the value to set.
    */
-  public void setEventId(java.lang.CharSequence value) {
+  public void setEventId(java.lang.String value) {
     this.eventId = value;
   }
 
@@ -244,21 +282,94 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
     this.userId = value;
   }
 
+  /**
+   * Gets the value of the 'version' field.
+   *
+   * @return The value of the 'version' field.
+   */
+  public java.lang.Long getVersion() {
+    return version;
+  }
+
+  /**
+   * Sets the value of the 'version' field.
+   *
+   * @param value the value to set.
+   */
+  public void setVersion(java.lang.Long value) {
+    this.version = value;
+  }
+
+  /**
+   * Gets the value of the 'email' field.
+   *
+   * @return The value of the 'email' field.
+   */
+  public java.lang.String getEmail() {
+    return email;
+  }
+
+  /**
+   * Sets the value of the 'email' field.
+   *
+   * @param value the value to set.
+   */
+  public void setEmail(java.lang.String value) {
+    this.email = value;
+  }
+
+  /**
+   * Gets the value of the 'fullName' field.
+   *
+   * @return The value of the 'fullName' field.
+   */
+  public java.lang.String getFullName() {
+    return fullName;
+  }
+
+  /**
+   * Sets the value of the 'fullName' field.
+   *
+   * @param value the value to set.
+   */
+  public void setFullName(java.lang.String value) {
+    this.fullName = value;
+  }
+
+  /**
+   * Gets the value of the 'active' field.
+   *
+   * @return The value of the 'active' field.
+   */
+  public java.lang.Boolean getActive() {
+    return active;
+  }
+
+  /**
+   * Sets the value of the 'active' field.
+   *
+   * @param value the value to set.
+   */
+  public void setActive(java.lang.Boolean value) {
+    this.active = value;
+  }
+
   /**
    * Gets the value of the 'userJson' field.
    *
-   * @return The value of the 'userJson' field.
+   * @return JSON of the changed fields, only set by events sent before email, fullName and active
    */
-  public java.lang.CharSequence getUserJson() {
+  public java.lang.String getUserJson() {
     return userJson;
   }
 
   /**
-   * Sets the value of the 'userJson' field.
+   * Sets the value of the 'userJson' field. JSON of the changed fields, only set by events sent
+   * before email, fullName and active
    *
    * @param value the value to set.
    */
-  public void setUserJson(java.lang.CharSequence value) {
+  public void setUserJson(java.lang.String value) {
     this.userJson = value;
   }
 
@@ -307,11 +418,17 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
       extends org.apache.avro.specific.SpecificRecordBuilderBase<UserEventMessage>
       implements org.apache.avro.data.RecordBuilder<UserEventMessage> {
 
-    private java.lang.CharSequence eventId;
+    private java.lang.String eventId;
     private long eventTimestamp;
     private com.ivanfranchin.userservice.messages.EventType eventType;
     private long userId;
-    private java.lang.CharSequence userJson;
+    private java.lang.Long version;
+    private java.lang.String email;
+    private java.lang.String fullName;
+    private java.lang.Boolean active;
+
+    /** JSON of the changed fields, only set by events sent before email, fullName and active */
+    private java.lang.String userJson;
 
     /** Creates a new Builder */
     private Builder() {
@@ -341,10 +458,26 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
         this.userId = data().deepCopy(fields()[3].schema(), other.userId);
         fieldSetFlags()[3] = other.fieldSetFlags()[3];
       }
-      if (isValidValue(fields()[4], other.userJson)) {
-        this.userJson = data().deepCopy(fields()[4].schema(), other.userJson);
+      if (isValidValue(fields()[4], other.version)) {
+        this.version = data().deepCopy(fields()[4].schema(), other.version);
         fieldSetFlags()[4] = other.fieldSetFlags()[4];
       }
+      if (isValidValue(fields()[5], other.email)) {
+        this.email = data().deepCopy(fields()[5].schema(), other.email);
+        fieldSetFlags()[5] = other.fieldSetFlags()[5];
+      }
+      if (isValidValue(fields()[6], other.fullName)) {
+        this.fullName = data().deepCopy(fields()[6].schema(), other.fullName);
+        fieldSetFlags()[6] = other.fieldSetFlags()[6];
+      }
+      if (isValidValue(fields()[7], other.active)) {
+        this.active = data().deepCopy(fields()[7].schema(), other.active);
+        fieldSetFlags()[7] = other.fieldSetFlags()[7];
+      }
+      if (isValidValue(fields()[8], other.userJson)) {
+        this.userJson = data().deepCopy(fields()[8].schema(), other.userJson);
+        fieldSetFlags()[8] = other.fieldSetFlags()[8];
+      }
     }
 
     /**
@@ -370,10 +503,26 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
         this.userId = data().deepCopy(fields()[3].schema(), other.userId);
         fieldSetFlags()[3] = true;
       }
-      if (isValidValue(fields()[4], other.userJson)) {
-        this.userJson = data().deepCopy(fields()[4].schema(), other.userJson);
+      if (isValidValue(fields()[4], other.version)) {
+        this.version = data().deepCopy(fields()[4].schema(), other.version);
         fieldSetFlags()[4] = true;
       }
+      if (isValidValue(fields()[5], other.email)) {
+        this.email = data().deepCopy(fields()[5].schema(), other.email);
+        fieldSetFlags()[5] = true;
+      }
+      if (isValidValue(fields()[6], other.fullName)) {
+        this.fullName = data().deepCopy(fields()[6].schema(), other.fullName);
+        fieldSetFlags()[6] = true;
+      }
+      if (isValidValue(fields()[7], other.active)) {
+        this.active = data().deepCopy(fields()[7].schema(), other.active);
+        fieldSetFlags()[7] = true;
+      }
+      if (isValidValue(fields()[8], other.userJson)) {
+        this.userJson = data().deepCopy(fields()[8].schema(), other.userJson);
+        fieldSetFlags()[8] = true;
+      }
     }
 
     /**
@@ -381,7 +530,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
      *
      * @return The value.
      */
-    public java.lang.CharSequence getEventId() {
+    public java.lang.String getEventId() {
       return eventId;
     }
 
@@ -392,7 +541,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
      * @return This builder.
      */
     public com.ivanfranchin.userservice.messages.UserEventMessage.Builder setEventId(
-        java.lang.CharSequence value) {
+        java.lang.String value) {
       validate(fields()[0], value);
       this.eventId = value;
       fieldSetFlags()[0] = true;
@@ -546,45 +695,221 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
     }
 
     /**
-     * Gets the value of the 'userJson' field.
+     * Gets the value of the 'version' field.
+     *
+     * @return The value.
+     */
+    public java.lang.Long getVersion() {
+      return version;
+    }
+
+    /**
+     * Sets the value of the 'version' field.
+     *
+     * @param value The value of 'version'.
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder setVersion(
+        java.lang.Long value) {
+      validate(fields()[4], value);
+      this.version = value;
+      fieldSetFlags()[4] = true;
+      return this;
+    }
+
+    /**
+     * Checks whether the 'version' field has been set.
+     *
+     * @return True if the 'version' field has been set, false otherwise.
+     */
+    public boolean hasVersion() {
+      return fieldSetFlags()[4];
+    }
+
+    /**
+     * Clears the value of the 'version' field.
+     *
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder clearVersion() {
+      version = null;
+      fieldSetFlags()[4] = false;
+      return this;
+    }
+
+    /**
+     * Gets the value of the 'email' field.
+     *
+     * @return The value.
+     */
+    public java.lang.String getEmail() {
+      return email;
+    }
+
+    /**
+     * Sets the value of the 'email' field.
+     *
+     * @param value The value of 'email'.
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder setEmail(
+        java.lang.String value) {
+      validate(fields()[5], value);
+      this.email = value;
+      fieldSetFlags()[5] = true;
+      return this;
+    }
+
+    /**
+     * Checks whether the 'email' field has been set.
+     *
+     * @return True if the 'email' field has been set, false otherwise.
+     */
+    public boolean hasEmail() {
+      return fieldSetFlags()[5];
+    }
+
+    /**
+     * Clears the value of the 'email' field.
+     *
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder clearEmail() {
+      email = null;
+      fieldSetFlags()[5] = false;
+      return this;
+    }
+
+    /**
+     * Gets the value of the 'fullName' field.
+     *
+     * @return The value.
+     */
+    public java.lang.String getFullName() {
+      return fullName;
+    }
+
+    /**
+     * Sets the value of the 'fullName' field.
+     *
+     * @param value The value of 'fullName'.
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder setFullName(
+        java.lang.String value) {
+      validate(fields()[6], value);
+      this.fullName = value;
+      fieldSetFlags()[6] = true;
+      return this;
+    }
+
+    /**
+     * Checks whether the 'fullName' field has been set.
+     *
+     * @return True if the 'fullName' field has been set, false otherwise.
+     */
+    public boolean hasFullName() {
+      return fieldSetFlags()[6];
+    }
+
+    /**
+     * Clears the value of the 'fullName' field.
+     *
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder clearFullName() {
+      fullName = null;
+      fieldSetFlags()[6] = false;
+      return this;
+    }
+
+    /**
+     * Gets the value of the 'active' field.
      *
      * @return The value.
      */
-    public java.lang.CharSequence getUserJson() {
+    public java.lang.Boolean getActive() {
+      return active;
+    }
+
+    /**
+     * Sets the value of the 'active' field.
+     *
+     * @param value The value of 'active'.
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder setActive(
+        java.lang.Boolean value) {
+      validate(fields()[7], value);
+      this.active = value;
+      fieldSetFlags()[7] = true;
+      return this;
+    }
+
+    /**
+     * Checks whether the 'active' field has been set.
+     *
+     * @return True if the 'active' field has been set, false otherwise.
+     */
+    public boolean hasActive() {
+      return fieldSetFlags()[7];
+    }
+
+    /**
+     * Clears the value of the 'active' field.
+     *
+     * @return This builder.
+     */
+    public com.ivanfranchin.userservice.messages.UserEventMessage.Builder clearActive() {
+      active = null;
+      fieldSetFlags()[7] = false;
+      return this;
+    }
+
+    /**
+     * Gets the value of the 'userJson' field. JSON of the changed fields, only set by events sent
+     * before email, fullName and active
+     *
+     * @return The value.
+     */
+    public java.lang.String getUserJson() {
       return userJson;
     }
 
     /**
-     * Sets the value of the 'userJson' field.
+     * Sets the value of the 'userJson' field. JSON of the changed fields, only set by events sent
+     * before email, fullName and active
      *
      * @param value The value of 'userJson'.
      * @return This builder.
      */
     public com.ivanfranchin.userservice.messages.UserEventMessage.Builder setUserJson(
-        java.lang.CharSequence value) {
-      validate(fields()[4], value);
+        java.lang.String value) {
+      validate(fields()[8], value);
       this.userJson = value;
-      fieldSetFlags()[4] = true;
+      fieldSetFlags()[8] = true;
       return this;
     }
 
     /**
-     * Checks whether the 'userJson' field has been set.
+     * Checks whether the 'userJson' field has been set. JSON of the changed fields, only set by
+     * events sent before email, fullName and active
      *
      * @return True if the 'userJson' field has been set, false otherwise.
      */
     public boolean hasUserJson() {
-      return fieldSetFlags()[4];
+      return fieldSetFlags()[8];
     }
 
     /**
-     * Clears the value of the 'userJson' field.
+     * Clears the value of the 'userJson' field. JSON of the changed fields, only set by events sent
+     * before email, fullName and active
      *
      * @return This builder.
      */
     public com.ivanfranchin.userservice.messages.UserEventMessage.Builder clearUserJson() {
       userJson = null;
-      fieldSetFlags()[4] = false;
+      fieldSetFlags()[8] = false;
       return this;
     }
 
@@ -594,7 +919,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
       try {
         UserEventMessage record = new UserEventMessage();
         record.eventId =
-            fieldSetFlags()[0] ? this.eventId : (java.lang.CharSequence) defaultValue(fields()[0]);
+            fieldSetFlags()[0] ? this.eventId : (java.lang.String) defaultValue(fields()[0]);
         record.eventTimestamp =
             fieldSetFlags()[1] ? this.eventTimestamp : (java.lang.Long) defaultValue(fields()[1]);
         record.eventType =
@@ -603,8 +928,16 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
                 : (com.ivanfranchin.userservice.messages.EventType) defaultValue(fields()[2]);
         record.userId =
             fieldSetFlags()[3] ? this.userId : (java.lang.Long) defaultValue(fields()[3]);
+        record.version =
+            fieldSetFlags()[4] ? this.version : (java.lang.Long) defaultValue(fields()[4]);
+        record.email =
+            fieldSetFlags()[5] ? this.email : (java.lang.String) defaultValue(fields()[5]);
+        record.fullName =
+            fieldSetFlags()[6] ? this.fullName : (java.lang.String) defaultValue(fields()[6]);
+        record.active =
+            fieldSetFlags()[7] ? this.active : (java.lang.Boolean) defaultValue(fields()[7]);
         record.userJson =
-            fieldSetFlags()[4] ? this.userJson : (java.lang.CharSequence) defaultValue(fields()[4]);
+            fieldSetFlags()[8] ? this.userJson : (java.lang.String) defaultValue(fields()[8]);
         return record;
       } catch (org.apache.avro.AvroMissingFieldException e) {
         throw e;
@@ -647,6 +980,38 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
 
     out.writeLong(this.userId);
 
+    if (this.version == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeLong(this.version);
+    }
+
+    if (this.email == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeString(this.email);
+    }
+
+    if (this.fullName == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeString(this.fullName);
+    }
+
+    if (this.active == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeBoolean(this.active);
+    }
+
     if (this.userJson == null) {
       out.writeIndex(0);
       out.writeNull();
@@ -660,7 +1025,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
   public void customDecode(org.apache.avro.io.ResolvingDecoder in) throws java.io.IOException {
     org.apache.avro.Schema.Field[] fieldOrder = in.readFieldOrderIfDiff();
     if (fieldOrder == null) {
-      this.eventId = in.readString(this.eventId instanceof Utf8 ? (Utf8) this.eventId : null);
+      this.eventId = in.readString();
 
       this.eventTimestamp = in.readLong();
 
@@ -668,18 +1033,46 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
 
       this.userId = in.readLong();
 
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.version = null;
+      } else {
+        this.version = in.readLong();
+      }
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.email = null;
+      } else {
+        this.email = in.readString();
+      }
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.fullName = null;
+      } else {
+        this.fullName = in.readString();
+      }
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.active = null;
+      } else {
+        this.active = in.readBoolean();
+      }
+
       if (in.readIndex() != 1) {
         in.readNull();
         this.userJson = null;
       } else {
-        this.userJson = in.readString(this.userJson instanceof Utf8 ? (Utf8) this.userJson : null);
+        this.userJson = in.readString();
       }
 
     } else {
-      for (int i = 0; i < 5; i++) {
+      for (int i = 0; i < 9; i++) {
         switch (fieldOrder[i].pos()) {
           case 0:
-            this.eventId = in.readString(this.eventId instanceof Utf8 ? (Utf8) this.eventId : null);
+            this.eventId = in.readString();
             break;
 
           case 1:
@@ -696,12 +1089,47 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
             break;
 
           case 4:
+            if (in.readIndex() != 1) {
+              in.readNull();
+              this.version = null;
+            } else {
+              this.version = in.readLong();
+            }
+            break;
+
+          case 5:
+            if (in.readIndex() != 1) {
+              in.readNull();
+              this.email = null;
+            } else {
+              this.email = in.readString();
+            }
+            break;
+
+          case 6:
+            if (in.readIndex() != 1) {
+              in.readNull();
+              this.fullName = null;
+            } else {
+              this.fullName = in.readString();
+            }
+            break;
+
+          case 7:
+            if (in.readIndex() != 1) {
+              in.readNull();
+              this.active = null;
+            } else {
+              this.active = in.readBoolean();
+            }
+            break;
+
+          case 8:
             if (in.readIndex() != 1) {
               in.readNull();
               this.userJson = null;
             } else {
-              this.userJson =
-                  in.readString(this.userJson instanceof Utf8 ? (Utf8) this.userJson : null);
+              this.userJson = in.readString();
             }
             break;
 
@@ -719,6 +1147,10 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
     result = 31 * result + Long.hashCode(eventTimestamp);
     result = 31 * result + (eventType == null ? 0 : ((java.lang.Enum) eventType).ordinal());
     result = 31 * result + Long.hashCode(userId);
+    result = 31 * result + (version == null ? 0 : version.hashCode());
+    result = 31 * result + (email == null ? 0 : email.hashCode());
+    result = 31 * result + (fullName == null ? 0 : fullName.hashCode());
+    result = 31 * result + (active == null ? 0 : active.hashCode());
     result = 31 * result + (userJson == null ? 0 : userJson.hashCode());
     return result;
   }
@@ -732,7 +1164,7 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
       return false;
     }
     UserEventMessage other = (UserEventMessage) o;
-    if (Utf8.compareSequences(this.eventId, other.eventId) != 0) {
+    if (!java.util.Objects.equals(this.eventId, other.eventId)) {
       return false;
     }
     if (this.eventTimestamp != other.eventTimestamp) {
@@ -744,7 +1176,19 @@ public class UserEventMessage extends org.apache.avro.specific.SpecificRecordBas
     if (this.userId != other.userId) {
       return false;
     }
-    if (Utf8.compareSequences(this.userJson, other.userJson) != 0) {
+    if (!java.util.Objects.equals(this.version, other.version)) {
+      return false;
+    }
+    if (!java.util.Objects.equals(this.email, other.email)) {
+      return false;
+    }
+    if (!java.util.Objects.equals(this.fullName, other.fullName)) {
+      return false;
+    }
+    if (!java.util.Objects.equals(this.active, other.active)) {
+      return false;
+    }
+    if (!java.util.Objects.equals(this.userJson, other.userJson)) {
       return false;
     }
     return true;
@@ -0,0 +1,87 @@
+package com.ivanfranchin.eventservice.config;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class TableCompressionPopulatorTest {
+
+  @MockitoBean private CqlSession session;
+
+  private Row row;
+
+  @BeforeEach
+  void setUp() {
+    row = mock(Row.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    given(resultSet.one()).willReturn(row);
+    given(session.execute(any(Statement.class))).willReturn(resultSet);
+  }
+
+  @Test
+  void testPopulateWhenCompressionDiffers() {
+    givenCompression(
+        Map.of(
+            "class", "org.apache.cassandra.io.compress.LZ4Compressor", "chunk_length_in_kb", "16"));
+
+    new TableCompressionPopulator("ivanfranchin", "ZstdCompressor", 16).populate(session);
+
+    then(session)
+        .should()
+        .execute(
+            "ALTER TABLE ivanfranchin.user_events"
+                + " WITH compression = {'class': 'ZstdCompressor', 'chunk_length_in_kb': 16}");
+    then(session)
+        .should()
+        .execute(
+            "ALTER TABLE ivanfranchin.user_events_by_bucket"
+                + " WITH compression = {'class': 'ZstdCompressor', 'chunk_length_in_kb': 16}");
+  }
+
+  @Test
+  void testPopulateWhenCompressionMatches() {
+    givenCompression(
+        Map.of(
+            "class",
+            "org.apache.cassandra.io.compress.ZstdCompressor",
+            "chunk_length_in_kb",
+            "16"));
+
+    new TableCompressionPopulator("ivanfranchin", "ZstdCompressor", 16).populate(session);
+
+    then(session).should(never()).execute(anyString());
+  }
+
+  @Test
+  void testPopulateWhenCompressionIsDisabled() {
+    givenCompression(
+        Map.of(
+            "class", "org.apache.cassandra.io.compress.LZ4Compressor", "chunk_length_in_kb", "16"));
+
+    new TableCompressionPopulator("ivanfranchin", TableCompressionPopulator.NONE, 16)
+        .populate(session);
+
+    then(session)
+        .should()
+        .execute("ALTER TABLE ivanfranchin.user_events WITH compression = {'enabled': 'false'}");
+  }
+
+  private void givenCompression(Map<String, String> compression) {
+    given(row.getMap("compression", String.class, String.class)).willReturn(compression);
+  }
+}
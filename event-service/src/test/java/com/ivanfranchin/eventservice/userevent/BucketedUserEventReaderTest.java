@@ -0,0 +1,187 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.exception.InvalidUserEventQueryException;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserEventPage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class BucketedUserEventReaderTest {
+
+  private static final long ONE_DAY = Duration.ofDays(1).toMillis();
+  private static final Date MIN_DATETIME = new Date(0);
+  private static final Date MAX_DATETIME = new Date(Long.MAX_VALUE);
+
+  // events of user 1, by bucket. The first two share a millisecond
+  private static final Map<Long, List<Event>> EVENTS_BY_BUCKET =
+      Map.of(
+          19700101L, List.of(new Event(1L, 0), new Event(1L, 1)),
+          19700102L, List.of(new Event(ONE_DAY + 1, 2), new Event(ONE_DAY + 2, 3)),
+          19700103L, List.of(new Event(2 * ONE_DAY + 1, 4)));
+
+  @MockitoBean private CqlSession session;
+
+  // created for each test, so its prepared statements come from the current mocks
+  private BucketedUserEventReader bucketedUserEventReader;
+
+  private final Map<BoundStatement, Object[]> boundValues = new HashMap<>();
+
+  @BeforeEach
+  void setUp() {
+    bucketedUserEventReader = new BucketedUserEventReader(session, TimeBucket.DAY, 2);
+
+    PreparedStatement selectBuckets = mock(PreparedStatement.class);
+    BoundStatement selectBucketsBound = mock(BoundStatement.class);
+    given(selectBuckets.bind(any(Object[].class))).willReturn(selectBucketsBound);
+    given(session.prepare(contains("FROM user_event_buckets"))).willReturn(selectBuckets);
+    ResultSet buckets = mock(ResultSet.class);
+    given(buckets.iterator())
+        .willAnswer(
+            invocation ->
+                EVENTS_BY_BUCKET.keySet().stream().sorted().map(this::bucketRow).iterator());
+    given(session.execute(selectBucketsBound)).willReturn(buckets);
+
+    PreparedStatement selectUserEvents = mock(PreparedStatement.class);
+    given(selectUserEvents.bind(any(Object[].class)))
+        .willAnswer(
+            invocation -> {
+              BoundStatement boundStatement = mock(BoundStatement.class);
+              boundValues.put(boundStatement, invocation.getArguments());
+              return boundStatement;
+            });
+    given(session.prepare(contains("ORDER BY datetime ASC"))).willReturn(selectUserEvents);
+    given(session.executeAsync(any(Statement.class)))
+        .willAnswer(invocation -> selectUserEvents(invocation.getArgument(0)));
+  }
+
+  @Test
+  void testGetUserEventsFansOutOverBucketsInOrder() {
+    UserEventPage userEventPage =
+        bucketedUserEventReader.getUserEvents(
+            1L, MIN_DATETIME, MAX_DATETIME, Sort.Direction.ASC, 3, null);
+
+    assertThat(versions(userEventPage)).containsExactly(0L, 1L, 2L);
+    assertThat(userEventPage.nextPageToken()).isNotNull();
+    // the page is filled by the first window of 2 buckets, so the third bucket isn't queried
+    then(session).should(times(2)).executeAsync(any(Statement.class));
+  }
+
+  @Test
+  void testGetUserEventsResumesAfterPageToken() {
+    UserEventPage firstPage =
+        bucketedUserEventReader.getUserEvents(
+            1L, MIN_DATETIME, MAX_DATETIME, Sort.Direction.ASC, 3, null);
+
+    UserEventPage secondPage =
+        bucketedUserEventReader.getUserEvents(
+            1L, MIN_DATETIME, MAX_DATETIME, Sort.Direction.ASC, 3, firstPage.nextPageToken());
+
+    assertThat(versions(secondPage)).containsExactly(3L, 4L);
+    assertThat(secondPage.nextPageToken()).isNull();
+  }
+
+  @Test
+  void testGetUserEventsResumesWithinMillisecond() {
+    UserEventPage firstPage =
+        bucketedUserEventReader.getUserEvents(
+            1L, MIN_DATETIME, MAX_DATETIME, Sort.Direction.ASC, 1, null);
+
+    UserEventPage secondPage =
+        bucketedUserEventReader.getUserEvents(
+            1L, MIN_DATETIME, MAX_DATETIME, Sort.Direction.ASC, 1, firstPage.nextPageToken());
+
+    assertThat(versions(firstPage)).containsExactly(0L);
+    assertThat(versions(secondPage)).containsExactly(1L);
+  }
+
+  @Test
+  void testGetUserEventsWhenPageTokenIsMalformed() {
+    assertThatExceptionOfType(InvalidUserEventQueryException.class)
+        .isThrownBy(
+            () ->
+                bucketedUserEventReader.getUserEvents(
+                    1L, MIN_DATETIME, MAX_DATETIME, Sort.Direction.ASC, 3, "AAAA"))
+        .withMessage("The page token is malformed.");
+  }
+
+  private CompletableFuture<AsyncResultSet> selectUserEvents(BoundStatement boundStatement) {
+    Object[] values = boundValues.get(boundStatement);
+    long bucket = (Long) values[1];
+    Event lower = new Event(((Instant) values[2]).toEpochMilli(), (Long) values[3]);
+    Event upper = new Event(((Instant) values[4]).toEpochMilli(), (Long) values[5]);
+    int limit = (Integer) values[6];
+    List<Row> rows =
+        EVENTS_BY_BUCKET.get(bucket).stream()
+            .filter(event -> event.compareTo(lower) >= 0 && event.compareTo(upper) <= 0)
+            .limit(limit)
+            .map(this::userEventRow)
+            .toList();
+    AsyncResultSet resultSet = mock(AsyncResultSet.class);
+    given(resultSet.currentPage()).willReturn(rows);
+    return CompletableFuture.completedFuture(resultSet);
+  }
+
+  private Row bucketRow(long bucket) {
+    Row row = mock(Row.class);
+    given(row.getLong("bucket")).willReturn(bucket);
+    return row;
+  }
+
+  private Row userEventRow(Event event) {
+    Row row = mock(Row.class);
+    given(row.getLong("userId")).willReturn(1L);
+    given(row.getInstant("datetime")).willReturn(Instant.ofEpochMilli(event.datetime()));
+    given(row.getLong("version")).willReturn(event.version());
+    given(row.getString("type")).willReturn("CREATED");
+    given(row.getString("email")).willReturn("email");
+    given(row.getString("fullName")).willReturn("fullName");
+    given(row.get("active", Boolean.class)).willReturn(true);
+    return row;
+  }
+
+  private List<Long> versions(UserEventPage userEventPage) {
+    return userEventPage.userEvents().stream()
+        .map(UserEvent::getKey)
+        .map(UserEventKey::getVersion)
+        .toList();
+  }
+
+  private record Event(long datetime, long version) implements Comparable<Event> {
+
+    @Override
+    public int compareTo(Event other) {
+      int compare = Long.compare(datetime, other.datetime);
+      return compare != 0 ? compare : Long.compare(version, other.version);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class ReplayProgressTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ReplayProgress replayProgress = new ReplayProgress(meterRegistry);
+
+  @Test
+  void testAdvance() {
+    replayProgress.start(0, 10, 110, 2);
+    replayProgress.start(1, 0, 50, 2);
+
+    replayProgress.advance(0, 60, 50);
+
+    assertThat(replayProgress.getRemaining()).isEqualTo(100);
+    assertThat(replayProgress.getReplayed()).isEqualTo(50);
+    assertThat(
+            meterRegistry.get("user.events.replay.remaining").tag("partition", "0").gauge().value())
+        .isEqualTo(50);
+    assertThat(
+            meterRegistry
+                .get("user.events.replay.replayed")
+                .tag("partition", "0")
+                .counter()
+                .count())
+        .isEqualTo(50);
+    assertThat(meterRegistry.get("user.events.replay.eta").gauge().value()).isPositive();
+  }
+
+  @Test
+  void testIsFinished() {
+    replayProgress.start(0, 0, 10, 2);
+    replayProgress.advance(0, 10, 10);
+    assertThat(replayProgress.isFinished()).isFalse();
+
+    replayProgress.start(1, 0, 0, 2);
+    assertThat(replayProgress.isFinished()).isTrue();
+  }
+
+  @Test
+  void testStartKeepsProgressOfPartitionAlreadyStarted() {
+    replayProgress.start(0, 0, 10, 1);
+    replayProgress.advance(0, 4, 4);
+
+    replayProgress.start(0, 2, 12, 1);
+
+    assertThat(replayProgress.getRemaining()).isEqualTo(6);
+  }
+}
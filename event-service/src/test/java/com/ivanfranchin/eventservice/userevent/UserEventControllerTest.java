@@ -2,52 +2,83 @@ package com.ivanfranchin.eventservice.userevent;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.ivanfranchin.eventservice.userevent.dto.UserEventResponse;
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
 import com.ivanfranchin.eventservice.userevent.model.UserEvent;
 import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserEventPage;
+import com.ivanfranchin.eventservice.userevent.model.UserEventSummary;
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import com.ivanfranchin.eventservice.userevent.model.UserState;
 import com.ivanfranchin.eventservice.util.MyLocalDateHandler;
+import java.time.Instant;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import tools.jackson.databind.ObjectMapper;
 
 @WebMvcTest(UserEventController.class)
 class UserEventControllerTest {
 
   @Autowired private MockMvc mockMvc;
 
+  @Autowired private ObjectMapper objectMapper;
+
   @MockitoBean private UserEventService userEventService;
 
+  @MockitoBean private UserStateService userStateService;
+
+  @MockitoBean private UserProjectionService userProjectionService;
+
+  @MockitoBean private UserEventSummaryService userEventSummaryService;
+
   @Test
   void testGetUserEventsWhenThereIsNone() throws Exception {
-    given(userEventService.getUserEvents(anyLong())).willReturn(Collections.emptyList());
+    given(userEventService.getUserEvents(anyLong(), any(), any(), any(), any(), any()))
+        .willReturn(new UserEventPage(Collections.emptyList(), null));
 
     ResultActions resultActions = mockMvc.perform(get("/api/events?userId=1")).andDo(print());
 
     resultActions
         .andExpect(status().isOk())
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(header().doesNotExist(UserEventController.NEXT_PAGE_TOKEN_HEADER))
         .andExpect(jsonPath("$", hasSize(0)));
   }
 
   @Test
   void testGetUserEventsWhenThereIsOne() throws Exception {
-    UserEvent userEvent = new UserEvent(new UserEventKey(1L, new Date()), "type", "data");
+    UserEvent userEvent = getDefaultUserEvent();
 
-    given(userEventService.getUserEvents(anyLong()))
-        .willReturn(Collections.singletonList(userEvent));
+    given(userEventService.getUserEvents(anyLong(), any(), any(), any(), any(), any()))
+        .willReturn(new UserEventPage(Collections.singletonList(userEvent), null));
 
     ResultActions resultActions = mockMvc.perform(get("/api/events?userId=" + 1)).andDo(print());
 
@@ -60,7 +91,234 @@ class UserEventControllerTest {
             jsonPath(
                 "$[0].datetime",
                 is(MyLocalDateHandler.fromDateToString(userEvent.getKey().getDatetime()))))
-        .andExpect(jsonPath("$[0].data", is(userEvent.getData())))
+        .andExpect(jsonPath("$[0].email", is(userEvent.getEmail())))
+        .andExpect(jsonPath("$[0].fullName", is(userEvent.getFullName())))
+        .andExpect(jsonPath("$[0].active", is(userEvent.getActive())))
         .andExpect(jsonPath("$[0].type", is(userEvent.getType())));
   }
+
+  @Test
+  void testGetUserEventsWhenThereIsNextPage() throws Exception {
+    UserEvent userEvent = getDefaultUserEvent();
+
+    given(userEventService.getUserEvents(anyLong(), any(), any(), any(), any(), any()))
+        .willReturn(new UserEventPage(Collections.singletonList(userEvent), "token2"));
+
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                get("/api/events?userId=1&from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z")
+                    .queryParam("limit", "1")
+                    .queryParam("order", "desc")
+                    .queryParam("pageToken", "token1"))
+            .andDo(print());
+
+    resultActions
+        .andExpect(status().isOk())
+        .andExpect(header().string(UserEventController.NEXT_PAGE_TOKEN_HEADER, "token2"))
+        .andExpect(jsonPath("$", hasSize(1)));
+    then(userEventService)
+        .should()
+        .getUserEvents(
+            1L,
+            Instant.parse("2024-01-01T00:00:00Z"),
+            Instant.parse("2024-02-01T00:00:00Z"),
+            Sort.Direction.DESC,
+            1,
+            "token1");
+  }
+
+  @Test
+  void testGetUserEventsDefaultsToAscendingOrder() throws Exception {
+    given(userEventService.getUserEvents(anyLong(), any(), any(), any(), any(), any()))
+        .willReturn(new UserEventPage(Collections.emptyList(), null));
+
+    mockMvc.perform(get("/api/events?userId=1")).andDo(print()).andExpect(status().isOk());
+
+    then(userEventService)
+        .should()
+        .getUserEvents(eq(1L), isNull(), isNull(), eq(Sort.Direction.ASC), isNull(), isNull());
+  }
+
+  @Test
+  void testGetUserEventsWhenOrderIsInvalid() throws Exception {
+    ResultActions resultActions =
+        mockMvc.perform(get("/api/events?userId=1&order=sideways")).andDo(print());
+
+    resultActions.andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testStreamUserEvents() throws Exception {
+    UserEvent userEvent1 =
+        new UserEvent(
+            new UserEventKey(1L, new Date(), 0L),
+            "eventId",
+            "CREATED",
+            "email",
+            "name",
+            true,
+            null);
+    UserEvent userEvent2 =
+        new UserEvent(
+            new UserEventKey(1L, new Date(), 0L), "eventId", "UPDATED", null, null, false, null);
+    willAnswer(
+            invocation -> {
+              Consumer<List<UserEvent>> pageConsumer = invocation.getArgument(4);
+              pageConsumer.accept(List.of(userEvent1));
+              pageConsumer.accept(List.of(userEvent2));
+              return null;
+            })
+        .given(userEventService)
+        .forEachUserEventPage(anyLong(), any(), any(), any(), any());
+
+    MvcResult mvcResult =
+        mockMvc
+            .perform(get("/api/events?userId=1").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(
+            content()
+                .string(
+                    objectMapper.writeValueAsString(UserEventResponse.from(userEvent1))
+                        + "\n"
+                        + objectMapper.writeValueAsString(UserEventResponse.from(userEvent2))
+                        + "\n"));
+    then(userEventService)
+        .should()
+        .forEachUserEventPage(eq(1L), isNull(), isNull(), eq(Sort.Direction.ASC), any());
+  }
+
+  @Test
+  void testStreamUserEventsWhenOrderIsInvalid() throws Exception {
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                get("/api/events?userId=1&order=sideways").accept(MediaType.APPLICATION_NDJSON))
+            .andDo(print());
+
+    resultActions.andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testGetUserState() throws Exception {
+    UserState userState = new UserState(1L, "ivan@test.com", "Ivan", true, false, new Date(), 0L);
+    given(userStateService.getUserState(anyLong(), any())).willReturn(userState);
+
+    ResultActions resultActions =
+        mockMvc.perform(get("/api/events/state?userId=1&asOf=2024-01-01T00:00:00Z")).andDo(print());
+
+    resultActions
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.userId", is(1)))
+        .andExpect(jsonPath("$.email", is(userState.email())))
+        .andExpect(jsonPath("$.fullName", is(userState.fullName())))
+        .andExpect(jsonPath("$.active", is(true)))
+        .andExpect(jsonPath("$.deleted", is(false)))
+        .andExpect(
+            jsonPath("$.datetime", is(MyLocalDateHandler.fromDateToString(userState.datetime()))));
+    then(userStateService).should().getUserState(1L, Instant.parse("2024-01-01T00:00:00Z"));
+  }
+
+  @Test
+  void testGetUserStateWhenThereIsNone() throws Exception {
+    given(userStateService.getUserState(anyLong(), any()))
+        .willThrow(new UserStateNotFoundException("User with id '1' has no events"));
+
+    ResultActions resultActions = mockMvc.perform(get("/api/events/state?userId=1")).andDo(print());
+
+    resultActions.andExpect(status().isNotFound());
+  }
+
+  @Test
+  void testGetUser() throws Exception {
+    Date createdAt = new Date(0);
+    Date updatedAt = new Date();
+    UserProjection userProjection =
+        new UserProjection(
+            1L,
+            "ivan@test.com",
+            "Ivan",
+            true,
+            null,
+            2L,
+            createdAt,
+            updatedAt,
+            "eventId",
+            "UPDATED");
+    given(userProjectionService.getUser(1L)).willReturn(userProjection);
+
+    ResultActions resultActions = mockMvc.perform(get("/api/events/users/1")).andDo(print());
+
+    resultActions
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.id", is(1)))
+        .andExpect(jsonPath("$.email", is(userProjection.getEmail())))
+        .andExpect(jsonPath("$.fullName", is(userProjection.getFullName())))
+        .andExpect(jsonPath("$.active", is(true)))
+        .andExpect(jsonPath("$.version", is(2)))
+        .andExpect(jsonPath("$.createdAt", is(MyLocalDateHandler.fromDateToString(createdAt))))
+        .andExpect(jsonPath("$.updatedAt", is(MyLocalDateHandler.fromDateToString(updatedAt))));
+  }
+
+  @Test
+  void testGetUserWhenThereIsNone() throws Exception {
+    given(userProjectionService.getUser(anyLong()))
+        .willThrow(new UserStateNotFoundException("User with id '1' not found"));
+
+    ResultActions resultActions = mockMvc.perform(get("/api/events/users/1")).andDo(print());
+
+    resultActions.andExpect(status().isNotFound());
+  }
+
+  @Test
+  void testGetUserEventSummary() throws Exception {
+    Date lastDatetime = new Date();
+    UserEventSummary userEventSummary =
+        new UserEventSummary(
+            1L, "eventId", "UPDATED", lastDatetime, 2L, Map.of("CREATED", 1L, "UPDATED", 2L));
+    given(userEventSummaryService.getUserEventSummary(1L)).willReturn(userEventSummary);
+
+    ResultActions resultActions =
+        mockMvc.perform(get("/api/events/summary?userId=1")).andDo(print());
+
+    resultActions
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.userId", is(1)))
+        .andExpect(jsonPath("$.lastEventId", is("eventId")))
+        .andExpect(jsonPath("$.lastType", is("UPDATED")))
+        .andExpect(
+            jsonPath("$.lastDatetime", is(MyLocalDateHandler.fromDateToString(lastDatetime))))
+        .andExpect(jsonPath("$.lastVersion", is(2)))
+        .andExpect(jsonPath("$.counts.CREATED", is(1)))
+        .andExpect(jsonPath("$.counts.UPDATED", is(2)));
+  }
+
+  @Test
+  void testGetUserEventSummaryWhenThereIsNone() throws Exception {
+    given(userEventSummaryService.getUserEventSummary(anyLong()))
+        .willThrow(new UserStateNotFoundException("User with id '1' has no events"));
+
+    ResultActions resultActions =
+        mockMvc.perform(get("/api/events/summary?userId=1")).andDo(print());
+
+    resultActions.andExpect(status().isNotFound());
+  }
+
+  private UserEvent getDefaultUserEvent() {
+    return new UserEvent(
+        new UserEventKey(1L, new Date(), 0L),
+        "eventId",
+        "CREATED",
+        "ivan@test.com",
+        "Ivan",
+        true,
+        null);
+  }
 }
@@ -0,0 +1,112 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+class UserEventDeduplicatorTest {
+
+  @MockitoBean private CqlSession session;
+
+  // created for each test, so its prepared statement and filters come from the current mocks
+  private UserEventDeduplicator userEventDeduplicator;
+
+  private AsyncResultSet resultSet;
+
+  @BeforeEach
+  void setUp() {
+    userEventDeduplicator = new UserEventDeduplicator(session, TimeBucket.NONE, 1000, 0.01);
+
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    given(preparedStatement.bind(any(Object[].class))).willReturn(mock(BoundStatement.class));
+    given(session.prepare(anyString())).willReturn(preparedStatement);
+    resultSet = mock(AsyncResultSet.class);
+    given(session.executeAsync(any(Statement.class)))
+        .willReturn(CompletableFuture.completedFuture(resultSet));
+  }
+
+  @Test
+  void testIsDuplicateWhenNew() {
+    assertThat(userEventDeduplicator.isDuplicate(0, createUserEvent("eventId1")))
+        .isCompletedWithValue(false);
+    assertThat(userEventDeduplicator.isDuplicate(0, createUserEvent("eventId2")))
+        .isCompletedWithValue(false);
+
+    then(session).should(never()).executeAsync(any(Statement.class));
+  }
+
+  @Test
+  void testIsDuplicateWhenAlreadyStored() {
+    Row row = mock(Row.class);
+    given(row.getString("eventId")).willReturn("eventId1");
+    given(resultSet.one()).willReturn(row);
+
+    userEventDeduplicator.isDuplicate(0, createUserEvent("eventId1"));
+
+    assertThat(userEventDeduplicator.isDuplicate(0, createUserEvent("eventId1")).join()).isTrue();
+  }
+
+  @Test
+  void testIsDuplicateWhenSeenButNotStored() {
+    given(resultSet.one()).willReturn(null);
+
+    userEventDeduplicator.isDuplicate(0, createUserEvent("eventId1"));
+
+    assertThat(userEventDeduplicator.isDuplicate(0, createUserEvent("eventId1")).join()).isFalse();
+    then(session).should().executeAsync(any(Statement.class));
+  }
+
+  @Test
+  void testIsDuplicateWhenSeenInOtherPartition() {
+    userEventDeduplicator.isDuplicate(0, createUserEvent("eventId1"));
+
+    assertThat(userEventDeduplicator.isDuplicate(1, createUserEvent("eventId1")))
+        .isCompletedWithValue(false);
+    then(session).should(never()).executeAsync(any(Statement.class));
+  }
+
+  @Test
+  void testRecentEventIdsForgetsOlderGenerations() {
+    RecentEventIds recentEventIds = new RecentEventIds(2, 0.01);
+    for (String eventId : new String[] {"a", "b", "c", "d", "e"}) {
+      assertThat(recentEventIds.mightContainThenAdd(eventId)).isFalse();
+    }
+
+    // "e" started a third generation, so only "c" and "d" are still remembered
+    assertThat(recentEventIds.mightContainThenAdd("d")).isTrue();
+    assertThat(recentEventIds.mightContainThenAdd("a")).isFalse();
+  }
+
+  private UserEvent createUserEvent(String eventId) {
+    return new UserEvent(
+        new UserEventKey(1L, new Date(1L), 0L),
+        eventId,
+        "CREATED",
+        "email",
+        "fullName",
+        true,
+        null);
+  }
+}
@@ -0,0 +1,93 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class UserEventLanesTest {
+
+  private UserEventLanes userEventLanes;
+
+  @AfterEach
+  void tearDown() {
+    userEventLanes.shutdown();
+  }
+
+  @Test
+  void testSubmitKeepsOrderOfEachUser() throws InterruptedException {
+    userEventLanes = new UserEventLanes(3, 16);
+    Map<Long, List<Integer>> processedByUserId = new ConcurrentHashMap<>();
+    CountDownLatch done = new CountDownLatch(400);
+
+    for (int i = 0; i < 100; i++) {
+      int sequence = i;
+      for (long userId = 1; userId <= 4; userId++) {
+        long id = userId;
+        userEventLanes.submit(
+            id,
+            () -> {
+              processedByUserId
+                  .computeIfAbsent(id, key -> Collections.synchronizedList(new ArrayList<>()))
+                  .add(sequence);
+              done.countDown();
+            });
+      }
+    }
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    List<Integer> expected = IntStream.range(0, 100).boxed().toList();
+    assertThat(processedByUserId.values())
+        .hasSize(4)
+        .allSatisfy(processed -> assertThat(processed).isEqualTo(expected));
+  }
+
+  @Test
+  void testSubmitRunsOtherLanesWhileOneIsBlocked() throws InterruptedException {
+    userEventLanes = new UserEventLanes(2, 16);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch otherUserDone = new CountDownLatch(1);
+
+    userEventLanes.submit(1L, () -> awaitQuietly(release));
+    userEventLanes.submit(2L, otherUserDone::countDown);
+
+    assertThat(otherUserDone.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(userEventLanes.getPendingTasks()).isEqualTo(1);
+    release.countDown();
+  }
+
+  @Test
+  void testSubmitBlocksWhenMaxPendingIsReached() throws InterruptedException {
+    userEventLanes = new UserEventLanes(2, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch submitted = new CountDownLatch(1);
+
+    userEventLanes.submit(1L, () -> awaitQuietly(release));
+    Thread.ofVirtual()
+        .start(
+            () -> {
+              userEventLanes.submit(2L, () -> {});
+              submitted.countDown();
+            });
+
+    assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+    release.countDown();
+    assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -47,15 +47,15 @@ class UserEventListener2Test {
       Date datetime = new Date();
       EventType eventType = EventType.CREATED;
       Long userId = 1L;
-      String userJson = "{\"email\":\"email\",\"fullName\":\"fullName\",\"active\":true}";
-
       UserEventMessage userEventMessage =
           UserEventMessage.newBuilder()
               .setEventId(eventId)
               .setEventTimestamp(datetime.getTime())
               .setEventType(eventType)
               .setUserId(userId)
-              .setUserJson(userJson)
+              .setEmail("email")
+              .setFullName("fullName")
+              .setActive(true)
               .build();
 
       InputDestination inputDestination = context.getBean(InputDestination.class);
@@ -70,7 +70,9 @@ class UserEventListener2Test {
       assertThat(userEvents.size()).isEqualTo(1);
       assertThat(userEvents.getFirst().getKey().getUserId()).isEqualTo(userId);
       assertThat(userEvents.getFirst().getKey().getDatetime()).isEqualTo(datetime);
-      assertThat(userEvents.getFirst().getData()).isEqualTo(userJson);
+      assertThat(userEvents.getFirst().getEmail()).isEqualTo("email");
+      assertThat(userEvents.getFirst().getFullName()).isEqualTo("fullName");
+      assertThat(userEvents.getFirst().getActive()).isTrue();
       assertThat(userEvents.getFirst().getType()).isEqualTo(eventType.name());
     }
   }
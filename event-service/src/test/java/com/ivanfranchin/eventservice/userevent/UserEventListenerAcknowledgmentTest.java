@@ -0,0 +1,198 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.userservice.messages.EventType;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@Import({UserEventListener.class, UserEventRetrier.class})
+@TestPropertySource(
+    properties = {
+      "app.ingest.retry.max-attempts=3",
+      "app.ingest.retry.initial-backoff=10ms",
+      "app.ingest.retry.max-backoff=20ms"
+    })
+class UserEventListenerAcknowledgmentTest {
+
+  @Autowired private UserEventListener userEventListener;
+
+  @MockitoBean private UserEventService userEventService;
+
+  @MockitoBean private UserStateService userStateService;
+
+  @MockitoBean private UserEventVersionTracker userEventVersionTracker;
+
+  @MockitoBean private UserEventLanes userEventLanes;
+
+  @MockitoBean private UserEventDeadLetters userEventDeadLetters;
+
+  @MockitoBean private UserEventMetrics userEventMetrics;
+
+  private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+  // Lane tasks are run on the calling thread
+  @BeforeEach
+  void setUp() {
+    doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(1).run();
+              return null;
+            })
+        .when(userEventLanes)
+        .submit(anyLong(), any(Runnable.class));
+  }
+
+  @Test
+  void testUsersAsyncAcknowledgesWhenTheWriteSucceeds() {
+    given(userEventService.saveUserEventAsync(any()))
+        .willReturn(CompletableFuture.completedFuture(true));
+
+    userEventListener.usersAsync().accept(createMessage());
+
+    then(acknowledgment).should().acknowledge();
+  }
+
+  @Test
+  void testUsersAsyncRetriesAndAcknowledgesWhenTheWriteFailsOnce() {
+    given(userEventService.saveUserEventAsync(any()))
+        .willReturn(
+            CompletableFuture.failedFuture(new IllegalStateException("write failed")),
+            CompletableFuture.completedFuture(true));
+
+    userEventListener.usersAsync().accept(createMessage());
+
+    then(acknowledgment).should(timeout(1000)).acknowledge();
+    then(userEventService).should(times(2)).saveUserEventAsync(any());
+    then(userStateService).should().recordUserEvent(any(), any());
+    then(userEventDeadLetters).should(never()).send(any(), any());
+  }
+
+  @Test
+  void testUsersAsyncDeadLettersAndAcknowledgesWhenTheWriteKeepsFailing() {
+    given(userEventService.saveUserEventAsync(any()))
+        .willReturn(CompletableFuture.failedFuture(new IllegalStateException("write failed")));
+    given(userEventDeadLetters.send(any(), any())).willReturn(true);
+
+    userEventListener.usersAsync().accept(createMessage());
+
+    then(acknowledgment).should(timeout(1000)).acknowledge();
+    then(userEventService).should(times(3)).saveUserEventAsync(any());
+    then(userEventDeadLetters).should().send(any(), any());
+  }
+
+  @Test
+  void testUsersAsyncLeavesTheRecordUnacknowledgedWhenTheDeadLetterIsNotSent() {
+    given(userEventService.saveUserEventAsync(any()))
+        .willReturn(CompletableFuture.failedFuture(new IllegalStateException("write failed")));
+    given(userEventDeadLetters.send(any(), any())).willReturn(false);
+
+    userEventListener.usersAsync().accept(createMessage());
+
+    then(userEventDeadLetters).should(timeout(1000)).send(any(), any());
+    then(acknowledgment).should(never()).acknowledge();
+  }
+
+  @Test
+  void testUsersLanesAcknowledgesWhenTheSaveSucceeds() {
+    given(userEventService.saveUserEvent(any(Message.class))).willReturn(Optional.empty());
+
+    userEventListener.usersLanes().accept(createMessage());
+
+    then(acknowledgment).should().acknowledge();
+  }
+
+  @Test
+  void testUsersLanesRetriesAndAcknowledgesWhenTheSaveFailsOnce() {
+    given(userEventService.saveUserEvent(any(Message.class)))
+        .willThrow(new IllegalStateException("write failed"))
+        .willReturn(Optional.of(new UserEvent()));
+
+    userEventListener.usersLanes().accept(createMessage());
+
+    then(acknowledgment).should().acknowledge();
+    then(userEventService).should(times(2)).saveUserEvent(any(Message.class));
+    then(userStateService).should().recordUserEvent(any(), any());
+    then(userEventDeadLetters).should(never()).send(any(), any());
+  }
+
+  @Test
+  void testUsersLanesDeadLettersAndAcknowledgesWhenTheSaveKeepsFailing() {
+    given(userEventService.saveUserEvent(any(Message.class)))
+        .willThrow(new IllegalStateException("write failed"));
+    given(userEventDeadLetters.send(any(), any())).willReturn(true);
+
+    userEventListener.usersLanes().accept(createMessage());
+
+    then(acknowledgment).should().acknowledge();
+    then(userEventService).should(times(3)).saveUserEvent(any(Message.class));
+    then(userEventDeadLetters).should().send(any(), any());
+  }
+
+  @Test
+  void testUsersLanesLeavesTheRecordUnacknowledgedWhenTheDeadLetterIsNotSent() {
+    given(userEventService.saveUserEvent(any(Message.class)))
+        .willThrow(new IllegalStateException("write failed"));
+    given(userEventDeadLetters.send(any(), any())).willReturn(false);
+
+    userEventListener.usersLanes().accept(createMessage());
+
+    then(acknowledgment).should(never()).acknowledge();
+  }
+
+  private Message<UserEventMessage> createMessage() {
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId(UUID.randomUUID().toString())
+            .setEventTimestamp(System.currentTimeMillis())
+            .setEventType(EventType.CREATED)
+            .setUserId(1L)
+            .setVersion(0L)
+            .setEmail("email")
+            .setFullName("fullName")
+            .setActive(true)
+            .build();
+    return MessageBuilder.withPayload(userEventMessage)
+        .setHeader(KafkaHeaders.RECEIVED_PARTITION, 0)
+        .setHeader(KafkaHeaders.ACKNOWLEDGMENT, acknowledgment)
+        .build();
+  }
+
+  @TestConfiguration
+  static class ConversionConfig {
+
+    // converts the Duration properties, as Spring Boot does in the application
+    @Bean
+    static ConversionService conversionService() {
+      return ApplicationConversionService.getSharedInstance();
+    }
+  }
+}
@@ -44,15 +44,15 @@ class UserEventListenerTest {
     Date datetime = new Date();
     EventType eventType = EventType.CREATED;
     Long userId = 1L;
-    String userJson = "{\"email\":\"email\",\"fullName\":\"fullName\",\"active\":true}";
-
     UserEventMessage userEventMessage =
         UserEventMessage.newBuilder()
             .setEventId(eventId)
             .setEventTimestamp(datetime.getTime())
             .setEventType(eventType)
             .setUserId(userId)
-            .setUserJson(userJson)
+            .setEmail("email")
+            .setFullName("fullName")
+            .setActive(true)
             .build();
 
     inputDestination.send(
@@ -63,7 +63,9 @@ class UserEventListenerTest {
     assertThat(userEvents.size()).isEqualTo(1);
     assertThat(userEvents.getFirst().getKey().getUserId()).isEqualTo(userId);
     assertThat(userEvents.getFirst().getKey().getDatetime()).isEqualTo(datetime);
-    assertThat(userEvents.getFirst().getData()).isEqualTo(userJson);
+    assertThat(userEvents.getFirst().getEmail()).isEqualTo("email");
+    assertThat(userEvents.getFirst().getFullName()).isEqualTo("fullName");
+    assertThat(userEvents.getFirst().getActive()).isTrue();
     assertThat(userEvents.getFirst().getType()).isEqualTo(eventType.name());
   }
 }
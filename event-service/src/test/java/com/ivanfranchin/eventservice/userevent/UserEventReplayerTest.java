@@ -0,0 +1,157 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+
+import com.ivanfranchin.avroconverter.CachingAvroMessageConverter;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.userservice.messages.EventType;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.function.json.JacksonMapper;
+import org.springframework.cloud.schema.registry.avro.AvroSchemaServiceManagerImpl;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import tools.jackson.databind.json.JsonMapper;
+
+class UserEventReplayerTest {
+
+  private final UserEventWriter userEventWriter = mock(UserEventWriter.class);
+  private final UserProjectionService userProjectionService = mock(UserProjectionService.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CachingAvroMessageConverter avroMessageConverter =
+      new CachingAvroMessageConverter(
+          MimeType.valueOf("application/*+avro"), new AvroSchemaServiceManagerImpl());
+
+  private UserEventReplayer userEventReplayer;
+
+  @BeforeEach
+  void setUp() {
+    given(userEventWriter.writeAll(anyList())).willReturn(CompletableFuture.completedFuture(null));
+    given(userProjectionService.applyAll(anyList()))
+        .willReturn(CompletableFuture.completedFuture(null));
+    userEventReplayer =
+        new UserEventReplayer(
+            userEventWriter,
+            userProjectionService,
+            new ReplayProgress(meterRegistry),
+            avroMessageConverter,
+            new JacksonMapper(JsonMapper.builder().build()),
+            mock(ConfigurableApplicationContext.class),
+            "application/json",
+            "",
+            null);
+  }
+
+  @Test
+  void testUsersReplayDecodesEachRecordWithItsContentType() {
+    byte[] avro = encodeAvro(createUserEventMessage("avroEventId"));
+    byte[] json =
+        """
+        {"eventId":"jsonEventId","eventTimestamp":1,"eventType":"UPDATED","userId":2}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    userEventReplayer
+        .usersReplay()
+        .accept(
+            createBatch(
+                List.of(avro, json),
+                List.of(
+                    Map.of(MessageHeaders.CONTENT_TYPE, "application/*+avro"),
+                    Map.of(MessageHeaders.CONTENT_TYPE, "application/json"))));
+
+    assertThat(writtenUserEvents())
+        .extracting(UserEvent::getEventId)
+        .containsExactly("avroEventId", "jsonEventId");
+  }
+
+  @Test
+  void testUsersReplaySkipsUndecodableRecords() {
+    byte[] avro = encodeAvro(createUserEventMessage("avroEventId"));
+    byte[] undecodable = {(byte) 200, 1, 2};
+
+    userEventReplayer
+        .usersReplay()
+        .accept(
+            createBatch(
+                List.of(undecodable, avro),
+                List.of(
+                    Map.of(MessageHeaders.CONTENT_TYPE, "application/*+avro"),
+                    Map.of(MessageHeaders.CONTENT_TYPE, "application/*+avro"))));
+
+    assertThat(writtenUserEvents())
+        .extracting(UserEvent::getEventId)
+        .containsExactly("avroEventId");
+    assertThat(
+            meterRegistry.get("user.events.replay.skipped").tag("partition", "0").counter().count())
+        .isEqualTo(1);
+    assertThat(
+            meterRegistry
+                .get("user.events.replay.replayed")
+                .tag("partition", "0")
+                .counter()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testUsersReplayReadsRecordsWithoutContentTypeWithTheDefault() {
+    byte[] json =
+        """
+        {"eventId":"jsonEventId","eventTimestamp":1,"eventType":"CREATED","userId":2}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    userEventReplayer.usersReplay().accept(createBatch(List.of(json), List.of(Map.of())));
+
+    assertThat(writtenUserEvents())
+        .extracting(UserEvent::getEventId)
+        .containsExactly("jsonEventId");
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<UserEvent> writtenUserEvents() {
+    ArgumentCaptor<List<UserEvent>> captor = ArgumentCaptor.forClass(List.class);
+    then(userEventWriter).should().writeAll(captor.capture());
+    return captor.getValue();
+  }
+
+  private static Message<List<byte[]>> createBatch(
+      List<byte[]> payloads, List<Map<String, Object>> headers) {
+    return MessageBuilder.withPayload(payloads)
+        .setHeader(KafkaHeaders.RECEIVED_PARTITION, payloads.stream().map(payload -> 0).toList())
+        .setHeader(KafkaHeaders.OFFSET, LongStream.range(0, payloads.size()).boxed().toList())
+        .setHeader(KafkaHeaders.BATCH_CONVERTED_HEADERS, headers)
+        .build();
+  }
+
+  private byte[] encodeAvro(UserEventMessage userEventMessage) {
+    return (byte[])
+        avroMessageConverter.toMessage(userEventMessage, new MessageHeaders(Map.of())).getPayload();
+  }
+
+  private static UserEventMessage createUserEventMessage(String eventId) {
+    return UserEventMessage.newBuilder()
+        .setEventId(eventId)
+        .setEventTimestamp(1L)
+        .setEventType(EventType.CREATED)
+        .setUserId(1L)
+        .setVersion(0L)
+        .setEmail("ivan@test.com")
+        .build();
+  }
+}
@@ -67,6 +67,7 @@ class UserEventRepositoryTest {
   }
 
   private UserEvent createUserEvent(Long userId, Date datetime, String type, String data) {
-    return new UserEvent(new UserEventKey(userId, datetime), type, data);
+    return new UserEvent(
+        new UserEventKey(userId, datetime, 0L), "eventId", type, null, null, null, data);
   }
 }
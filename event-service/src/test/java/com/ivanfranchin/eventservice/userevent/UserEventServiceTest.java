@@ -1,51 +1,192 @@
 package com.ivanfranchin.eventservice.userevent;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 
+import com.ivanfranchin.eventservice.userevent.exception.InvalidUserEventQueryException;
 import com.ivanfranchin.eventservice.userevent.model.UserEvent;
 import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserEventPage;
+import com.ivanfranchin.userservice.messages.EventType;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.cassandra.core.query.CassandraPageRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
-@Import(UserEventService.class)
+@Import({UserEventService.class, UserEventMetrics.class})
+@TestPropertySource(
+    properties = {
+      "app.events.default-limit=100",
+      "app.events.max-limit=" + UserEventServiceTest.MAX_LIMIT,
+      "app.events.time-bucket=NONE",
+      "app.events.stream-fetch-size=" + UserEventServiceTest.STREAM_FETCH_SIZE
+    })
 class UserEventServiceTest {
 
+  static final int MAX_LIMIT = 1000;
+  static final int STREAM_FETCH_SIZE = 500;
+
   @Autowired private UserEventService userEventService;
 
+  @Autowired private MeterRegistry meterRegistry;
+
   @MockitoBean private UserEventRepository userEventRepository;
 
+  @MockitoBean private UserEventWriter userEventWriter;
+
+  @MockitoBean private BucketedUserEventReader bucketedUserEventReader;
+
+  @MockitoBean private UserEventDeduplicator userEventDeduplicator;
+
+  @MockitoBean private UserProjectionService userProjectionService;
+
+  @MockitoBean private UserEventSummaryService userEventSummaryService;
+
+  @BeforeEach
+  void setUp() {
+    given(userEventDeduplicator.isDuplicate(any(), any(UserEvent.class)))
+        .willReturn(CompletableFuture.completedFuture(false));
+    given(userProjectionService.apply(any(UserEvent.class)))
+        .willReturn(CompletableFuture.completedFuture(null));
+    given(userProjectionService.applyAll(anyList()))
+        .willReturn(CompletableFuture.completedFuture(null));
+    given(userEventSummaryService.count(any(UserEvent.class)))
+        .willReturn(CompletableFuture.completedFuture(null));
+    given(userEventSummaryService.countAll(anyList()))
+        .willReturn(CompletableFuture.completedFuture(null));
+  }
+
   @Test
   void testGetUserEventsWhenThereIsNone() {
-    given(userEventRepository.findByKeyUserId(anyLong())).willReturn(Collections.emptyList());
+    given(userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), any()))
+        .willReturn(new SliceImpl<>(Collections.emptyList()));
 
-    List<UserEvent> userEvents = userEventService.getUserEvents(1L);
+    UserEventPage userEventPage =
+        userEventService.getUserEvents(1L, null, null, Sort.Direction.ASC, null, null);
 
-    assertThat(userEvents).isNotNull();
-    assertThat(userEvents).isEmpty();
+    assertThat(userEventPage.userEvents()).isEmpty();
+    assertThat(userEventPage.nextPageToken()).isNull();
   }
 
   @Test
   void testGetUserEventsWhenThereIsOne() {
     UserEvent userEvent = getDefaultUserEvent();
-    given(userEventRepository.findByKeyUserId(anyLong()))
-        .willReturn(Collections.singletonList(userEvent));
+    given(userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), any()))
+        .willReturn(new SliceImpl<>(Collections.singletonList(userEvent)));
 
-    List<UserEvent> userEvents = userEventService.getUserEvents(1L);
+    UserEventPage userEventPage =
+        userEventService.getUserEvents(1L, null, null, Sort.Direction.ASC, null, null);
 
-    assertThat(userEvents).isNotNull();
-    assertThat(userEvents.size()).isEqualTo(1);
-    assertThat(userEvents.getFirst()).isEqualTo(userEvent);
+    assertThat(userEventPage.userEvents()).containsExactly(userEvent);
+    assertThat(userEventPage.nextPageToken()).isNull();
+  }
+
+  @Test
+  void testGetUserEventsUsesBoundsOrderAndLimit() {
+    given(userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), any()))
+        .willReturn(new SliceImpl<>(Collections.emptyList()));
+
+    Instant from = Instant.parse("2024-01-01T00:00:00Z");
+    Instant to = Instant.parse("2024-02-01T00:00:00Z");
+    userEventService.getUserEvents(1L, from, to, Sort.Direction.DESC, 5000, null);
+
+    ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+    then(userEventRepository)
+        .should()
+        .findByKeyUserIdAndKeyDatetimeBetween(
+            eq(1L), eq(Date.from(from)), eq(Date.from(to)), captor.capture());
+    assertThat(captor.getValue().getPageSize()).isEqualTo(MAX_LIMIT);
+    assertThat(captor.getValue().getSort()).isEqualTo(Sort.by(Sort.Direction.DESC, "key.datetime"));
+  }
+
+  @Test
+  void testGetUserEventsRoundTripsPageToken() {
+    ByteBuffer pagingState = ByteBuffer.wrap(new byte[] {1, 2, 3});
+    given(userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), any()))
+        .willReturn(
+            new SliceImpl<>(
+                Collections.singletonList(getDefaultUserEvent()),
+                CassandraPageRequest.of(PageRequest.of(0, 1), pagingState),
+                true));
+
+    UserEventPage userEventPage =
+        userEventService.getUserEvents(1L, null, null, Sort.Direction.ASC, 1, null);
+    assertThat(userEventPage.nextPageToken()).isNotNull();
+
+    userEventService.getUserEvents(
+        1L, null, null, Sort.Direction.ASC, 1, userEventPage.nextPageToken());
+
+    ArgumentCaptor<CassandraPageRequest> captor =
+        ArgumentCaptor.forClass(CassandraPageRequest.class);
+    then(userEventRepository)
+        .should(times(2))
+        .findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), captor.capture());
+    assertThat(captor.getAllValues().get(1).getPagingState()).isEqualTo(pagingState);
+  }
+
+  @Test
+  void testGetUserEventsWhenPageTokenIsMalformed() {
+    assertThatExceptionOfType(InvalidUserEventQueryException.class)
+        .isThrownBy(
+            () -> userEventService.getUserEvents(1L, null, null, Sort.Direction.ASC, null, "%%"))
+        .withMessage("The page token is malformed.");
+  }
+
+  @Test
+  void testForEachUserEventPageReadsAllPages() {
+    UserEvent userEvent1 = getDefaultUserEvent();
+    UserEvent userEvent2 = getDefaultUserEvent();
+    given(userEventRepository.findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), any()))
+        .willReturn(
+            new SliceImpl<>(
+                List.of(userEvent1),
+                CassandraPageRequest.of(PageRequest.of(0, 1), ByteBuffer.wrap(new byte[] {1})),
+                true))
+        .willReturn(new SliceImpl<>(List.of(userEvent2)));
+
+    List<List<UserEvent>> pages = new ArrayList<>();
+    userEventService.forEachUserEventPage(1L, null, null, Sort.Direction.ASC, pages::add);
+
+    assertThat(pages).containsExactly(List.of(userEvent1), List.of(userEvent2));
+    ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+    then(userEventRepository)
+        .should(times(2))
+        .findByKeyUserIdAndKeyDatetimeBetween(anyLong(), any(), any(), captor.capture());
+    assertThat(captor.getAllValues().get(0).getPageSize()).isEqualTo(STREAM_FETCH_SIZE);
   }
 
   @Test
@@ -59,7 +200,239 @@ class UserEventServiceTest {
     assertThat(userEventSaved).isEqualTo(userEvent);
   }
 
+  @Test
+  void testSaveUserEventWhenDuplicate() {
+    given(userEventDeduplicator.isDuplicate(eq(2), any(UserEvent.class)))
+        .willReturn(CompletableFuture.completedFuture(true));
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.DELETED)
+            .setUserId(1L)
+            .build();
+    Optional<UserEvent> userEventSaved =
+        userEventService.saveUserEvent(
+            MessageBuilder.withPayload(userEventMessage)
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, 2)
+                .build());
+
+    assertThat(userEventSaved).isEmpty();
+    then(userEventRepository).shouldHaveNoInteractions();
+    then(userEventWriter).shouldHaveNoInteractions();
+    // the projection is idempotent, so the duplicate is applied again
+    then(userProjectionService).should().apply(any(UserEvent.class));
+    then(userEventSummaryService).shouldHaveNoInteractions();
+    assertThat(consumed("2", "DELETED", "duplicate")).isEqualTo(1);
+  }
+
+  @Test
+  void testSaveUserEventWhenWriteFails() {
+    given(userEventRepository.save(any(UserEvent.class)))
+        .willThrow(new IllegalStateException("Cassandra is down"));
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.UPDATED)
+            .setUserId(1L)
+            .build();
+
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(
+            () ->
+                userEventService.saveUserEvent(
+                    MessageBuilder.withPayload(userEventMessage)
+                        .setHeader(KafkaHeaders.RECEIVED_PARTITION, 0)
+                        .build()));
+    assertThat(consumed("0", "UPDATED", "failed")).isEqualTo(1);
+    assertThat(meterRegistry.get("user.events.write").tag("mode", "single").timer().count())
+        .isEqualTo(1);
+    // the redelivered event is counted once it is stored
+    then(userEventSummaryService).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testSaveUserEvents() {
+    given(userEventWriter.writeAll(anyList())).willReturn(CompletableFuture.completedFuture(null));
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.CREATED)
+            .setUserId(1L)
+            .setVersion(3L)
+            .setEmail("email")
+            .setFullName("fullName")
+            .setActive(true)
+            .build();
+    UserEventMessage duplicateMessage =
+        UserEventMessage.newBuilder(userEventMessage).setEventId("duplicateId").build();
+    given(userEventDeduplicator.isDuplicate(eq(1), any(UserEvent.class)))
+        .willAnswer(
+            invocation ->
+                CompletableFuture.completedFuture(
+                    "duplicateId".equals(invocation.<UserEvent>getArgument(1).getEventId())));
+
+    List<UserEventMessage> saved =
+        userEventService.saveUserEvents(
+            MessageBuilder.withPayload(List.of(userEventMessage, duplicateMessage))
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, List.of(0, 1))
+                .build());
+
+    assertThat(saved).containsExactly(userEventMessage);
+    ArgumentCaptor<List<UserEvent>> captor = ArgumentCaptor.captor();
+    then(userProjectionService).should().applyAll(captor.capture());
+    assertThat(captor.getValue())
+        .extracting(UserEvent::getEventId)
+        .containsExactly("eventId", "duplicateId");
+    then(userEventSummaryService).should().countAll(captor.capture());
+    assertThat(captor.getValue()).extracting(UserEvent::getEventId).containsExactly("eventId");
+    then(userEventWriter)
+        .should()
+        .writeAll(
+            List.of(
+                new UserEvent(
+                    new UserEventKey(1L, new Date(1L), 3L),
+                    "eventId",
+                    "CREATED",
+                    "email",
+                    "fullName",
+                    true,
+                    null)));
+    assertThat(consumed("0", "CREATED", "saved")).isEqualTo(1);
+    assertThat(consumed("1", "CREATED", "duplicate")).isEqualTo(1);
+  }
+
+  @Test
+  void testSaveUserEventAsync() {
+    given(userEventWriter.write(any(UserEvent.class)))
+        .willReturn(CompletableFuture.completedFuture(null));
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.DELETED)
+            .setUserId(1L)
+            .build();
+    CompletableFuture<Boolean> future =
+        userEventService.saveUserEventAsync(MessageBuilder.withPayload(userEventMessage).build());
+
+    assertThat(future).isCompletedWithValue(true);
+    then(userEventWriter)
+        .should()
+        // events without version, sent before it existed, are stored with version 0
+        .write(
+            new UserEvent(
+                new UserEventKey(1L, new Date(1L), 0L),
+                "eventId",
+                "DELETED",
+                null,
+                null,
+                null,
+                null));
+  }
+
+  @Test
+  void testSaveUserEventAsyncWhenDuplicate() {
+    CompletableFuture<Boolean> lookup = new CompletableFuture<>();
+    given(userEventDeduplicator.isDuplicate(eq(4), any(UserEvent.class))).willReturn(lookup);
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.DELETED)
+            .setUserId(1L)
+            .build();
+    CompletableFuture<Boolean> future =
+        userEventService.saveUserEventAsync(
+            MessageBuilder.withPayload(userEventMessage)
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, 4)
+                .build());
+
+    // the consumer thread isn't blocked while Cassandra is read
+    assertThat(future).isNotDone();
+    lookup.complete(true);
+
+    assertThat(future).isCompletedWithValue(false);
+    then(userEventWriter).shouldHaveNoInteractions();
+    then(userProjectionService).should().apply(any(UserEvent.class));
+    then(userEventSummaryService).shouldHaveNoInteractions();
+    assertThat(consumed("4", "DELETED", "duplicate")).isEqualTo(1);
+  }
+
+  @Test
+  void testSaveUserEventAsyncWhenWriteFails() {
+    given(userEventWriter.write(any(UserEvent.class)))
+        .willReturn(CompletableFuture.failedFuture(new IllegalStateException("Cassandra is down")));
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.UPDATED)
+            .setUserId(1L)
+            .build();
+    CompletableFuture<Boolean> future =
+        userEventService.saveUserEventAsync(
+            MessageBuilder.withPayload(userEventMessage)
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, 3)
+                .build());
+
+    assertThat(future).isCompletedExceptionally();
+    then(userEventSummaryService).shouldHaveNoInteractions();
+    assertThat(consumed("3", "UPDATED", "failed")).isEqualTo(1);
+  }
+
+  @Test
+  void testSaveUserEventsWhenWriteFails() {
+    given(userEventWriter.writeAll(anyList()))
+        .willReturn(CompletableFuture.failedFuture(new IllegalStateException("Cassandra is down")));
+
+    UserEventMessage userEventMessage =
+        UserEventMessage.newBuilder()
+            .setEventId("eventId")
+            .setEventTimestamp(1L)
+            .setEventType(EventType.CREATED)
+            .setUserId(1L)
+            .build();
+
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(
+            () ->
+                userEventService.saveUserEvents(
+                    MessageBuilder.withPayload(List.of(userEventMessage))
+                        .setHeader(KafkaHeaders.RECEIVED_PARTITION, List.of(4))
+                        .build()));
+    // the batch is redelivered and counted once it is stored
+    then(userEventSummaryService).shouldHaveNoInteractions();
+    assertThat(consumed("4", "CREATED", "failed")).isEqualTo(1);
+  }
+
+  private double consumed(String partition, String type, String outcome) {
+    return meterRegistry
+        .get("user.events.consumed")
+        .tags("partition", partition, "type", type, "outcome", outcome)
+        .counter()
+        .count();
+  }
+
   private UserEvent getDefaultUserEvent() {
-    return new UserEvent(new UserEventKey(1L, new Date()), "type", "data");
+    return new UserEvent(
+        new UserEventKey(1L, new Date(), 0L), "eventId", "type", "email", "fullName", true, null);
+  }
+
+  @TestConfiguration
+  static class MeterRegistryConfig {
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
   }
 }
@@ -0,0 +1,152 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserEventSummary;
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@Import(UserEventSummaryService.class)
+@TestPropertySource(properties = "app.ingest.max-in-flight=1")
+class UserEventSummaryServiceTest {
+
+  @Autowired private UserEventSummaryService userEventSummaryService;
+
+  @MockitoBean private CqlSession session;
+
+  @MockitoBean private UserProjectionRepository userProjectionRepository;
+
+  private final AsyncResultSet resultSet = mock(AsyncResultSet.class);
+
+  @BeforeEach
+  void setUp() {
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    given(preparedStatement.bind(any(Object[].class)))
+        .willAnswer(invocation -> mock(BoundStatement.class));
+    given(session.prepare(anyString())).willReturn(preparedStatement);
+    given(session.executeAsync(any(Statement.class)))
+        .willReturn(CompletableFuture.completedFuture(resultSet));
+  }
+
+  @Test
+  void testCountAllGroupsEventsByUserIdInCounterBatches() {
+    userEventSummaryService
+        .countAll(
+            List.of(
+                createUserEvent(1L, "CREATED"),
+                createUserEvent(2L, "CREATED"),
+                createUserEvent(1L, "UPDATED"),
+                createUserEvent(1L, "UPDATED")))
+        .join();
+
+    // user 1 has CREATED and UPDATED counts, and user 2 has a CREATED count
+    ArgumentCaptor<BatchStatement> captor = ArgumentCaptor.forClass(BatchStatement.class);
+    then(session).should(times(2)).executeAsync(captor.capture());
+    assertThat(captor.getAllValues())
+        .allSatisfy(batch -> assertThat(batch.getBatchType()).isEqualTo(BatchType.COUNTER))
+        .extracting(BatchStatement::size)
+        .containsExactly(2, 1);
+  }
+
+  @Test
+  void testCountWaitsForTheInFlightWindow() {
+    CompletableFuture<AsyncResultSet> firstResult = new CompletableFuture<>();
+    given(session.executeAsync(any(Statement.class)))
+        .willReturn(firstResult, CompletableFuture.completedFuture(resultSet));
+
+    CompletableFuture<Void> first = userEventSummaryService.count(createUserEvent(1L, "CREATED"));
+    CompletableFuture<Void> second = userEventSummaryService.count(createUserEvent(2L, "CREATED"));
+
+    then(session).should(after(100).times(1)).executeAsync(any(Statement.class));
+    assertThat(second).isNotDone();
+
+    firstResult.complete(resultSet);
+
+    first.join();
+    second.join();
+    then(session).should(times(2)).executeAsync(any(Statement.class));
+  }
+
+  @Test
+  void testGetUserEventSummary() {
+    Date updatedAt = new Date();
+    given(userProjectionRepository.findById(1L))
+        .willReturn(
+            Optional.of(
+                new UserProjection(
+                    1L,
+                    "ivan@test.com",
+                    "Ivan",
+                    true,
+                    null,
+                    2L,
+                    new Date(0),
+                    updatedAt,
+                    "eventId",
+                    "UPDATED")));
+    List<Row> rows = List.of(countRow("UPDATED", 2L), countRow("CREATED", 1L));
+    given(resultSet.currentPage()).willReturn(rows);
+
+    UserEventSummary userEventSummary = userEventSummaryService.getUserEventSummary(1L);
+
+    assertThat(userEventSummary)
+        .isEqualTo(
+            new UserEventSummary(
+                1L, "eventId", "UPDATED", updatedAt, 2L, Map.of("CREATED", 1L, "UPDATED", 2L)));
+  }
+
+  @Test
+  void testGetUserEventSummaryWhenThereIsNone() {
+    given(userProjectionRepository.findById(anyLong())).willReturn(Optional.empty());
+    given(resultSet.currentPage()).willReturn(List.of());
+
+    assertThatExceptionOfType(UserStateNotFoundException.class)
+        .isThrownBy(() -> userEventSummaryService.getUserEventSummary(1L));
+  }
+
+  private static Row countRow(String type, long count) {
+    Row row = mock(Row.class);
+    given(row.getString("type")).willReturn(type);
+    given(row.getLong("count")).willReturn(count);
+    return row;
+  }
+
+  private static UserEvent createUserEvent(Long userId, String type) {
+    return new UserEvent(
+        new UserEventKey(userId, new Date(), 0L), "eventId", type, null, null, null, null);
+  }
+}
@@ -0,0 +1,69 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ivanfranchin.eventservice.userevent.UserEventVersionTracker.Result;
+import com.ivanfranchin.userservice.messages.EventType;
+import com.ivanfranchin.userservice.messages.UserEventMessage;
+import org.junit.jupiter.api.Test;
+
+class UserEventVersionTrackerTest {
+
+  private final UserEventVersionTracker userEventVersionTracker = new UserEventVersionTracker(100);
+
+  @Test
+  void testTrackInOrder() {
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, 0L)))
+        .isEqualTo(Result.IN_ORDER);
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, 1L)))
+        .isEqualTo(Result.IN_ORDER);
+    assertThat(userEventVersionTracker.track(createUserEventMessage(2L, 5L)))
+        .isEqualTo(Result.IN_ORDER);
+  }
+
+  @Test
+  void testTrackGap() {
+    userEventVersionTracker.track(createUserEventMessage(1L, 0L));
+
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, 3L))).isEqualTo(Result.GAP);
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, 4L)))
+        .isEqualTo(Result.IN_ORDER);
+  }
+
+  @Test
+  void testTrackDuplicate() {
+    userEventVersionTracker.track(createUserEventMessage(1L, 0L));
+    userEventVersionTracker.track(createUserEventMessage(1L, 1L));
+
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, 1L)))
+        .isEqualTo(Result.DUPLICATE);
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, 2L)))
+        .isEqualTo(Result.IN_ORDER);
+  }
+
+  @Test
+  void testTrackUnversioned() {
+    assertThat(userEventVersionTracker.track(createUserEventMessage(1L, null)))
+        .isEqualTo(Result.UNVERSIONED);
+  }
+
+  @Test
+  void testTrackForgetsUsersBeyondMaxUsers() {
+    UserEventVersionTracker boundedTracker = new UserEventVersionTracker(10);
+    for (long userId = 1; userId <= 100; userId++) {
+      boundedTracker.track(createUserEventMessage(userId, 0L));
+    }
+
+    assertThat(boundedTracker.trackedUsers()).isEqualTo(10);
+  }
+
+  private UserEventMessage createUserEventMessage(Long userId, Long version) {
+    return UserEventMessage.newBuilder()
+        .setEventId("eventId")
+        .setEventTimestamp(1L)
+        .setEventType(EventType.UPDATED)
+        .setUserId(userId)
+        .setVersion(version)
+        .build();
+  }
+}
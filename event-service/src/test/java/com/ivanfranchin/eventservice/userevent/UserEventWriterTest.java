@@ -0,0 +1,154 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.model.TimeBucket;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@Import(UserEventWriter.class)
+@TestPropertySource(
+    properties = {
+      "app.ingest.max-batch-statements=2",
+      "app.ingest.max-in-flight=4",
+      "app.events.time-bucket=NONE"
+    })
+class UserEventWriterTest {
+
+  @Autowired private UserEventWriter userEventWriter;
+
+  @MockitoBean private CqlSession session;
+
+  private PreparedStatement preparedStatement;
+
+  @BeforeEach
+  void setUp() {
+    preparedStatement = mock(PreparedStatement.class);
+    given(preparedStatement.bind(any(Object[].class)))
+        .willAnswer(invocation -> mock(BoundStatement.class));
+    given(session.prepare(anyString())).willReturn(preparedStatement);
+    given(session.executeAsync(any(Statement.class)))
+        .willReturn(CompletableFuture.completedFuture(mock(AsyncResultSet.class)));
+  }
+
+  @Test
+  void testWriteAllGroupsEventsByUserIdInUnloggedBatches() {
+    List<UserEvent> userEvents =
+        List.of(
+            createUserEvent(1L, 1L),
+            createUserEvent(2L, 2L),
+            createUserEvent(1L, 3L),
+            createUserEvent(1L, 4L));
+
+    userEventWriter.writeAll(userEvents).join();
+
+    // user 1 has 3 events, split in chunks of 2, and user 2 has 1 event
+    ArgumentCaptor<BatchStatement> captor = ArgumentCaptor.forClass(BatchStatement.class);
+    then(session).should(times(3)).executeAsync(captor.capture());
+    assertThat(captor.getAllValues())
+        .allSatisfy(batch -> assertThat(batch.getBatchType()).isEqualTo(BatchType.UNLOGGED))
+        .extracting(BatchStatement::size)
+        .containsExactly(2, 1, 1);
+  }
+
+  @Test
+  void testWriteReleasesInFlightPermitWhenCompleted() {
+    CompletableFuture<AsyncResultSet> resultSetFuture = new CompletableFuture<>();
+    given(session.executeAsync(any(Statement.class))).willReturn(resultSetFuture);
+
+    CompletableFuture<Void> future = userEventWriter.write(createUserEvent(1L, 1L));
+
+    assertThat(future).isNotDone();
+    assertThat(userEventWriter.getInFlightWrites()).isEqualTo(1);
+
+    resultSetFuture.complete(mock(AsyncResultSet.class));
+
+    assertThat(future).isCompleted();
+    assertThat(userEventWriter.getInFlightWrites()).isZero();
+  }
+
+  @Test
+  void testWriteReleasesInFlightPermitWhenFailed() {
+    given(session.executeAsync(any(Statement.class)))
+        .willReturn(CompletableFuture.failedFuture(new IllegalStateException("write failed")));
+
+    CompletableFuture<Void> future = userEventWriter.write(createUserEvent(1L, 1L));
+
+    assertThat(future).isCompletedExceptionally();
+    assertThat(userEventWriter.getInFlightWrites()).isZero();
+  }
+
+  @Test
+  void testWriteAllWhenThereIsNone() {
+    userEventWriter.writeAll(List.of()).join();
+
+    then(session).should(times(0)).executeAsync(any(Statement.class));
+  }
+
+  @Test
+  void testWriteAllWithTimeBucketGroupsEventsByUserIdAndBucket() {
+    UserEventWriter bucketedUserEventWriter = new UserEventWriter(session, 2, 4, TimeBucket.DAY);
+    long oneDay = Duration.ofDays(1).toMillis();
+    List<UserEvent> userEvents =
+        List.of(
+            createUserEvent(1L, 1L),
+            createUserEvent(1L, oneDay + 1),
+            createUserEvent(1L, 2L),
+            createUserEvent(2L, 3L));
+
+    bucketedUserEventWriter.writeAll(userEvents).join();
+
+    // 3 partitions: (1, 19700101) with 2 events, (1, 19700102) and (2, 19700101) with 1 event each.
+    // Each partition gets its bucket recorded and one batch.
+    then(session).should().prepare(contains("INSERT INTO user_events_by_bucket"));
+    then(session).should().prepare(contains("INSERT INTO user_event_buckets"));
+    ArgumentCaptor<Statement<?>> captor = ArgumentCaptor.forClass(Statement.class);
+    then(session).should(times(6)).executeAsync(captor.capture());
+    assertThat(captor.getAllValues())
+        .filteredOn(BatchStatement.class::isInstance)
+        .extracting(statement -> ((BatchStatement) statement).size())
+        .containsExactly(2, 1, 1);
+    then(preparedStatement).should().bind(1L, 19700101L);
+    then(preparedStatement).should().bind(1L, 19700102L);
+    then(preparedStatement).should().bind(2L, 19700101L);
+  }
+
+  private UserEvent createUserEvent(Long userId, long datetime) {
+    return new UserEvent(
+        new UserEventKey(userId, new Date(datetime), 0L),
+        "eventId",
+        "CREATED",
+        "email",
+        "fullName",
+        true,
+        null);
+  }
+}
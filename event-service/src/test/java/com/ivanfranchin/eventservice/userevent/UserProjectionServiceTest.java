@@ -0,0 +1,208 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserProjection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import tools.jackson.databind.ObjectMapper;
+
+@ExtendWith(SpringExtension.class)
+@Import(UserProjectionService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(
+    properties = {"app.ingest.max-batch-statements=2", "app.ingest.max-in-flight=4"})
+class UserProjectionServiceTest {
+
+  @Autowired private UserProjectionService userProjectionService;
+
+  @Autowired private ObjectMapper objectMapper;
+
+  @MockitoBean private CqlSession session;
+
+  @MockitoBean private UserProjectionRepository userProjectionRepository;
+
+  private BoundStatementBuilder boundStatementBuilder;
+
+  @BeforeEach
+  void setUp() {
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    boundStatementBuilder = mock(BoundStatementBuilder.class, RETURNS_SELF);
+    given(boundStatementBuilder.build()).willAnswer(invocation -> mock(BoundStatement.class));
+    given(preparedStatement.boundStatementBuilder()).willReturn(boundStatementBuilder);
+    given(session.prepare(anyString())).willReturn(preparedStatement);
+    given(session.executeAsync(any(Statement.class)))
+        .willReturn(CompletableFuture.completedFuture(mock(AsyncResultSet.class)));
+  }
+
+  @Test
+  void testApplyOnlySetsTheFieldsOfTheEvent() {
+    newUserProjectionService()
+        .apply(createUserEvent(1L, 3L, "UPDATED", null, "Ivan 3", null, null))
+        .join();
+
+    then(boundStatementBuilder).should().setString("fullName", "Ivan 3");
+    then(boundStatementBuilder).should(never()).setString(eq("email"), anyString());
+    then(boundStatementBuilder).should(never()).setBoolean(eq("active"), anyBoolean());
+    then(boundStatementBuilder).should(never()).setBoolean(eq("deleted"), anyBoolean());
+    then(boundStatementBuilder).should(never()).setInstant(eq("createdAt"), any());
+    then(boundStatementBuilder).should().setLong("version", 3L);
+    then(boundStatementBuilder).should().setString("lastType", "UPDATED");
+    then(boundStatementBuilder).should().setString("lastEventId", "eventId");
+  }
+
+  @Test
+  void testApplyReadsTheFieldsOfLegacyEventsFromData() {
+    newUserProjectionService()
+        .apply(
+            createUserEvent(1L, 0L, "CREATED", null, null, null, "{\"email\":\"ivan@test.com\"}"))
+        .join();
+
+    then(boundStatementBuilder).should().setString("email", "ivan@test.com");
+    then(boundStatementBuilder).should().setInstant(eq("createdAt"), any());
+  }
+
+  @Test
+  void testApplyAllGroupsEventsByUserIdInUnloggedBatches() {
+    userProjectionService
+        .applyAll(
+            List.of(
+                createUserEvent(1L, 0L, "CREATED", "ivan@test.com", "Ivan", true, null),
+                createUserEvent(2L, 0L, "CREATED", "ana@test.com", "Ana", true, null),
+                createUserEvent(1L, 1L, "UPDATED", null, null, false, null),
+                createUserEvent(1L, 2L, "DELETED", null, null, null, null)))
+        .join();
+
+    // user 1 has 3 events, split in chunks of 2, and user 2 has 1 event
+    ArgumentCaptor<BatchStatement> captor = ArgumentCaptor.forClass(BatchStatement.class);
+    then(session).should(times(3)).executeAsync(captor.capture());
+    assertThat(captor.getAllValues())
+        .allSatisfy(batch -> assertThat(batch.getBatchType()).isEqualTo(BatchType.UNLOGGED))
+        .extracting(BatchStatement::size)
+        .containsExactly(2, 1, 1);
+  }
+
+  @Test
+  void testWriteTimestampOrdersByVersionThenDatetime() {
+    long earlierVersion = writeTimestampOf(1L, 2_000_000_000_000L);
+    long laterVersion = writeTimestampOf(2L, 1_000_000_000_000L);
+    long laterDatetime = writeTimestampOf(2L, 1_000_000_000_001L);
+
+    assertThat(earlierVersion).isLessThan(laterVersion);
+    assertThat(laterVersion).isLessThan(laterDatetime);
+    assertThat(writeTimestampOf(Long.MAX_VALUE, 0L)).isPositive();
+  }
+
+  @Test
+  void testGetUser() {
+    UserProjection userProjection =
+        new UserProjection(
+            1L,
+            "ivan@test.com",
+            "Ivan",
+            true,
+            null,
+            0L,
+            new Date(),
+            new Date(),
+            "eventId",
+            "CREATED");
+    given(userProjectionRepository.findById(1L)).willReturn(Optional.of(userProjection));
+
+    assertThat(userProjectionService.getUser(1L)).isEqualTo(userProjection);
+  }
+
+  @Test
+  void testGetUserWhenDeleted() {
+    UserProjection userProjection =
+        new UserProjection(
+            1L,
+            "ivan@test.com",
+            "Ivan",
+            true,
+            true,
+            1L,
+            new Date(),
+            new Date(),
+            "eventId",
+            "DELETED");
+    given(userProjectionRepository.findById(1L)).willReturn(Optional.of(userProjection));
+
+    assertThatExceptionOfType(UserStateNotFoundException.class)
+        .isThrownBy(() -> userProjectionService.getUser(1L));
+  }
+
+  @Test
+  void testGetUserWhenNotCreatedYet() {
+    UserProjection userProjection =
+        new UserProjection(
+            1L, null, "Ivan", null, null, 1L, null, new Date(), "eventId", "UPDATED");
+    given(userProjectionRepository.findById(1L)).willReturn(Optional.of(userProjection));
+
+    assertThatExceptionOfType(UserStateNotFoundException.class)
+        .isThrownBy(() -> userProjectionService.getUser(1L));
+  }
+
+  // The prepared statement is cached, so a new service is needed to bind with this test's builder
+  private UserProjectionService newUserProjectionService() {
+    return new UserProjectionService(session, userProjectionRepository, objectMapper, 2, 4);
+  }
+
+  private static long writeTimestampOf(long version, long datetime) {
+    return UserProjectionService.writeTimestampOf(
+        new UserEventKey(1L, new Date(datetime), version));
+  }
+
+  private static UserEvent createUserEvent(
+      Long userId,
+      Long version,
+      String type,
+      String email,
+      String fullName,
+      Boolean active,
+      String data) {
+    return new UserEvent(
+        new UserEventKey(userId, new Date(), version),
+        "eventId",
+        type,
+        email,
+        fullName,
+        active,
+        data);
+  }
+}
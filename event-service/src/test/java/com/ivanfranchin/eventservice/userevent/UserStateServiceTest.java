@@ -0,0 +1,173 @@
+package com.ivanfranchin.eventservice.userevent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.timeout;
+
+import com.ivanfranchin.eventservice.userevent.exception.UserStateNotFoundException;
+import com.ivanfranchin.eventservice.userevent.model.UserEvent;
+import com.ivanfranchin.eventservice.userevent.model.UserEventKey;
+import com.ivanfranchin.eventservice.userevent.model.UserSnapshot;
+import com.ivanfranchin.eventservice.userevent.model.UserSnapshotKey;
+import com.ivanfranchin.eventservice.userevent.model.UserState;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.jackson.autoconfigure.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@Import(UserStateService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(
+    properties = {
+      "app.snapshots.every-events=2",
+      "app.snapshots.every-duration=1d",
+      "app.snapshots.delay=0s"
+    })
+class UserStateServiceTest {
+
+  private static final Instant AS_OF = Instant.parse("2024-01-01T00:00:00Z");
+
+  @Autowired private UserStateService userStateService;
+
+  @MockitoBean private UserSnapshotRepository userSnapshotRepository;
+
+  @MockitoBean private UserEventService userEventService;
+
+  @Test
+  void testGetUserStateReplaysAllEventsWhenThereIsNoSnapshot() {
+    given(userSnapshotRepository.findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(anyLong(), any()))
+        .willReturn(Optional.empty());
+    givenUserEvents(
+        createUserEvent(1000, 0, "CREATED", "ivan@test.com", "Ivan", true),
+        createUserEvent(2000, 1, "UPDATED", null, "Ivan Franchin", null));
+
+    UserState userState = userStateService.getUserState(1L, AS_OF);
+
+    assertThat(userState)
+        .isEqualTo(
+            new UserState(1L, "ivan@test.com", "Ivan Franchin", true, false, new Date(2000), 1L));
+    then(userEventService)
+        .should()
+        .forEachUserEventPage(eq(1L), isNull(), eq(AS_OF), eq(Sort.Direction.ASC), any());
+  }
+
+  @Test
+  void testGetUserStateReplaysOnlyEventsAfterSnapshot() {
+    UserSnapshot userSnapshot =
+        new UserSnapshot(
+            new UserSnapshotKey(1L, new Date(2000)), "ivan@test.com", "Ivan", true, false, 1L);
+    given(userSnapshotRepository.findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(anyLong(), any()))
+        .willReturn(Optional.of(userSnapshot));
+    // the replay starts at the snapshot's millisecond, which also has an event after the snapshot
+    givenUserEvents(
+        createUserEvent(2000, 1, "UPDATED", null, null, false),
+        createUserEvent(2000, 2, "DELETED", null, null, null));
+
+    UserState userState = userStateService.getUserState(1L, AS_OF);
+
+    assertThat(userState)
+        .isEqualTo(new UserState(1L, "ivan@test.com", "Ivan", true, true, new Date(2000), 2L));
+    then(userSnapshotRepository)
+        .should()
+        .findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(1L, Date.from(AS_OF));
+    then(userEventService)
+        .should()
+        .forEachUserEventPage(
+            eq(1L), eq(Instant.ofEpochMilli(2000)), eq(AS_OF), eq(Sort.Direction.ASC), any());
+  }
+
+  @Test
+  void testGetUserStateWhenThereIsNoEvent() {
+    given(userSnapshotRepository.findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(anyLong(), any()))
+        .willReturn(Optional.empty());
+    givenUserEvents();
+
+    assertThatExceptionOfType(UserStateNotFoundException.class)
+        .isThrownBy(() -> userStateService.getUserState(1L, AS_OF));
+  }
+
+  @Test
+  void testRecordUserEventTakesSnapshotEveryEvents() {
+    given(userSnapshotRepository.findFirstByKeyUserIdAndKeyDatetimeLessThanEqual(anyLong(), any()))
+        .willReturn(Optional.empty());
+    // events sent before the typed fields existed carry the changed fields as JSON
+    givenUserEvents(
+        createLegacyUserEvent(
+            1000,
+            0,
+            "CREATED",
+            "{\"email\":\"ivan@test.com\",\"fullName\":\"Ivan\",\"active\":true}"),
+        createUserEvent(2000, 1, "UPDATED", null, null, false));
+
+    userStateService.recordUserEvent(1L, Instant.ofEpochMilli(1000));
+    then(userSnapshotRepository).shouldHaveNoInteractions();
+    userStateService.recordUserEvent(1L, Instant.ofEpochMilli(2000));
+
+    ArgumentCaptor<UserSnapshot> captor = ArgumentCaptor.forClass(UserSnapshot.class);
+    then(userSnapshotRepository).should(timeout(1000)).save(captor.capture());
+    assertThat(captor.getValue().toUserState())
+        .isEqualTo(new UserState(1L, "ivan@test.com", "Ivan", false, false, new Date(2000), 1L));
+  }
+
+  private void givenUserEvents(UserEvent... userEvents) {
+    willAnswer(
+            invocation -> {
+              Consumer<List<UserEvent>> pageConsumer = invocation.getArgument(4);
+              pageConsumer.accept(List.of(userEvents));
+              return null;
+            })
+        .given(userEventService)
+        .forEachUserEventPage(anyLong(), any(), any(), any(), any());
+  }
+
+  private UserEvent createUserEvent(
+      long datetime, long version, String type, String email, String fullName, Boolean active) {
+    return new UserEvent(
+        new UserEventKey(1L, new Date(datetime), version),
+        "eventId",
+        type,
+        email,
+        fullName,
+        active,
+        null);
+  }
+
+  private UserEvent createLegacyUserEvent(long datetime, long version, String type, String data) {
+    return new UserEvent(
+        new UserEventKey(1L, new Date(datetime), version), "eventId", type, null, null, null, data);
+  }
+
+  @TestConfiguration
+  static class ConversionConfig {
+
+    // converts the Duration properties, as Spring Boot does in the application
+    @Bean
+    static ConversionService conversionService() {
+      return ApplicationConversionService.getSharedInstance();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.ivanfranchin.userservice.config;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// The 'user-rebuild' profile reads the event log that event-service stores in Cassandra
+@Profile("user-rebuild")
+@Configuration
+public class CassandraConfig {
+
+  @Value("${spring.cassandra.local-datacenter}")
+  private String localDatacenter;
+
+  @Value("${spring.cassandra.contact-points}")
+  private String contactPoints;
+
+  @Value("${spring.cassandra.keyspace-name}")
+  private String keyspaceName;
+
+  @Value("${spring.cassandra.request.timeout}")
+  private Duration requestTimeout;
+
+  @Bean(destroyMethod = "close")
+  CqlSession cqlSession() {
+    CqlSessionBuilder builder =
+        CqlSession.builder()
+            .withLocalDatacenter(localDatacenter)
+            .withKeyspace(keyspaceName)
+            .withConfigLoader(
+                DriverConfigLoader.programmaticBuilder()
+                    .withDuration(DefaultDriverOption.REQUEST_TIMEOUT, requestTimeout)
+                    .build());
+    for (String contactPoint : contactPoints.split(",")) {
+      String[] hostAndPort = contactPoint.trim().split(":");
+      builder.addContactPoint(
+          new InetSocketAddress(
+              hostAndPort[0], hostAndPort.length > 1 ? Integer.parseInt(hostAndPort[1]) : 9042));
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,41 @@
+package com.ivanfranchin.userservice.outbox;
+
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+  // A lock timeout of -2 is translated by Hibernate to SKIP LOCKED, so replicas relaying at the
+  // same time claim disjoint batches instead of waiting on each other.
+  // An event is not claimed while an earlier event of its user is still leased, i.e. sent but not
+  // confirmed yet: if that send fails, the later event would otherwise reach Kafka first
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query(
+      "SELECT o FROM OutboxEvent o"
+          + " WHERE (o.dispatchedAt IS NULL OR o.dispatchedAt < :leaseExpiry)"
+          + " AND NOT EXISTS (SELECT p FROM OutboxEvent p WHERE p.userId = o.userId"
+          + " AND p.id < o.id AND p.dispatchedAt >= :leaseExpiry)"
+          + " ORDER BY o.id")
+  List<OutboxEvent> findDispatchable(Instant leaseExpiry, Limit limit);
+
+  @Modifying
+  @Query("UPDATE OutboxEvent o SET o.dispatchedAt = :dispatchedAt WHERE o.id IN :ids")
+  void markDispatched(Collection<Long> ids, Instant dispatchedAt);
+
+  @Modifying
+  @Query("UPDATE OutboxEvent o SET o.dispatchedAt = NULL WHERE o.id IN :ids")
+  void clearDispatched(Collection<Long> ids);
+}
@@ -0,0 +1,174 @@
+package com.ivanfranchin.userservice.outbox;
+
+import com.ivanfranchin.avroconverter.CachingAvroMessageConverter;
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+/**
+ * Drains the outbox table to the {@code users-out-0} binding. Events are sent without waiting for
+ * each broker acknowledgement, so the producer can pipeline a whole batch. An outbox row is only
+ * deleted once Kafka confirms the send through the {@code outboxSendResults} record metadata
+ * channel.
+ *
+ * <p>The producer fails a send after {@code max.block.ms} when its buffer is full. The relay then
+ * releases the events of the batch not sent and stops until its next run, which relays them again.
+ * An event sent but never confirmed is relayed again once its lease expires, and the later events
+ * of its user are not claimed until then, so they can't overtake it. Meanwhile the outbox grows;
+ * {@link OutboxService} rejects user changes once it holds {@code app.outbox.max-backlog} events.
+ *
+ * <p>The time from the send to its confirmation is recorded by the {@code user.events.send} timer,
+ * tagged by partition and event type. The sends rejected by the producer are counted by {@code
+ * user.events.send.rejected}, and the sends waiting for confirmation and the events in the outbox
+ * are gauged by {@code user.events.send.in-flight} and {@code user.events.outbox.backlog}.
+ *
+ * <p>Avro events carry the fingerprint of the schema they are written with, so consumers can read
+ * them after the schema changes.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class OutboxRelay {
+
+  public static final String PARTITION_KEY_HEADER = "partitionKey";
+  public static final String OUTBOX_ID_HEADER = "outboxId";
+
+  private final OutboxService outboxService;
+  private final StreamBridge streamBridge;
+  private final CachingAvroMessageConverter avroSchemaMessageConverter;
+  private final MeterRegistry meterRegistry;
+
+  private final Queue<Long> sentIds = new ConcurrentLinkedQueue<>();
+  // A failed send is never confirmed; its entry is replaced when the event is relayed again
+  private final Map<Long, PendingSend> pendingSends = new ConcurrentHashMap<>();
+
+  @Value("${spring.cloud.stream.bindings.users-out-0.content-type}")
+  private String streamOutMimeType;
+
+  @Value("${app.outbox.relay.batch-size}")
+  private int batchSize;
+
+  @Value("${app.outbox.relay.lease-timeout}")
+  private Duration leaseTimeout;
+
+  @PostConstruct
+  void registerGauges() {
+    Gauge.builder("user.events.send.in-flight", pendingSends, Map::size).register(meterRegistry);
+    Gauge.builder("user.events.outbox.backlog", outboxService, OutboxService::getBacklog)
+        .register(meterRegistry);
+  }
+
+  @Bean
+  MessageChannel outboxSendResults() {
+    DirectChannel channel = new DirectChannel();
+    channel.subscribe(this::onSendResult);
+    return channel;
+  }
+
+  @Scheduled(fixedDelayString = "${app.outbox.relay.fixed-delay}")
+  public void relay() {
+    int relayed;
+    do {
+      relayed = relayBatch();
+    } while (relayed == batchSize);
+    outboxService.refreshBacklog();
+  }
+
+  private int relayBatch() {
+    deleteSentOutboxEvents();
+
+    List<OutboxEvent> outboxEvents = outboxService.claimOutboxEvents(batchSize, leaseTimeout);
+    MimeType mimeType = MimeType.valueOf(streamOutMimeType);
+    String schemaFingerprint =
+        "avro".equals(mimeType.getSubtypeSuffix())
+            ? avroSchemaMessageConverter.schemaFingerprintOf(UserEventMessage.class)
+            : null;
+    for (int i = 0; i < outboxEvents.size(); i++) {
+      OutboxEvent outboxEvent = outboxEvents.get(i);
+      Message<UserEventMessage> message =
+          MessageBuilder.withPayload(outboxEvent.toUserEventMessage())
+              .setHeader(PARTITION_KEY_HEADER, outboxEvent.getUserId())
+              .setHeader(OUTBOX_ID_HEADER, outboxEvent.getId())
+              .setHeader(CachingAvroMessageConverter.SCHEMA_FINGERPRINT_HEADER, schemaFingerprint)
+              .build();
+
+      pendingSends.put(
+          outboxEvent.getId(),
+          new PendingSend(Timer.start(meterRegistry), outboxEvent.getEventType().name()));
+      try {
+        streamBridge.send("users-out-0", message, mimeType);
+      } catch (RuntimeException e) {
+        pendingSends.remove(outboxEvent.getId());
+        meterRegistry.counter("user.events.send.rejected").increment();
+        log.warn("Kafka producer rejected outbox event {}, relay paused", outboxEvent.getId(), e);
+        outboxService.releaseOutboxEvents(
+            outboxEvents.subList(i, outboxEvents.size()).stream().map(OutboxEvent::getId).toList());
+        return 0;
+      }
+      log.info(
+          "\n---\nHeaders: {}\n\nPayload: {}\n---", message.getHeaders(), message.getPayload());
+    }
+    return outboxEvents.size();
+  }
+
+  private void deleteSentOutboxEvents() {
+    List<Long> ids = new ArrayList<>();
+    Long id;
+    while ((id = sentIds.poll()) != null) {
+      ids.add(id);
+    }
+    if (!ids.isEmpty()) {
+      outboxService.deleteOutboxEvents(ids);
+    }
+  }
+
+  private void onSendResult(Message<?> message) {
+    Long id = message.getHeaders().get(OUTBOX_ID_HEADER, Long.class);
+    if (id == null) {
+      return;
+    }
+    sentIds.add(id);
+    PendingSend pendingSend = pendingSends.remove(id);
+    if (pendingSend != null) {
+      RecordMetadata recordMetadata =
+          message.getHeaders().get(KafkaHeaders.RECORD_METADATA, RecordMetadata.class);
+      pendingSend
+          .sample()
+          .stop(
+              Timer.builder("user.events.send")
+                  .tag(
+                      "partition",
+                      recordMetadata == null
+                          ? "unknown"
+                          : String.valueOf(recordMetadata.partition()))
+                  .tag("type", pendingSend.eventType())
+                  .register(meterRegistry));
+    }
+  }
+
+  private record PendingSend(Timer.Sample sample, String eventType) {}
+}
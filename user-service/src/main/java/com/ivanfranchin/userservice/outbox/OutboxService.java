@@ -0,0 +1,113 @@
+package com.ivanfranchin.userservice.outbox;
+
+import com.ivanfranchin.userservice.outbox.exception.OutboxBacklogFullException;
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@RequiredArgsConstructor
+@Service
+public class OutboxService {
+
+  private static final String INSERT_OUTBOX_EVENT =
+      "INSERT INTO outbox_events"
+          + " (event_id, event_timestamp, event_type, user_id, version, email, full_name, active)"
+          + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final JdbcTemplate jdbcTemplate;
+
+  private final AtomicLong backlog = new AtomicLong();
+
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+  private int batchSize;
+
+  @Value("${app.outbox.max-backlog}")
+  private long maxBacklog;
+
+  public OutboxEvent saveOutboxEvent(OutboxEvent outboxEvent) {
+    checkBacklog();
+    return outboxEventRepository.save(outboxEvent);
+  }
+
+  /**
+   * Inserts the events with JDBC batches, in the caller's transaction. Outbox ids stay IDENTITY, as
+   * the relay sends events in id order, so the inserts bypass Hibernate, which can't batch them.
+   */
+  public void saveOutboxEvents(List<OutboxEvent> outboxEvents) {
+    checkBacklog();
+    jdbcTemplate.batchUpdate(
+        INSERT_OUTBOX_EVENT,
+        outboxEvents,
+        batchSize,
+        (preparedStatement, outboxEvent) -> {
+          preparedStatement.setString(1, outboxEvent.getEventId());
+          preparedStatement.setLong(2, outboxEvent.getEventTimestamp());
+          preparedStatement.setString(3, outboxEvent.getEventType().name());
+          preparedStatement.setLong(4, outboxEvent.getUserId());
+          preparedStatement.setLong(5, outboxEvent.getVersion());
+          preparedStatement.setString(6, outboxEvent.getEmail());
+          preparedStatement.setString(7, outboxEvent.getFullName());
+          preparedStatement.setObject(8, outboxEvent.getActive(), Types.BOOLEAN);
+        });
+  }
+
+  @Transactional
+  public List<OutboxEvent> claimOutboxEvents(int batchSize, Duration leaseTimeout) {
+    Instant now = Instant.now();
+    List<OutboxEvent> outboxEvents =
+        outboxEventRepository.findDispatchable(now.minus(leaseTimeout), Limit.of(batchSize));
+    if (!outboxEvents.isEmpty()) {
+      outboxEventRepository.markDispatched(
+          outboxEvents.stream().map(OutboxEvent::getId).toList(), now);
+    }
+    return outboxEvents;
+  }
+
+  /**
+   * Ends the lease of events claimed but not sent, so they are relayed again on the next run,
+   * before the later events of their users.
+   */
+  @Transactional
+  public void releaseOutboxEvents(Collection<Long> ids) {
+    outboxEventRepository.clearDispatched(ids);
+  }
+
+  public void deleteOutboxEvents(Collection<Long> ids) {
+    outboxEventRepository.deleteAllByIdInBatch(ids);
+  }
+
+  /**
+   * Counts the events waiting in the outbox. The count is kept until the next refresh, so the
+   * writes checked against {@code app.outbox.max-backlog} don't query the table.
+   */
+  public long refreshBacklog() {
+    long count = outboxEventRepository.count();
+    backlog.set(count);
+    return count;
+  }
+
+  public long getBacklog() {
+    return backlog.get();
+  }
+
+  // When Kafka is slow or down, the relay falls behind and the backlog grows. Beyond the limit, the
+  // user change is rejected, and its transaction rolled back, instead of piling up more events
+  private void checkBacklog() {
+    if (backlog.get() >= maxBacklog) {
+      throw new OutboxBacklogFullException(
+          String.format(
+              "%s events are waiting to be sent to Kafka. Try again later.", backlog.get()));
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.ivanfranchin.userservice.outbox.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OutboxBacklogFullException extends RuntimeException {
+
+  public OutboxBacklogFullException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,77 @@
+package com.ivanfranchin.userservice.outbox.model;
+
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@Data
+@Entity
+@Table(
+    name = "outbox_events",
+    // Looks up the earlier events of a user when the relay claims events
+    indexes = @Index(name = "idx_outbox_events_user_id", columnList = "userId, id"))
+public class OutboxEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(nullable = false)
+  private String eventId;
+
+  @Column(nullable = false)
+  private Long eventTimestamp;
+
+  @Enumerated(EnumType.STRING)
+  @Column(nullable = false)
+  private EventType eventType;
+
+  @Column(nullable = false)
+  private Long userId;
+
+  @Column(nullable = false)
+  private Long version;
+
+  private String email;
+
+  private String fullName;
+
+  private Boolean active;
+
+  // Only set by rows written before the fields above existed
+  @Column(columnDefinition = "text")
+  private String userJson;
+
+  // Set when the relay hands the event to the producer. If the send is not confirmed before the
+  // lease expires, the event is relayed again
+  private Instant dispatchedAt;
+
+  public OutboxEvent(UserEventMessage userEventMessage) {
+    this.eventId = userEventMessage.getEventId();
+    this.eventTimestamp = userEventMessage.getEventTimestamp();
+    this.eventType = userEventMessage.getEventType();
+    this.userId = userEventMessage.getUserId();
+    this.version = userEventMessage.getVersion();
+    this.email = userEventMessage.getEmail();
+    this.fullName = userEventMessage.getFullName();
+    this.active = userEventMessage.getActive();
+    this.userJson = userEventMessage.getUserJson();
+  }
+
+  public UserEventMessage toUserEventMessage() {
+    return new UserEventMessage(
+        eventId, eventTimestamp, eventType, userId, version, email, fullName, active, userJson);
+  }
+}
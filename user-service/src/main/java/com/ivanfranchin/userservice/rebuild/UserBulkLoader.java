@@ -0,0 +1,58 @@
+package com.ivanfranchin.userservice.rebuild;
+
+import com.ivanfranchin.userservice.user.model.User;
+import java.sql.Timestamp;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inserts rebuilt users with JDBC batches, which the driver sends as multi-row inserts. They bypass
+ * Hibernate, as the users already have their ids, versions and timestamps, and no events must be
+ * sent for them.
+ */
+@Profile("user-rebuild")
+@RequiredArgsConstructor
+@Component
+public class UserBulkLoader {
+
+  private static final String INSERT_USER =
+      "INSERT INTO users (id, email, full_name, active, version, created_at, updated_at)"
+          + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public long countUsers() {
+    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+  }
+
+  public void insertUsers(List<User> users) {
+    jdbcTemplate.batchUpdate(
+        INSERT_USER,
+        users,
+        users.size(),
+        (preparedStatement, user) -> {
+          preparedStatement.setLong(1, user.getId());
+          preparedStatement.setString(2, user.getEmail());
+          preparedStatement.setString(3, user.getFullName());
+          preparedStatement.setBoolean(4, user.getActive());
+          preparedStatement.setLong(5, user.getVersion());
+          preparedStatement.setTimestamp(6, Timestamp.from(user.getCreatedAt()));
+          preparedStatement.setTimestamp(7, Timestamp.from(user.getUpdatedAt()));
+        });
+  }
+
+  /**
+   * Moves {@code users_seq} past {@code maxUserId}. Hibernate's pooled optimizer takes the value
+   * read as the top of a block of {@link User#ID_ALLOCATION_SIZE} ids, so the sequence is moved a
+   * whole block past it. Ids of deleted users are not handed out again either, as their events are
+   * still in the log.
+   */
+  public void moveSequencePast(long maxUserId) {
+    jdbcTemplate.update(
+        "UPDATE users_seq SET next_val = GREATEST(next_val, ?)",
+        maxUserId + User.ID_ALLOCATION_SIZE);
+  }
+}
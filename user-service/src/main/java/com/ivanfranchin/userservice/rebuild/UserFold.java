@@ -0,0 +1,109 @@
+package com.ivanfranchin.userservice.rebuild;
+
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.model.User;
+import java.time.Instant;
+import java.util.Comparator;
+import lombok.Getter;
+
+/**
+ * The state of a user folded from its events. Each field keeps the value set by the latest event,
+ * by version and then by timestamp, as the events written before versions all have version 0.
+ * Folding is therefore independent of the order of the events, and the folds of different parts of
+ * a user's events can be merged, as when they are read from several partitions in parallel.
+ */
+public class UserFold {
+
+  @Getter private final long userId;
+  private Stamped<String> email;
+  private Stamped<String> fullName;
+  private Stamped<Boolean> active;
+  private Stamp created;
+  private Stamp last;
+  @Getter private boolean deleted;
+
+  public UserFold(long userId) {
+    this.userId = userId;
+  }
+
+  /** Applies an event. The fields it didn't set are null. */
+  public void apply(
+      EventType eventType,
+      Instant datetime,
+      long version,
+      String email,
+      String fullName,
+      Boolean active) {
+    Stamp stamp = new Stamp(version, datetime);
+    switch (eventType) {
+      case CREATED -> created = earliest(created, stamp);
+      case DELETED -> deleted = true;
+      case UPDATED -> {}
+    }
+    this.email = latest(this.email, email, stamp);
+    this.fullName = latest(this.fullName, fullName, stamp);
+    this.active = latest(this.active, active, stamp);
+    last = latest(last, stamp);
+  }
+
+  /** Merges the fold of other events of the same user into this one. */
+  public UserFold merge(UserFold other) {
+    created = other.created == null ? created : earliest(created, other.created);
+    deleted |= other.deleted;
+    email = other.email == null ? email : latest(email, other.email.value(), other.email.stamp());
+    fullName =
+        other.fullName == null
+            ? fullName
+            : latest(fullName, other.fullName.value(), other.fullName.stamp());
+    active =
+        other.active == null ? active : latest(active, other.active.value(), other.active.stamp());
+    last = other.last == null ? last : latest(last, other.last);
+    return this;
+  }
+
+  /**
+   * Tells whether the events make up a user: it was created and all its fields are known. Users
+   * whose {@code CREATED} event is missing from the log can't be rebuilt.
+   */
+  public boolean isComplete() {
+    return created != null && email != null && fullName != null && active != null;
+  }
+
+  /** The user, as saved by user-service after its latest event. */
+  public User toUser() {
+    User user = new User(email.value(), fullName.value(), active.value());
+    user.setId(userId);
+    user.setVersion(last.version());
+    user.setCreatedAt(created.datetime());
+    user.setUpdatedAt(last.datetime());
+    return user;
+  }
+
+  private static <T> Stamped<T> latest(Stamped<T> current, T value, Stamp stamp) {
+    if (value == null || (current != null && current.stamp().compareTo(stamp) >= 0)) {
+      return current;
+    }
+    return new Stamped<>(value, stamp);
+  }
+
+  private static Stamp latest(Stamp current, Stamp stamp) {
+    return current == null || current.compareTo(stamp) < 0 ? stamp : current;
+  }
+
+  private static Stamp earliest(Stamp current, Stamp stamp) {
+    return current == null || current.compareTo(stamp) > 0 ? stamp : current;
+  }
+
+  private record Stamp(long version, Instant datetime) implements Comparable<Stamp> {
+
+    private static final Comparator<Stamp> ORDER =
+        Comparator.comparingLong(Stamp::version).thenComparing(Stamp::datetime);
+
+    @Override
+    public int compareTo(Stamp other) {
+      return ORDER.compare(this, other);
+    }
+  }
+
+  private record Stamped<T>(T value, Stamp stamp) {}
+}
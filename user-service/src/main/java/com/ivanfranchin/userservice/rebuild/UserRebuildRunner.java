@@ -0,0 +1,257 @@
+package com.ivanfranchin.userservice.rebuild;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Rebuilds the {@code users} table from the event log that event-service stores in Cassandra, and
+ * exits. It runs when the application is started with the {@code user-rebuild} profile, which also
+ * keeps the Kafka consumer down. The table must be empty, so that no user is lost.
+ *
+ * <p>The token ring of {@code app.rebuild.events-table} is split into {@code
+ * app.rebuild.token-ranges} ranges, scanned {@code app.rebuild.parallelism} at a time. The events
+ * of each user are folded with {@link UserFold}, and the users are inserted in batches of {@code
+ * app.rebuild.batch-size}. In {@code user_events} all the events of a user are in one partition, so
+ * a user is complete once the scan moves to the next one. In {@code user_events_by_bucket} they are
+ * spread over partitions of different ranges, so the folds are merged and inserted at the end.
+ *
+ * <p>Deleted users and users whose {@code CREATED} event is missing are not inserted. The {@code
+ * users_seq} sequence is moved past the largest id seen, so no id is handed out again. The progress
+ * is published as:
+ *
+ * <ul>
+ *   <li>{@code users.rebuild.events}: events read;
+ *   <li>{@code users.rebuild.users}: users folded, by {@code outcome}: loaded, deleted or
+ *       incomplete;
+ *   <li>{@code users.rebuild.progress}: ratio of token ranges scanned.
+ * </ul>
+ */
+@Slf4j
+@Profile("user-rebuild")
+@Component
+public class UserRebuildRunner implements ApplicationRunner {
+
+  private static final String SELECT_USER_EVENTS =
+      "SELECT userId, datetime, version, type, email, fullName, active, data FROM %s"
+          + " WHERE token(%s) >= ? AND token(%s) <= ?";
+  private static final String BUCKETED_EVENTS_TABLE = "user_events_by_bucket";
+
+  private final CqlSession session;
+  private final UserBulkLoader userBulkLoader;
+  private final ObjectMapper objectMapper;
+  private final ConfigurableApplicationContext applicationContext;
+  private final String eventsTable;
+  private final int tokenRanges;
+  private final int parallelism;
+  private final int fetchSize;
+  private final int batchSize;
+  private final Counter eventsCounter;
+  private final Counter loadedCounter;
+  private final Counter deletedCounter;
+  private final Counter incompleteCounter;
+  private final AtomicInteger scannedRanges = new AtomicInteger();
+  private final AtomicLong maxUserId = new AtomicLong();
+
+  public UserRebuildRunner(
+      CqlSession session,
+      UserBulkLoader userBulkLoader,
+      ObjectMapper objectMapper,
+      MeterRegistry meterRegistry,
+      ConfigurableApplicationContext applicationContext,
+      @Value("${app.rebuild.events-table}") String eventsTable,
+      @Value("${app.rebuild.token-ranges}") int tokenRanges,
+      @Value("${app.rebuild.parallelism}") int parallelism,
+      @Value("${app.rebuild.fetch-size}") int fetchSize,
+      @Value("${app.rebuild.batch-size}") int batchSize) {
+    this.session = session;
+    this.userBulkLoader = userBulkLoader;
+    this.objectMapper = objectMapper;
+    this.applicationContext = applicationContext;
+    this.eventsTable = eventsTable;
+    this.tokenRanges = tokenRanges;
+    this.parallelism = parallelism;
+    this.fetchSize = fetchSize;
+    this.batchSize = batchSize;
+    this.eventsCounter = meterRegistry.counter("users.rebuild.events");
+    this.loadedCounter = meterRegistry.counter("users.rebuild.users", "outcome", "loaded");
+    this.deletedCounter = meterRegistry.counter("users.rebuild.users", "outcome", "deleted");
+    this.incompleteCounter = meterRegistry.counter("users.rebuild.users", "outcome", "incomplete");
+    Gauge.builder(
+            "users.rebuild.progress", scannedRanges, ranges -> ranges.get() / (double) tokenRanges)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    if (userBulkLoader.countUsers() > 0) {
+      throw new IllegalStateException(
+          "The users table must be empty before rebuilding it from the event log");
+    }
+    boolean bucketed = BUCKETED_EVENTS_TABLE.equals(eventsTable);
+    PreparedStatement statement =
+        session.prepare(
+            String.format(
+                SELECT_USER_EVENTS,
+                eventsTable,
+                bucketed ? "userId, bucket" : "userId",
+                bucketed ? "userId, bucket" : "userId"));
+    log.info(
+        "Rebuilding users from {} in {} token ranges, {} at a time",
+        eventsTable,
+        tokenRanges,
+        parallelism);
+    long startNanos = System.nanoTime();
+
+    Map<Long, UserFold> userFolds = new ConcurrentHashMap<>();
+    try (ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism, Thread.ofPlatform().name("user-rebuild-", 0).factory())) {
+      List<Future<?>> scans = new ArrayList<>(tokenRanges);
+      // Murmur3 tokens span the whole range of long
+      long width = Long.divideUnsigned(-1L, tokenRanges);
+      for (int i = 0; i < tokenRanges; i++) {
+        long start = Long.MIN_VALUE + i * width;
+        long end = i == tokenRanges - 1 ? Long.MAX_VALUE : start + width - 1;
+        scans.add(
+            executor.submit(
+                () -> {
+                  scan(statement, start, end, bucketed ? userFolds : null);
+                  int scanned = scannedRanges.incrementAndGet();
+                  log.info(
+                      "Scanned {} of {} token ranges, {} userEvents read",
+                      scanned,
+                      tokenRanges,
+                      (long) eventsCounter.count());
+                }));
+      }
+      for (Future<?> scan : scans) {
+        scan.get();
+      }
+    }
+    if (bucketed) {
+      load(userFolds.values());
+    }
+    userBulkLoader.moveSequencePast(maxUserId.get());
+
+    double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+    log.info(
+        "Rebuild finished in {}s: {} userEvents read ({}/s), {} users loaded ({}/s), {} deleted,"
+            + " {} incomplete",
+        String.format("%.1f", elapsedSeconds),
+        (long) eventsCounter.count(),
+        Math.round(eventsCounter.count() / elapsedSeconds),
+        (long) loadedCounter.count(),
+        Math.round(loadedCounter.count() / elapsedSeconds),
+        (long) deletedCounter.count(),
+        (long) incompleteCounter.count());
+
+    System.exit(SpringApplication.exit(applicationContext));
+  }
+
+  /**
+   * Folds the events of the token range. When {@code userFolds} is null, the users are loaded as
+   * soon as the scan moves past them; otherwise the folds are merged into it.
+   */
+  private void scan(
+      PreparedStatement statement, long start, long end, Map<Long, UserFold> userFolds) {
+    List<UserFold> completed = new ArrayList<>();
+    UserFold userFold = null;
+    for (Row row : session.execute(statement.bind(start, end).setPageSize(fetchSize))) {
+      long userId = row.getLong("userId");
+      if (userFold == null || userFold.getUserId() != userId) {
+        if (userFold != null) {
+          completed.add(userFold);
+        }
+        if (userFolds == null && completed.size() >= batchSize) {
+          load(completed);
+          completed.clear();
+        }
+        userFold = new UserFold(userId);
+      }
+      apply(userFold, row);
+      eventsCounter.increment();
+    }
+    if (userFold != null) {
+      completed.add(userFold);
+    }
+    if (userFolds == null) {
+      load(completed);
+    } else {
+      // The events of a user in several buckets of the range may not be adjacent
+      completed.forEach(fold -> userFolds.merge(fold.getUserId(), fold, UserFold::merge));
+    }
+  }
+
+  private void apply(UserFold userFold, Row row) {
+    String email = row.getString("email");
+    String fullName = row.getString("fullName");
+    Boolean active = row.get("active", Boolean.class);
+    // Events sent before the typed fields existed only carry the changed fields as JSON
+    String data = row.getString("data");
+    if (data != null) {
+      UpdateUserRequest userData = objectMapper.readValue(data, UpdateUserRequest.class);
+      email = userData.email();
+      fullName = userData.fullName();
+      active = userData.active();
+    }
+    userFold.apply(
+        EventType.valueOf(row.getString("type")),
+        row.getInstant("datetime"),
+        row.getLong("version"),
+        email,
+        fullName,
+        active);
+  }
+
+  private void load(Iterable<UserFold> userFolds) {
+    List<User> users = new ArrayList<>(batchSize);
+    for (UserFold userFold : userFolds) {
+      maxUserId.accumulateAndGet(userFold.getUserId(), Math::max);
+      if (userFold.isDeleted()) {
+        deletedCounter.increment();
+      } else if (!userFold.isComplete()) {
+        incompleteCounter.increment();
+        log.warn("User {} has no CREATED event or lacks fields, skipped", userFold.getUserId());
+      } else {
+        users.add(userFold.toUser());
+        if (users.size() == batchSize) {
+          insert(users);
+        }
+      }
+    }
+    if (!users.isEmpty()) {
+      insert(users);
+    }
+  }
+
+  private void insert(List<User> users) {
+    userBulkLoader.insertUsers(users);
+    loadedCounter.increment(users.size());
+    users.clear();
+  }
+}
@@ -0,0 +1,78 @@
+package com.ivanfranchin.userservice.user;
+
+import com.ivanfranchin.userservice.user.model.User;
+import java.util.Objects;
+import java.util.Optional;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches users by id, and user ids by email. Size and TTL are set by {@code
+ * spring.cache.caffeine.spec}. Copies are stored and returned, so callers can modify the users they
+ * get without affecting the cached ones.
+ *
+ * <p>An email entry is only trusted when the cached user with that id still has that email. Only
+ * the id entry needs to be evicted when a user changes, even on replicas that don't know the old
+ * email.
+ */
+@Component
+public class UserCache {
+
+  public static final String USERS_BY_ID = "usersById";
+  public static final String USER_IDS_BY_EMAIL = "userIdsByEmail";
+
+  private final Cache usersById;
+  private final Cache userIdsByEmail;
+
+  public UserCache(CacheManager cacheManager) {
+    this.usersById = Objects.requireNonNull(cacheManager.getCache(USERS_BY_ID));
+    this.userIdsByEmail = Objects.requireNonNull(cacheManager.getCache(USER_IDS_BY_EMAIL));
+  }
+
+  public Optional<User> getById(Long id) {
+    return Optional.ofNullable(usersById.get(id, User.class)).map(User::new);
+  }
+
+  public Optional<User> getByEmail(String email) {
+    Long id = userIdsByEmail.get(email, Long.class);
+    if (id == null) {
+      return Optional.empty();
+    }
+    Optional<User> user = getById(id).filter(cached -> email.equals(cached.getEmail()));
+    if (user.isEmpty()) {
+      userIdsByEmail.evict(email);
+    }
+    return user;
+  }
+
+  public void put(User user) {
+    usersById.put(user.getId(), new User(user));
+    userIdsByEmail.put(user.getEmail(), user.getId());
+  }
+
+  public void evict(Long id) {
+    usersById.evict(id);
+  }
+
+  /**
+   * Evicts the user once the current transaction has committed or rolled back, so a lookup running
+   * before the commit can't cache the user as it was again. Evicts right away outside a
+   * transaction.
+   */
+  public void evictAfterTransaction(Long id) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      evict(id);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            evict(id);
+          }
+        });
+  }
+}
@@ -0,0 +1,45 @@
+package com.ivanfranchin.userservice.user;
+
+import com.ivanfranchin.userservice.outbox.OutboxRelay;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps {@link UserCache} coherent across replicas. Each replica consumes the users topic with its
+ * own anonymous consumer group, so it receives every event, and evicts the user the event is about.
+ * The payload isn't deserialized: the user id is taken from the partition key header, which works
+ * with both JSON and Avro.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class UserCacheListener {
+
+  private final UserCache userCache;
+
+  @Bean
+  Consumer<Message<byte[]>> userCacheInvalidation() {
+    return message -> {
+      Object partitionKey = message.getHeaders().get(OutboxRelay.PARTITION_KEY_HEADER);
+      if (partitionKey == null) {
+        log.warn("Received a user event without {} header", OutboxRelay.PARTITION_KEY_HEADER);
+        return;
+      }
+      userCache.evict(toUserId(partitionKey));
+    };
+  }
+
+  private Long toUserId(Object partitionKey) {
+    if (partitionKey instanceof Number number) {
+      return number.longValue();
+    }
+    if (partitionKey instanceof byte[] bytes) {
+      return Long.valueOf(new String(bytes));
+    }
+    return Long.valueOf(partitionKey.toString());
+  }
+}
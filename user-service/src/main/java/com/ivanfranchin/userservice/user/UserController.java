@@ -4,10 +4,18 @@ import com.ivanfranchin.userservice.user.dto.CreateUserRequest;
 import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
 import com.ivanfranchin.userservice.user.dto.UserResponse;
 import com.ivanfranchin.userservice.user.model.User;
+import com.ivanfranchin.userservice.user.model.UserFilter;
+import com.ivanfranchin.userservice.user.model.UserPage;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,20 +24,72 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
 
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+  public static final int BULK_MAX_SIZE = 10_000;
+  public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+
   private final UserService userService;
-  private final UserEmitter userStream;
+  private final ObjectMapper objectMapper;
+
+  @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<UserResponse>> getUsers(
+      @RequestParam(required = false) Boolean active,
+      @RequestParam(required = false) Instant createdFrom,
+      @RequestParam(required = false) Instant createdTo,
+      @RequestParam(required = false) Instant updatedFrom,
+      @RequestParam(required = false) Instant updatedTo,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String pageToken) {
+    UserFilter userFilter = new UserFilter(active, createdFrom, createdTo, updatedFrom, updatedTo);
+    UserPage userPage = userService.getUsers(userFilter, limit, pageToken);
 
-  @GetMapping
-  public List<UserResponse> getUsers() {
-    return userService.getUsers().stream().map(UserResponse::from).toList();
+    ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+    if (userPage.nextPageToken() != null) {
+      responseBuilder.header(NEXT_PAGE_TOKEN_HEADER, userPage.nextPageToken());
+    }
+    return responseBuilder.body(userPage.users().stream().map(UserResponse::from).toList());
+  }
+
+  /**
+   * Streams all the users matching the filters as newline-delimited JSON, for full exports. Users
+   * are read from MySQL page by page and each page is flushed to the client before the next one is
+   * fetched.
+   */
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamUsers(
+      @RequestParam(required = false) Boolean active,
+      @RequestParam(required = false) Instant createdFrom,
+      @RequestParam(required = false) Instant createdTo,
+      @RequestParam(required = false) Instant updatedFrom,
+      @RequestParam(required = false) Instant updatedTo) {
+    UserFilter userFilter = new UserFilter(active, createdFrom, createdTo, updatedFrom, updatedTo);
+
+    StreamingResponseBody body =
+        outputStream ->
+            userService.forEachUserPage(
+                userFilter,
+                users -> {
+                  try {
+                    for (User user : users) {
+                      outputStream.write(objectMapper.writeValueAsBytes(UserResponse.from(user)));
+                      outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
   }
 
   @GetMapping("/{id}")
@@ -42,16 +102,20 @@ public class UserController {
   @PostMapping
   public UserResponse createUser(@Valid @RequestBody CreateUserRequest createUserRequest) {
     userService.validateUserExistsByEmail(createUserRequest.email());
-    User user = createUserRequest.toDomain();
-
-    // -- Saving to MySQL and sending event to Kafka is not an atomic transaction!
-    user = userService.saveUser(user);
-    userStream.userCreated(user.getId(), createUserRequest);
-    // --
-
+    User user = userService.createUser(createUserRequest);
     return UserResponse.from(user);
   }
 
+  @ResponseStatus(HttpStatus.CREATED)
+  @PostMapping("/bulk")
+  public List<UserResponse> createUsers(
+      @RequestBody @Size(min = 1, max = BULK_MAX_SIZE) List<@Valid CreateUserRequest> requests) {
+    userService.validateUsersDoNotExistByEmail(
+        requests.stream().map(CreateUserRequest::email).toList());
+    List<User> users = userService.createUsers(requests);
+    return users.stream().map(UserResponse::from).toList();
+  }
+
   @PutMapping("/{id}")
   public UserResponse updateUser(
       @PathVariable Long id, @Valid @RequestBody UpdateUserRequest updateUserRequest) {
@@ -63,13 +127,7 @@ public class UserController {
       userService.validateUserExistsByEmail(updateUserRequestEmail);
     }
 
-    updateUserRequest.applyTo(user);
-
-    // -- Saving to MySQL and sending event to Kafka is not an atomic transaction!
-    user = userService.saveUser(user);
-    userStream.userUpdated(user.getId(), updateUserRequest);
-    // --
-
+    user = userService.updateUser(user, updateUserRequest);
     return UserResponse.from(user);
   }
 
@@ -77,10 +135,6 @@ public class UserController {
   @DeleteMapping("/{id}")
   public void deleteUser(@PathVariable Long id) {
     User user = userService.validateAndGetUserById(id);
-
-    // -- Deleting from MySQL and sending event to Kafka is not an atomic transaction!
     userService.deleteUser(user);
-    userStream.userDeleted(user.getId());
-    // --
   }
 }
@@ -1,69 +1,101 @@
 package com.ivanfranchin.userservice.user;
 
+import com.ivanfranchin.userservice.outbox.OutboxService;
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
 import com.ivanfranchin.userservice.user.dto.CreateUserRequest;
 import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
 import com.ivanfranchin.userservice.user.event.EventType;
 import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import com.ivanfranchin.userservice.user.model.User;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.stream.function.StreamBridge;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
-import org.springframework.util.MimeType;
-import tools.jackson.databind.ObjectMapper;
 
-@Slf4j
+/**
+ * Records user events in the outbox. When called inside a transaction, the event is persisted
+ * atomically with the user change; {@link com.ivanfranchin.userservice.outbox.OutboxRelay} is
+ * responsible for sending it to Kafka.
+ *
+ * <p>The fields of the request are carried as fields of the event, so they are encoded once, with
+ * the event, instead of as a JSON string nested in it.
+ */
 @RequiredArgsConstructor
 @Component
 public class UserEmitter {
 
-  private final StreamBridge streamBridge;
-  private final ObjectMapper objectMapper;
+  private final OutboxService outboxService;
 
-  @Value("${spring.cloud.stream.bindings.users-out-0.content-type}")
-  private String streamOutMimeType;
-
-  public Message<UserEventMessage> userCreated(Long id, CreateUserRequest createUserRequest) {
+  public UserEventMessage userCreated(Long id, Long version, CreateUserRequest createUserRequest) {
     UserEventMessage userEventMessage =
         new UserEventMessage(
             getId(),
             System.currentTimeMillis(),
             EventType.CREATED,
             id,
-            objectMapper.writeValueAsString(createUserRequest));
-    return sendToBus(id, userEventMessage);
+            version,
+            createUserRequest.email(),
+            createUserRequest.fullName(),
+            createUserRequest.active(),
+            null);
+    return saveToOutbox(userEventMessage);
+  }
+
+  /** Records the CREATED events of {@code users}, created from the matching requests. */
+  public List<UserEventMessage> usersCreated(
+      List<User> users, List<CreateUserRequest> createUserRequests) {
+    List<UserEventMessage> userEventMessages = new ArrayList<>(users.size());
+    for (int i = 0; i < users.size(); i++) {
+      userEventMessages.add(
+          new UserEventMessage(
+              getId(),
+              System.currentTimeMillis(),
+              EventType.CREATED,
+              users.get(i).getId(),
+              users.get(i).getVersion(),
+              createUserRequests.get(i).email(),
+              createUserRequests.get(i).fullName(),
+              createUserRequests.get(i).active(),
+              null));
+    }
+    outboxService.saveOutboxEvents(userEventMessages.stream().map(OutboxEvent::new).toList());
+    return userEventMessages;
   }
 
-  public Message<UserEventMessage> userUpdated(Long id, UpdateUserRequest updateUserRequest) {
+  public UserEventMessage userUpdated(Long id, Long version, UpdateUserRequest updateUserRequest) {
     UserEventMessage userEventMessage =
         new UserEventMessage(
             getId(),
             System.currentTimeMillis(),
             EventType.UPDATED,
             id,
-            objectMapper.writeValueAsString(updateUserRequest));
-    return sendToBus(id, userEventMessage);
+            version,
+            updateUserRequest.email(),
+            updateUserRequest.fullName(),
+            updateUserRequest.active(),
+            null);
+    return saveToOutbox(userEventMessage);
   }
 
-  public Message<UserEventMessage> userDeleted(Long id) {
+  public UserEventMessage userDeleted(Long id, Long version) {
     UserEventMessage userEventMessage =
-        new UserEventMessage(getId(), System.currentTimeMillis(), EventType.DELETED, id, null);
-    return sendToBus(id, userEventMessage);
+        new UserEventMessage(
+            getId(),
+            System.currentTimeMillis(),
+            EventType.DELETED,
+            id,
+            version,
+            null,
+            null,
+            null,
+            null);
+    return saveToOutbox(userEventMessage);
   }
 
-  private Message<UserEventMessage> sendToBus(
-      Long partitionKey, UserEventMessage userEventMessage) {
-    Message<UserEventMessage> message =
-        MessageBuilder.withPayload(userEventMessage)
-            .setHeader("partitionKey", partitionKey)
-            .build();
-
-    streamBridge.send("users-out-0", message, MimeType.valueOf(streamOutMimeType));
-    log.info("\n---\nHeaders: {}\n\nPayload: {}\n---", message.getHeaders(), message.getPayload());
-    return message;
+  private UserEventMessage saveToOutbox(UserEventMessage userEventMessage) {
+    outboxService.saveOutboxEvent(new OutboxEvent(userEventMessage));
+    return userEventMessage;
   }
 
   private String getId() {
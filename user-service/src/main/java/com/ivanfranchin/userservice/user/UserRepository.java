@@ -1,12 +1,19 @@
 package com.ivanfranchin.userservice.user;
 
 import com.ivanfranchin.userservice.user.model.User;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
 
   Optional<User> findUserByEmail(String email);
+
+  @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+  List<String> findEmailsByEmailIn(Collection<String> emails);
 }
@@ -1,44 +1,242 @@
 package com.ivanfranchin.userservice.user;
 
+import com.ivanfranchin.userservice.user.dto.CreateUserRequest;
+import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
+import com.ivanfranchin.userservice.user.exception.InvalidUserQueryException;
 import com.ivanfranchin.userservice.user.exception.UserEmailDuplicatedException;
 import com.ivanfranchin.userservice.user.exception.UserNotFoundException;
+import com.ivanfranchin.userservice.user.exception.UserVersionConflictException;
 import com.ivanfranchin.userservice.user.model.User;
+import com.ivanfranchin.userservice.user.model.UserFilter;
+import com.ivanfranchin.userservice.user.model.UserPage;
+import jakarta.persistence.criteria.Predicate;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @RequiredArgsConstructor
 @Service
 public class UserService {
 
   private final UserRepository userRepository;
+  private final UserEmitter userEmitter;
+  private final UserCache userCache;
 
-  public List<User> getUsers() {
-    return userRepository.findAll();
+  @Value("${app.users.default-limit}")
+  private int defaultLimit;
+
+  @Value("${app.users.max-limit}")
+  private int maxLimit;
+
+  @Value("${app.users.stream-fetch-size}")
+  private int streamFetchSize;
+
+  /**
+   * Reads one page of the users matching {@code userFilter}, ordered by id. Paging is keyset based:
+   * the page token carries the id of the last user returned and the next page starts right after
+   * it, so deep pages cost the same as the first one. One extra row is fetched to tell whether
+   * there is a next page.
+   */
+  public UserPage getUsers(UserFilter userFilter, Integer limit, String pageToken) {
+    int pageSize = limit == null ? defaultLimit : Math.clamp(limit, 1, maxLimit);
+    Long afterId = pageToken == null ? null : decodePageToken(pageToken);
+
+    List<User> users = findUsers(userFilter, afterId, pageSize + 1);
+    if (users.size() <= pageSize) {
+      return new UserPage(users, null);
+    }
+    List<User> page = users.subList(0, pageSize);
+    return new UserPage(page, encodePageToken(page.getLast().getId()));
+  }
+
+  /**
+   * Reads all the users matching {@code userFilter}, {@code app.users.stream-fetch-size} at a time.
+   * Each page is handed to {@code pageConsumer} before the next one is fetched, so only one page is
+   * held in memory.
+   */
+  public void forEachUserPage(UserFilter userFilter, Consumer<List<User>> pageConsumer) {
+    Long afterId = null;
+    List<User> users;
+    do {
+      users = findUsers(userFilter, afterId, streamFetchSize);
+      if (!users.isEmpty()) {
+        pageConsumer.accept(users);
+        afterId = users.getLast().getId();
+      }
+    } while (users.size() == streamFetchSize);
+  }
+
+  // -- Saving to MySQL and recording the event in the outbox happen in the same transaction
+
+  @Transactional
+  public User createUser(CreateUserRequest createUserRequest) {
+    User user = userRepository.save(createUserRequest.toDomain());
+    userEmitter.userCreated(user.getId(), user.getVersion(), createUserRequest);
+    return user;
+  }
+
+  /**
+   * Creates all the users in one transaction. Ids come from a pooled sequence, so the inserts are
+   * sent in JDBC batches of {@code hibernate.jdbc.batch_size}, and the CREATED events are written
+   * to the outbox in batches too.
+   */
+  @Transactional
+  public List<User> createUsers(List<CreateUserRequest> createUserRequests) {
+    List<User> users =
+        userRepository.saveAll(
+            createUserRequests.stream().map(CreateUserRequest::toDomain).toList());
+    userEmitter.usersCreated(users, createUserRequests);
+    return users;
   }
 
-  public User saveUser(User user) {
-    return userRepository.save(user);
+  /**
+   * The user is flushed before its event is recorded, so the event carries the incremented version.
+   * If the user was changed since {@code user} was read, the update is rejected.
+   */
+  @Transactional
+  public User updateUser(User user, UpdateUserRequest updateUserRequest) {
+    updateUserRequest.applyTo(user);
+    try {
+      user = userRepository.saveAndFlush(user);
+    } catch (ObjectOptimisticLockingFailureException e) {
+      throw versionConflict(user.getId(), e);
+    }
+    userEmitter.userUpdated(user.getId(), user.getVersion(), updateUserRequest);
+    userCache.evictAfterTransaction(user.getId());
+    return user;
   }
 
+  /** The DELETED event takes the version after the user's last one. */
+  @Transactional
   public void deleteUser(User user) {
-    userRepository.delete(user);
+    try {
+      userRepository.delete(user);
+      userRepository.flush();
+    } catch (ObjectOptimisticLockingFailureException e) {
+      throw versionConflict(user.getId(), e);
+    }
+    userEmitter.userDeleted(user.getId(), user.getVersion() + 1);
+    userCache.evictAfterTransaction(user.getId());
   }
 
+  // -- The lookups below go through UserCache. Other replicas evict their entries when they consume
+  // the user event
+
   public User validateAndGetUserById(Long id) {
-    return userRepository
-        .findById(id)
-        .orElseThrow(
-            () -> new UserNotFoundException(String.format("User with id '%d' doesn't exist.", id)));
+    return userCache
+        .getById(id)
+        .orElseGet(
+            () -> {
+              User user =
+                  userRepository
+                      .findById(id)
+                      .orElseThrow(
+                          () ->
+                              new UserNotFoundException(
+                                  String.format("User with id '%d' doesn't exist.", id)));
+              userCache.put(user);
+              return user;
+            });
   }
 
   public void validateUserExistsByEmail(String email) {
-    userRepository
-        .findUserByEmail(email)
+    userCache
+        .getByEmail(email)
+        .or(() -> userRepository.findUserByEmail(email).map(this::putInCache))
         .ifPresent(
             user -> {
               throw new UserEmailDuplicatedException(
                   String.format("User with email '%s' already exist.", email));
             });
   }
+
+  /** Checks, with a single query, that no email is repeated in the request or already in use. */
+  public void validateUsersDoNotExistByEmail(List<String> emails) {
+    Set<String> uniqueEmails = new HashSet<>();
+    for (String email : emails) {
+      if (!uniqueEmails.add(email)) {
+        throw new UserEmailDuplicatedException(
+            String.format("Email '%s' is repeated in the request.", email));
+      }
+    }
+    List<String> existingEmails = userRepository.findEmailsByEmailIn(uniqueEmails);
+    if (!existingEmails.isEmpty()) {
+      throw new UserEmailDuplicatedException(
+          String.format("Users with emails %s already exist.", existingEmails));
+    }
+  }
+
+  private UserVersionConflictException versionConflict(Long id, Exception cause) {
+    userCache.evictAfterTransaction(id);
+    return new UserVersionConflictException(
+        String.format("User with id '%d' was changed concurrently. Please, try again.", id), cause);
+  }
+
+  private User putInCache(User user) {
+    userCache.put(user);
+    return user;
+  }
+
+  private List<User> findUsers(UserFilter userFilter, Long afterId, int limit) {
+    return userRepository.findBy(
+        matching(userFilter, afterId), query -> query.sortBy(Sort.by("id")).limit(limit).all());
+  }
+
+  // Only the filters that are set become predicates, so MySQL can pick the index of the one used
+  private static Specification<User> matching(UserFilter userFilter, Long afterId) {
+    return (root, query, criteriaBuilder) -> {
+      List<Predicate> predicates = new ArrayList<>();
+      if (afterId != null) {
+        predicates.add(criteriaBuilder.greaterThan(root.get("id"), afterId));
+      }
+      if (userFilter.active() != null) {
+        predicates.add(criteriaBuilder.equal(root.get("active"), userFilter.active()));
+      }
+      if (userFilter.createdFrom() != null) {
+        predicates.add(
+            criteriaBuilder.greaterThanOrEqualTo(root.get("createdAt"), userFilter.createdFrom()));
+      }
+      if (userFilter.createdTo() != null) {
+        predicates.add(
+            criteriaBuilder.lessThanOrEqualTo(root.get("createdAt"), userFilter.createdTo()));
+      }
+      if (userFilter.updatedFrom() != null) {
+        predicates.add(
+            criteriaBuilder.greaterThanOrEqualTo(root.get("updatedAt"), userFilter.updatedFrom()));
+      }
+      if (userFilter.updatedTo() != null) {
+        predicates.add(
+            criteriaBuilder.lessThanOrEqualTo(root.get("updatedAt"), userFilter.updatedTo()));
+      }
+      return criteriaBuilder.and(predicates.toArray(Predicate[]::new));
+    };
+  }
+
+  private static String encodePageToken(Long lastId) {
+    byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(lastId).array();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private static Long decodePageToken(String pageToken) {
+    try {
+      byte[] bytes = Base64.getUrlDecoder().decode(pageToken);
+      if (bytes.length != Long.BYTES) {
+        throw new IllegalArgumentException("Unexpected page token length " + bytes.length);
+      }
+      return ByteBuffer.wrap(bytes).getLong();
+    } catch (IllegalArgumentException e) {
+      throw new InvalidUserQueryException("The page token is malformed.", e);
+    }
+  }
 }
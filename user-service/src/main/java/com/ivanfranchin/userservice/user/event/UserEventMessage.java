@@ -1,8 +1,10 @@
 package com.ivanfranchin.userservice.user.event;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Value;
 
 @Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class UserEventMessage {
   // It does not work if we change this class to Java Record
 
@@ -10,5 +12,13 @@ public class UserEventMessage {
   Long eventTimestamp;
   EventType eventType;
   Long userId;
+  Long version;
+
+  // The fields set by the change; the ones an update leaves unchanged are null
+  String email;
+  String fullName;
+  Boolean active;
+
+  // Changed fields as JSON, only set by events sent before the fields above
   String userJson;
 }
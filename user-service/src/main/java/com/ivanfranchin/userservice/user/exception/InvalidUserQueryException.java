@@ -0,0 +1,12 @@
+package com.ivanfranchin.userservice.user.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidUserQueryException extends RuntimeException {
+
+  public InvalidUserQueryException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
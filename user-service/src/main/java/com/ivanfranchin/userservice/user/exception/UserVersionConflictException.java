@@ -0,0 +1,12 @@
+package com.ivanfranchin.userservice.user.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class UserVersionConflictException extends RuntimeException {
+
+  public UserVersionConflictException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -5,9 +5,12 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.Instant;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,11 +18,24 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Data
 @Entity
-@Table(name = "users")
+// Back the filters of GET /api/users. Each index ends with id, the keyset the pages are read by, so
+// the pages of active users are read in id order from the index instead of being sorted
+@Table(
+    name = "users",
+    indexes = {
+      @Index(name = "idx_users_active_id", columnList = "active, id"),
+      @Index(name = "idx_users_created_at_id", columnList = "createdAt, id"),
+      @Index(name = "idx_users_updated_at_id", columnList = "updatedAt, id")
+    })
 public class User {
 
+  public static final int ID_ALLOCATION_SIZE = 500;
+
+  // Ids are allocated from a pooled sequence, instead of IDENTITY, so that Hibernate can batch the
+  // inserts. MySQL has no sequences; Hibernate emulates it with the users_seq table
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+  @SequenceGenerator(name = "users_seq", allocationSize = ID_ALLOCATION_SIZE)
   private Long id;
 
   @Column(nullable = false, unique = true)
@@ -31,6 +47,13 @@ public class User {
   @Column(nullable = false)
   private Boolean active;
 
+  // Incremented by Hibernate on every update, starting at 0 when the user is created. It is
+  // carried in the user events, so consumers can detect missing and duplicated events. It also
+  // rejects updates based on a stale copy of the user
+  @Version
+  @Column(nullable = false)
+  private Long version;
+
   @Column(nullable = false)
   private Instant createdAt;
 
@@ -43,6 +66,16 @@ public class User {
     this.active = active;
   }
 
+  public User(User user) {
+    this.id = user.id;
+    this.email = user.email;
+    this.fullName = user.fullName;
+    this.active = user.active;
+    this.version = user.version;
+    this.createdAt = user.createdAt;
+    this.updatedAt = user.updatedAt;
+  }
+
   @PrePersist
   public void onPrePersist() {
     createdAt = updatedAt = Instant.now();
@@ -0,0 +1,16 @@
+package com.ivanfranchin.userservice.user.model;
+
+import java.time.Instant;
+
+/** Optional filters of the user listing. Each range bound is inclusive and {@code null} is open. */
+public record UserFilter(
+    Boolean active,
+    Instant createdFrom,
+    Instant createdTo,
+    Instant updatedFrom,
+    Instant updatedTo) {
+
+  public static UserFilter none() {
+    return new UserFilter(null, null, null, null, null);
+  }
+}
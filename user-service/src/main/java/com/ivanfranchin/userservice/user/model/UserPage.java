@@ -0,0 +1,9 @@
+package com.ivanfranchin.userservice.user.model;
+
+import java.util.List;
+
+/**
+ * A page of users ordered by id. {@code nextPageToken} is an opaque token wrapping the id of the
+ * last user returned, or {@code null} when there are no more users.
+ */
+public record UserPage(List<User> users, String nextPageToken) {}
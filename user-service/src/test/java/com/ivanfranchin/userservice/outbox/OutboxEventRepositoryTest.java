@@ -0,0 +1,80 @@
+package com.ivanfranchin.userservice.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ivanfranchin.userservice.MySQLTestcontainers;
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
+import org.springframework.data.domain.Limit;
+
+@DataJpaTest
+@ImportTestcontainers(MySQLTestcontainers.class)
+class OutboxEventRepositoryTest {
+
+  private static final Duration LEASE_TIMEOUT = Duration.ofSeconds(30);
+
+  @Autowired private OutboxEventRepository outboxEventRepository;
+
+  @Autowired private TestEntityManager testEntityManager;
+
+  @Test
+  void testFindDispatchableSkipsTheLaterEventsOfAUserWithAnUnconfirmedSend() {
+    OutboxEvent created = saveOutboxEvent(1L, EventType.CREATED);
+    OutboxEvent otherUserCreated = saveOutboxEvent(2L, EventType.CREATED);
+    // The send of the first event failed after the relay claimed it, and it was never confirmed
+    outboxEventRepository.markDispatched(List.of(created.getId()), Instant.now());
+    OutboxEvent updated = saveOutboxEvent(1L, EventType.UPDATED);
+    testEntityManager.clear();
+
+    assertThat(findDispatchable(Instant.now()))
+        .extracting(OutboxEvent::getId)
+        .containsExactly(otherUserCreated.getId());
+
+    // Once the lease of the first event expires, it is claimed again before the later one
+    assertThat(findDispatchable(Instant.now().plus(LEASE_TIMEOUT).plusSeconds(1)))
+        .extracting(OutboxEvent::getId)
+        .containsExactly(created.getId(), otherUserCreated.getId(), updated.getId());
+  }
+
+  @Test
+  void testClearDispatchedReleasesTheEvents() {
+    OutboxEvent created = saveOutboxEvent(1L, EventType.CREATED);
+    OutboxEvent updated = saveOutboxEvent(1L, EventType.UPDATED);
+    outboxEventRepository.markDispatched(List.of(created.getId(), updated.getId()), Instant.now());
+
+    outboxEventRepository.clearDispatched(List.of(created.getId(), updated.getId()));
+    testEntityManager.clear();
+
+    assertThat(findDispatchable(Instant.now()))
+        .extracting(OutboxEvent::getId)
+        .containsExactly(created.getId(), updated.getId());
+  }
+
+  private List<OutboxEvent> findDispatchable(Instant now) {
+    return outboxEventRepository.findDispatchable(now.minus(LEASE_TIMEOUT), Limit.of(10));
+  }
+
+  private OutboxEvent saveOutboxEvent(Long userId, EventType eventType) {
+    return outboxEventRepository.saveAndFlush(
+        new OutboxEvent(
+            new UserEventMessage(
+                eventType + "-" + userId,
+                System.currentTimeMillis(),
+                eventType,
+                userId,
+                0L,
+                "email",
+                "fullName",
+                true,
+                null)));
+  }
+}
@@ -0,0 +1,89 @@
+package com.ivanfranchin.userservice.outbox;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+import com.ivanfranchin.avroconverter.CachingAvroMessageConverter;
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.messaging.Message;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.MimeType;
+
+@ExtendWith(SpringExtension.class)
+@Import(OutboxRelay.class)
+@TestPropertySource(
+    properties = {
+      "spring.cloud.stream.bindings.users-out-0.content-type=application/json",
+      "app.outbox.relay.batch-size=10",
+      "app.outbox.relay.lease-timeout=30s"
+    })
+class OutboxRelayTest {
+
+  @Autowired private OutboxRelay outboxRelay;
+
+  @MockitoBean private OutboxService outboxService;
+
+  @MockitoBean private StreamBridge streamBridge;
+
+  @MockitoBean private CachingAvroMessageConverter avroSchemaMessageConverter;
+
+  @Test
+  void testRelayReleasesTheEventsNotSentWhenASendFails() {
+    OutboxEvent created = getOutboxEvent(1L, 1L, EventType.CREATED);
+    OutboxEvent updated = getOutboxEvent(2L, 1L, EventType.UPDATED);
+    given(outboxService.claimOutboxEvents(anyInt(), any(Duration.class)))
+        .willReturn(List.of(created, updated));
+    given(streamBridge.send(anyString(), any(Message.class), any(MimeType.class)))
+        .willThrow(new IllegalStateException("buffer full"));
+
+    outboxRelay.relay();
+
+    then(streamBridge).should(times(1)).send(anyString(), any(Message.class), any(MimeType.class));
+    then(outboxService).should().releaseOutboxEvents(List.of(1L, 2L));
+  }
+
+  private static OutboxEvent getOutboxEvent(Long id, Long userId, EventType eventType) {
+    OutboxEvent outboxEvent =
+        new OutboxEvent(
+            new UserEventMessage(
+                "eventId" + id, id, eventType, userId, id - 1, "email", "fullName", true, null));
+    outboxEvent.setId(id);
+    return outboxEvent;
+  }
+
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+
+    // converts the Duration properties, as Spring Boot does in the application
+    @Bean
+    static ConversionService conversionService() {
+      return ApplicationConversionService.getSharedInstance();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.ivanfranchin.userservice.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+
+import com.ivanfranchin.userservice.outbox.exception.OutboxBacklogFullException;
+import com.ivanfranchin.userservice.outbox.model.OutboxEvent;
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.event.UserEventMessage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@Import(OutboxService.class)
+@TestPropertySource(
+    properties = {"spring.jpa.properties.hibernate.jdbc.batch_size=2", "app.outbox.max-backlog=10"})
+class OutboxServiceTest {
+
+  @Autowired private OutboxService outboxService;
+
+  @MockitoBean private OutboxEventRepository outboxEventRepository;
+
+  @MockitoBean private JdbcTemplate jdbcTemplate;
+
+  @Test
+  void testClaimOutboxEventsWhenThereIsNone() {
+    given(outboxEventRepository.findDispatchable(any(Instant.class), any(Limit.class)))
+        .willReturn(Collections.emptyList());
+
+    List<OutboxEvent> outboxEvents = outboxService.claimOutboxEvents(10, Duration.ofSeconds(30));
+
+    assertThat(outboxEvents).isEmpty();
+    then(outboxEventRepository).should(never()).markDispatched(anyCollection(), any());
+  }
+
+  @Test
+  void testClaimOutboxEventsWhenThereIsOne() {
+    OutboxEvent outboxEvent = getDefaultOutboxEvent();
+    given(outboxEventRepository.findDispatchable(any(Instant.class), any(Limit.class)))
+        .willReturn(Collections.singletonList(outboxEvent));
+
+    List<OutboxEvent> outboxEvents = outboxService.claimOutboxEvents(10, Duration.ofSeconds(30));
+
+    assertThat(outboxEvents).containsExactly(outboxEvent);
+    then(outboxEventRepository)
+        .should()
+        .markDispatched(eq(List.of(outboxEvent.getId())), any(Instant.class));
+  }
+
+  @Test
+  void testReleaseOutboxEvents() {
+    outboxService.releaseOutboxEvents(List.of(1L, 2L));
+
+    then(outboxEventRepository).should().clearDispatched(List.of(1L, 2L));
+  }
+
+  @Test
+  void testSaveOutboxEventsInJdbcBatches() {
+    List<OutboxEvent> outboxEvents = List.of(getDefaultOutboxEvent(), getDefaultOutboxEvent());
+
+    outboxService.saveOutboxEvents(outboxEvents);
+
+    then(jdbcTemplate)
+        .should()
+        .batchUpdate(
+            startsWith("INSERT INTO outbox_events"),
+            eq(outboxEvents),
+            eq(2),
+            any(ParameterizedPreparedStatementSetter.class));
+    then(outboxEventRepository).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testSaveOutboxEventWhenBacklogIsFull() {
+    given(outboxEventRepository.count()).willReturn(10L);
+    outboxService.refreshBacklog();
+
+    assertThatExceptionOfType(OutboxBacklogFullException.class)
+        .isThrownBy(() -> outboxService.saveOutboxEvent(getDefaultOutboxEvent()));
+    then(outboxEventRepository).should(never()).save(any(OutboxEvent.class));
+
+    given(outboxEventRepository.count()).willReturn(9L);
+    outboxService.refreshBacklog();
+
+    outboxService.saveOutboxEvent(getDefaultOutboxEvent());
+    then(outboxEventRepository).should().save(any(OutboxEvent.class));
+  }
+
+  private OutboxEvent getDefaultOutboxEvent() {
+    OutboxEvent outboxEvent =
+        new OutboxEvent(
+            new UserEventMessage(
+                "eventId", 1L, EventType.CREATED, 1L, 0L, "email", "fullName", true, null));
+    outboxEvent.setId(1L);
+    return outboxEvent;
+  }
+}
@@ -0,0 +1,50 @@
+package com.ivanfranchin.userservice.rebuild;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ivanfranchin.userservice.MySQLTestcontainers;
+import com.ivanfranchin.userservice.user.UserRepository;
+import com.ivanfranchin.userservice.user.model.User;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Not transactional, as Hibernate reads users_seq in a transaction of its own
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("user-rebuild")
+@Import(UserBulkLoader.class)
+@ImportTestcontainers(MySQLTestcontainers.class)
+class UserBulkLoaderTest {
+
+  @Autowired private UserBulkLoader userBulkLoader;
+
+  @Autowired private UserRepository userRepository;
+
+  @Test
+  void testUsersCreatedAfterARebuildGetNewIds() {
+    userBulkLoader.insertUsers(List.of(createUser(1L, "ivan@test"), createUser(700L, "ana@test")));
+    userBulkLoader.moveSequencePast(700L);
+
+    User user = userRepository.saveAndFlush(new User("new@test", "New", true));
+
+    assertThat(user.getId()).isGreaterThan(700L);
+    assertThat(userRepository.count()).isEqualTo(3);
+  }
+
+  private static User createUser(Long id, String email) {
+    User user = new User(email, "fullName", true);
+    user.setId(id);
+    user.setVersion(0L);
+    user.setCreatedAt(Instant.now());
+    user.setUpdatedAt(Instant.now());
+    return user;
+  }
+}
@@ -0,0 +1,79 @@
+package com.ivanfranchin.userservice.rebuild;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ivanfranchin.userservice.user.event.EventType;
+import com.ivanfranchin.userservice.user.model.User;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class UserFoldTest {
+
+  private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+  private static final Instant T1 = Instant.parse("2026-01-02T00:00:00Z");
+  private static final Instant T2 = Instant.parse("2026-01-03T00:00:00Z");
+
+  @Test
+  void testApplyInAnyOrder() {
+    UserFold userFold = new UserFold(1L);
+    userFold.apply(EventType.UPDATED, T2, 2, null, "Ivan 2", null);
+    userFold.apply(EventType.UPDATED, T1, 1, "ivan.1@test.com", "Ivan 1", false);
+    userFold.apply(EventType.CREATED, T0, 0, "ivan@test.com", "Ivan", true);
+
+    assertThat(userFold.isComplete()).isTrue();
+    assertThat(userFold.isDeleted()).isFalse();
+    User user = userFold.toUser();
+    assertThat(user.getId()).isEqualTo(1L);
+    assertThat(user.getEmail()).isEqualTo("ivan.1@test.com");
+    assertThat(user.getFullName()).isEqualTo("Ivan 2");
+    assertThat(user.getActive()).isFalse();
+    assertThat(user.getVersion()).isEqualTo(2L);
+    assertThat(user.getCreatedAt()).isEqualTo(T0);
+    assertThat(user.getUpdatedAt()).isEqualTo(T2);
+  }
+
+  @Test
+  void testMerge() {
+    UserFold first = new UserFold(1L);
+    first.apply(EventType.CREATED, T0, 0, "ivan@test.com", "Ivan", true);
+    UserFold second = new UserFold(1L);
+    second.apply(EventType.UPDATED, T1, 1, null, null, false);
+
+    User user = second.merge(first).toUser();
+
+    assertThat(user.getEmail()).isEqualTo("ivan@test.com");
+    assertThat(user.getActive()).isFalse();
+    assertThat(user.getVersion()).isEqualTo(1L);
+    assertThat(user.getCreatedAt()).isEqualTo(T0);
+    assertThat(user.getUpdatedAt()).isEqualTo(T1);
+  }
+
+  @Test
+  void testDeleted() {
+    UserFold userFold = new UserFold(1L);
+    userFold.apply(EventType.DELETED, T1, 1, null, null, null);
+    userFold.apply(EventType.CREATED, T0, 0, "ivan@test.com", "Ivan", true);
+
+    assertThat(userFold.isDeleted()).isTrue();
+  }
+
+  @Test
+  void testIncompleteWithoutCreatedEvent() {
+    UserFold userFold = new UserFold(1L);
+    userFold.apply(EventType.UPDATED, T1, 1, "ivan@test.com", "Ivan", true);
+
+    assertThat(userFold.isComplete()).isFalse();
+  }
+
+  @Test
+  void testEventsWithoutVersionAreOrderedByDatetime() {
+    UserFold userFold = new UserFold(1L);
+    userFold.apply(EventType.UPDATED, T1, 0, null, "Ivan 1", null);
+    userFold.apply(EventType.CREATED, T0, 0, "ivan@test.com", "Ivan", true);
+
+    User user = userFold.toUser();
+    assertThat(user.getFullName()).isEqualTo("Ivan 1");
+    assertThat(user.getCreatedAt()).isEqualTo(T0);
+    assertThat(user.getUpdatedAt()).isEqualTo(T1);
+  }
+}
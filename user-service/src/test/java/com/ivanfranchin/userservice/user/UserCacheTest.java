@@ -0,0 +1,94 @@
+package com.ivanfranchin.userservice.user;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ivanfranchin.userservice.user.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+class UserCacheTest {
+
+  private UserCache userCache;
+
+  @BeforeEach
+  void setUp() {
+    userCache =
+        new UserCache(
+            new ConcurrentMapCacheManager(UserCache.USERS_BY_ID, UserCache.USER_IDS_BY_EMAIL));
+  }
+
+  @Test
+  void testGetByIdReturnsCopy() {
+    userCache.put(getDefaultUser());
+
+    User user = userCache.getById(1L).orElseThrow();
+    user.setFullName("fullName2");
+
+    assertThat(userCache.getById(1L)).get().extracting(User::getFullName).isEqualTo("fullName");
+  }
+
+  @Test
+  void testGetByEmail() {
+    userCache.put(getDefaultUser());
+
+    assertThat(userCache.getByEmail("email@test")).get().extracting(User::getId).isEqualTo(1L);
+  }
+
+  @Test
+  void testGetByEmailWhenUserEvicted() {
+    userCache.put(getDefaultUser());
+
+    userCache.evict(1L);
+
+    assertThat(userCache.getByEmail("email@test")).isEmpty();
+  }
+
+  @Test
+  void testEvictAfterTransaction() {
+    userCache.put(getDefaultUser());
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      userCache.evictAfterTransaction(1L);
+
+      assertThat(userCache.getById(1L)).isPresent();
+
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_COMMITTED);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(userCache.getById(1L)).isEmpty();
+  }
+
+  @Test
+  void testEvictAfterTransactionOutsideATransaction() {
+    userCache.put(getDefaultUser());
+
+    userCache.evictAfterTransaction(1L);
+
+    assertThat(userCache.getById(1L)).isEmpty();
+  }
+
+  @Test
+  void testGetByEmailWhenEmailChanged() {
+    User user = getDefaultUser();
+    userCache.put(user);
+    user.setEmail("email2@test");
+    userCache.put(user);
+
+    assertThat(userCache.getByEmail("email@test")).isEmpty();
+    assertThat(userCache.getByEmail("email2@test")).isPresent();
+  }
+
+  private User getDefaultUser() {
+    User user = new User("email@test", "fullName", true);
+    user.setId(1L);
+    return user;
+  }
+}
@@ -3,31 +3,50 @@ package com.ivanfranchin.userservice.user;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.ivanfranchin.userservice.outbox.exception.OutboxBacklogFullException;
 import com.ivanfranchin.userservice.user.dto.CreateUserRequest;
 import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
+import com.ivanfranchin.userservice.user.dto.UserResponse;
+import com.ivanfranchin.userservice.user.exception.InvalidUserQueryException;
 import com.ivanfranchin.userservice.user.exception.UserEmailDuplicatedException;
 import com.ivanfranchin.userservice.user.exception.UserNotFoundException;
+import com.ivanfranchin.userservice.user.exception.UserVersionConflictException;
 import com.ivanfranchin.userservice.user.model.User;
+import com.ivanfranchin.userservice.user.model.UserFilter;
+import com.ivanfranchin.userservice.user.model.UserPage;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import tools.jackson.databind.ObjectMapper;
 
@@ -40,11 +59,10 @@ class UserControllerTest {
 
   @MockitoBean private UserService userService;
 
-  @MockitoBean private UserEmitter userEmitter;
-
   @Test
   void testGetUsersWhenThereIsNone() throws Exception {
-    given(userService.getUsers()).willReturn(Collections.emptyList());
+    given(userService.getUsers(any(UserFilter.class), isNull(), isNull()))
+        .willReturn(new UserPage(Collections.emptyList(), null));
 
     ResultActions resultActions = mockMvc.perform(get(API_USERS_URL)).andDo(print());
 
@@ -57,7 +75,8 @@ class UserControllerTest {
   @Test
   void testGetUsersWhenThereIsOne() throws Exception {
     User user = getDefaultUser();
-    given(userService.getUsers()).willReturn(Collections.singletonList(user));
+    given(userService.getUsers(any(UserFilter.class), isNull(), isNull()))
+        .willReturn(new UserPage(Collections.singletonList(user), null));
 
     ResultActions resultActions = mockMvc.perform(get(API_USERS_URL)).andDo(print());
 
@@ -68,7 +87,83 @@ class UserControllerTest {
         .andExpect(jsonPath(JSON_$_0_ID, is(user.getId().intValue())))
         .andExpect(jsonPath(JSON_$_0_EMAIL, is(user.getEmail())))
         .andExpect(jsonPath(JSON_$_0_FULL_NAME, is(user.getFullName())))
-        .andExpect(jsonPath(JSON_$_0_ACTIVE, is(user.getActive())));
+        .andExpect(jsonPath(JSON_$_0_ACTIVE, is(user.getActive())))
+        .andExpect(header().doesNotExist(UserController.NEXT_PAGE_TOKEN_HEADER));
+  }
+
+  @Test
+  void testGetUsersWithFiltersAndNextPage() throws Exception {
+    User user = getDefaultUser();
+    given(userService.getUsers(any(UserFilter.class), eq(1), eq("token")))
+        .willReturn(new UserPage(List.of(user), "nextToken"));
+
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                get(API_USERS_URL)
+                    .param("active", "true")
+                    .param("createdFrom", "2026-01-01T00:00:00Z")
+                    .param("limit", "1")
+                    .param("pageToken", "token"))
+            .andDo(print());
+
+    resultActions
+        .andExpect(status().isOk())
+        .andExpect(jsonPath(JSON_$, hasSize(1)))
+        .andExpect(header().string(UserController.NEXT_PAGE_TOKEN_HEADER, "nextToken"));
+    then(userService)
+        .should()
+        .getUsers(
+            new UserFilter(true, Instant.parse("2026-01-01T00:00:00Z"), null, null, null),
+            1,
+            "token");
+  }
+
+  @Test
+  void testGetUsersWhenPageTokenIsMalformed() throws Exception {
+    given(userService.getUsers(any(UserFilter.class), isNull(), anyString()))
+        .willThrow(InvalidUserQueryException.class);
+
+    ResultActions resultActions =
+        mockMvc.perform(get(API_USERS_URL).param("pageToken", "AAAA")).andDo(print());
+
+    resultActions.andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testStreamUsers() throws Exception {
+    User user1 = getDefaultUser();
+    User user2 = new User("email2@test", "fullName2", false);
+    user2.setId(2L);
+    willAnswer(
+            invocation -> {
+              Consumer<List<User>> pageConsumer = invocation.getArgument(1);
+              pageConsumer.accept(List.of(user1));
+              pageConsumer.accept(List.of(user2));
+              return null;
+            })
+        .given(userService)
+        .forEachUserPage(any(UserFilter.class), any());
+
+    MvcResult mvcResult =
+        mockMvc
+            .perform(get(API_USERS_URL).accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    mockMvc
+        .perform(asyncDispatch(mvcResult))
+        .andDo(print())
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(
+            content()
+                .string(
+                    objectMapper.writeValueAsString(UserResponse.from(user1))
+                        + "\n"
+                        + objectMapper.writeValueAsString(UserResponse.from(user2))
+                        + "\n"));
+    then(userService).should().forEachUserPage(eq(UserFilter.none()), any());
   }
 
   @Test
@@ -93,13 +188,14 @@ class UserControllerTest {
         .andExpect(jsonPath(JSON_$_ID, is(user.getId().intValue())))
         .andExpect(jsonPath(JSON_$_EMAIL, is(user.getEmail())))
         .andExpect(jsonPath(JSON_$_FULL_NAME, is(user.getFullName())))
-        .andExpect(jsonPath(JSON_$_ACTIVE, is(user.getActive())));
+        .andExpect(jsonPath(JSON_$_ACTIVE, is(user.getActive())))
+        .andExpect(jsonPath(JSON_$_VERSION, is(user.getVersion().intValue())));
   }
 
   @Test
   void testCreateUserInformingValidInput() throws Exception {
     User user = getDefaultUser();
-    given(userService.saveUser(any(User.class))).willReturn(user);
+    given(userService.createUser(any(CreateUserRequest.class))).willReturn(user);
 
     CreateUserRequest createUserRequest = getDefaultCreateUserRequest();
     ResultActions resultActions =
@@ -150,13 +246,102 @@ class UserControllerTest {
     resultActions.andExpect(status().isConflict());
   }
 
+  @Test
+  void testCreateUserWhenOutboxBacklogIsFull() throws Exception {
+    given(userService.createUser(any(CreateUserRequest.class)))
+        .willThrow(OutboxBacklogFullException.class);
+
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                post(API_USERS_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(getDefaultCreateUserRequest())))
+            .andDo(print());
+
+    resultActions.andExpect(status().isServiceUnavailable());
+  }
+
+  @Test
+  void testCreateUsersInformingValidInput() throws Exception {
+    User user = getDefaultUser();
+    given(userService.createUsers(anyList())).willReturn(List.of(user));
+
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                post(API_USERS_BULK_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        objectMapper.writeValueAsString(List.of(getDefaultCreateUserRequest()))))
+            .andDo(print());
+
+    resultActions
+        .andExpect(status().isCreated())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(jsonPath(JSON_$, hasSize(1)))
+        .andExpect(jsonPath(JSON_$_0_ID, is(user.getId().intValue())))
+        .andExpect(jsonPath(JSON_$_0_EMAIL, is(user.getEmail())));
+    then(userService).should().validateUsersDoNotExistByEmail(List.of(user.getEmail()));
+  }
+
+  @Test
+  void testCreateUsersInformingInvalidInput() throws Exception {
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                post(API_USERS_BULK_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        objectMapper.writeValueAsString(
+                            List.of(
+                                getDefaultCreateUserRequest(),
+                                new CreateUserRequest(null, null, null)))))
+            .andDo(print());
+
+    resultActions.andExpect(status().isBadRequest());
+    then(userService).should(never()).createUsers(anyList());
+  }
+
+  @Test
+  void testCreateUsersInformingEmptyInput() throws Exception {
+    ResultActions resultActions =
+        mockMvc
+            .perform(post(API_USERS_BULK_URL).contentType(MediaType.APPLICATION_JSON).content("[]"))
+            .andDo(print());
+
+    resultActions.andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testCreateUsersWhenThereIsDuplicatedEmail() throws Exception {
+    willThrow(UserEmailDuplicatedException.class)
+        .given(userService)
+        .validateUsersDoNotExistByEmail(anyList());
+
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                post(API_USERS_BULK_URL)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        objectMapper.writeValueAsString(List.of(getDefaultCreateUserRequest()))))
+            .andDo(print());
+
+    resultActions.andExpect(status().isConflict());
+    then(userService).should(never()).createUsers(anyList());
+  }
+
   @Test
   void testUpdateUserWhenExistent() throws Exception {
     User user = getDefaultUser();
     given(userService.validateAndGetUserById(anyLong())).willReturn(user);
-    given(userService.saveUser(any(User.class))).willReturn(user);
 
     UpdateUserRequest updateUserRequest = new UpdateUserRequest("email2@test", "fullName2", false);
+    User updatedUser = getDefaultUser();
+    updateUserRequest.applyTo(updatedUser);
+    given(userService.updateUser(any(User.class), any(UpdateUserRequest.class)))
+        .willReturn(updatedUser);
 
     ResultActions resultActions =
         mockMvc
@@ -175,6 +360,24 @@ class UserControllerTest {
         .andExpect(jsonPath(JSON_$_ACTIVE, is(updateUserRequest.active())));
   }
 
+  @Test
+  void testUpdateUserWhenChangedConcurrently() throws Exception {
+    given(userService.validateAndGetUserById(anyLong())).willReturn(getDefaultUser());
+    given(userService.updateUser(any(User.class), any(UpdateUserRequest.class)))
+        .willThrow(UserVersionConflictException.class);
+
+    UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, "fullName2", false);
+    ResultActions resultActions =
+        mockMvc
+            .perform(
+                put(API_USERS_ID_URL, 1)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(updateUserRequest)))
+            .andDo(print());
+
+    resultActions.andExpect(status().isConflict());
+  }
+
   @Test
   void testUpdateUserWhenNonExistent() throws Exception {
     given(userService.validateAndGetUserById(anyLong())).willThrow(UserNotFoundException.class);
@@ -216,6 +419,7 @@ class UserControllerTest {
   private User getDefaultUser() {
     User user = new User("email@test", "fullName", true);
     user.setId(1L);
+    user.setVersion(0L);
     return user;
   }
 
@@ -224,6 +428,7 @@ class UserControllerTest {
   }
 
   private static final String API_USERS_URL = "/api/users";
+  private static final String API_USERS_BULK_URL = "/api/users/bulk";
   private static final String API_USERS_ID_URL = "/api/users/{id}";
 
   private static final String JSON_$ = "$";
@@ -232,6 +437,7 @@ class UserControllerTest {
   private static final String JSON_$_EMAIL = "$.email";
   private static final String JSON_$_FULL_NAME = "$.fullName";
   private static final String JSON_$_ACTIVE = "$.active";
+  private static final String JSON_$_VERSION = "$.version";
 
   private static final String JSON_$_0_ID = "$[0].id";
   private static final String JSON_$_0_EMAIL = "$[0].email";
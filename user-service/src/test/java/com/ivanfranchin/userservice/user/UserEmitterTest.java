@@ -3,6 +3,7 @@ package com.ivanfranchin.userservice.user;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.ivanfranchin.userservice.MySQLTestcontainers;
+import com.ivanfranchin.userservice.outbox.OutboxRelay;
 import com.ivanfranchin.userservice.user.dto.CreateUserRequest;
 import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
 import com.ivanfranchin.userservice.user.event.UserEventMessage;
@@ -30,51 +31,59 @@ class UserEmitterTest {
 
   @Autowired private UserEmitter userEmitter;
 
+  @Autowired private OutboxRelay outboxRelay;
+
   @Autowired private ObjectMapper objectMapper;
 
   @Test
   void testUserCreated() throws IOException {
     CreateUserRequest createUserRequest = new CreateUserRequest("email@test", "fullName", true);
 
-    Message<UserEventMessage> message = userEmitter.userCreated(1L, createUserRequest);
+    UserEventMessage message = userEmitter.userCreated(1L, 0L, createUserRequest);
+    outboxRelay.relay();
 
-    Message<byte[]> outputMessage = outputDestination.receive(0, BINDING_NAME);
+    Message<byte[]> outputMessage = outputDestination.receive(RECEIVE_TIMEOUT, BINDING_NAME);
     assertThat(outputMessage).isNotNull();
     assertThat(outputMessage.getHeaders().get(MessageHeaders.CONTENT_TYPE))
         .isEqualTo(MediaType.APPLICATION_JSON_VALUE);
     UserEventMessage userEventMessage =
         objectMapper.readValue(outputMessage.getPayload(), UserEventMessage.class);
-    assertThat(userEventMessage).isEqualTo(message.getPayload());
+    assertThat(userEventMessage).isEqualTo(message);
   }
 
   @Test
   void testUserUpdated() throws IOException {
     UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, "email@test", false);
 
-    Message<UserEventMessage> message = userEmitter.userUpdated(1L, updateUserRequest);
+    UserEventMessage message = userEmitter.userUpdated(1L, 1L, updateUserRequest);
+    outboxRelay.relay();
 
-    Message<byte[]> outputMessage = outputDestination.receive(0, BINDING_NAME);
+    Message<byte[]> outputMessage = outputDestination.receive(RECEIVE_TIMEOUT, BINDING_NAME);
     assertThat(outputMessage).isNotNull();
     assertThat(outputMessage.getHeaders().get(MessageHeaders.CONTENT_TYPE))
         .isEqualTo(MediaType.APPLICATION_JSON_VALUE);
     UserEventMessage userEventMessage =
         objectMapper.readValue(outputMessage.getPayload(), UserEventMessage.class);
-    assertThat(userEventMessage).isEqualTo(message.getPayload());
+    assertThat(userEventMessage).isEqualTo(message);
   }
 
   @Test
   void testUserDeleted() throws IOException {
-    Message<UserEventMessage> message = userEmitter.userDeleted(1L);
+    UserEventMessage message = userEmitter.userDeleted(1L, 2L);
+    outboxRelay.relay();
 
-    Message<byte[]> outputMessage = outputDestination.receive(0, BINDING_NAME);
+    Message<byte[]> outputMessage = outputDestination.receive(RECEIVE_TIMEOUT, BINDING_NAME);
 
     assertThat(outputMessage).isNotNull();
     assertThat(outputMessage.getHeaders().get(MessageHeaders.CONTENT_TYPE))
         .isEqualTo(MediaType.APPLICATION_JSON_VALUE);
     UserEventMessage userEventMessage =
         objectMapper.readValue(outputMessage.getPayload(), UserEventMessage.class);
-    assertThat(userEventMessage).isEqualTo(message.getPayload());
+    assertThat(userEventMessage).isEqualTo(message);
   }
 
+  // The scheduled relay may send the event before the test calls relay() explicitly
+  private static final long RECEIVE_TIMEOUT = 1000;
+
   private static final String BINDING_NAME = "com.ivanfranchin.userservice.user";
 }
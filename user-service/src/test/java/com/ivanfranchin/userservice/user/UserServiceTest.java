@@ -3,64 +3,149 @@ package com.ivanfranchin.userservice.user;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.Mockito.times;
 
+import com.ivanfranchin.userservice.user.dto.CreateUserRequest;
+import com.ivanfranchin.userservice.user.dto.UpdateUserRequest;
+import com.ivanfranchin.userservice.user.exception.InvalidUserQueryException;
 import com.ivanfranchin.userservice.user.exception.UserEmailDuplicatedException;
 import com.ivanfranchin.userservice.user.exception.UserNotFoundException;
+import com.ivanfranchin.userservice.user.exception.UserVersionConflictException;
 import com.ivanfranchin.userservice.user.model.User;
+import com.ivanfranchin.userservice.user.model.UserFilter;
+import com.ivanfranchin.userservice.user.model.UserPage;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @ExtendWith(SpringExtension.class)
 @Import(UserService.class)
+@TestPropertySource(
+    properties = {
+      "app.users.default-limit=100",
+      "app.users.max-limit=1000",
+      "app.users.stream-fetch-size=2"
+    })
 class UserServiceTest {
 
   @Autowired private UserService userService;
 
   @MockitoBean private UserRepository userRepository;
 
+  @MockitoBean private UserEmitter userEmitter;
+
+  @MockitoBean private UserCache userCache;
+
   @Test
   void testGetUsersWhenThereIsNone() {
-    given(userRepository.findAll()).willReturn(Collections.emptyList());
+    given(userRepository.findBy(anySpecification(), any())).willReturn(Collections.emptyList());
 
-    List<User> users = userService.getUsers();
+    UserPage userPage = userService.getUsers(UserFilter.none(), null, null);
 
-    assertThat(users).isNotNull();
-    assertThat(users).isEmpty();
+    assertThat(userPage.users()).isEmpty();
+    assertThat(userPage.nextPageToken()).isNull();
   }
 
   @Test
-  void testGetUsersWhenThereIsOne() {
-    User user = getDefaultUser();
-    given(userRepository.findAll()).willReturn(Collections.singletonList(user));
+  void testGetUsersWhenThereIsNextPage() {
+    List<User> users = List.of(getUser(1L), getUser(2L), getUser(3L));
+    given(userRepository.findBy(anySpecification(), any())).willReturn(users);
 
-    List<User> users = userService.getUsers();
+    UserPage userPage = userService.getUsers(UserFilter.none(), 2, null);
 
-    assertThat(users).isNotNull();
-    assertThat(users.size()).isEqualTo(1);
-    assertThat(users.getFirst()).isEqualTo(user);
+    assertThat(userPage.users()).extracting(User::getId).containsExactly(1L, 2L);
+    assertThat(userPage.nextPageToken()).isNotNull();
   }
 
   @Test
-  void testSaveUser() {
+  void testGetUsersWhenLimitIsAboveMax() {
+    given(userRepository.findBy(anySpecification(), any())).willReturn(Collections.emptyList());
+
+    userService.getUsers(UserFilter.none(), 1_000_000, null);
+
+    then(userRepository).should().findBy(anySpecification(), any());
+  }
+
+  @Test
+  void testGetUsersWhenPageTokenIsMalformed() {
+    assertThatExceptionOfType(InvalidUserQueryException.class)
+        .isThrownBy(() -> userService.getUsers(UserFilter.none(), null, "AAAA"))
+        .withMessage("The page token is malformed.");
+    then(userRepository).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testForEachUserPage() {
+    given(userRepository.findBy(anySpecification(), any()))
+        .willReturn(List.of(getUser(1L), getUser(2L)), List.of(getUser(3L)));
+
+    List<List<User>> pages = new ArrayList<>();
+    userService.forEachUserPage(UserFilter.none(), pages::add);
+
+    assertThat(pages).hasSize(2);
+    assertThat(pages.get(1)).extracting(User::getId).containsExactly(3L);
+    then(userRepository).should(times(2)).findBy(anySpecification(), any());
+  }
+
+  @Test
+  void testCreateUser() {
     User user = getDefaultUser();
     given(userRepository.save(any(User.class))).willReturn(user);
 
-    User userSaved = userService.saveUser(user);
+    CreateUserRequest createUserRequest = new CreateUserRequest("email@test", "fullName", true);
+    User userSaved = userService.createUser(createUserRequest);
 
     assertThat(userSaved).isNotNull();
     assertThat(userSaved).isEqualTo(user);
+    then(userEmitter).should().userCreated(user.getId(), user.getVersion(), createUserRequest);
+  }
+
+  @Test
+  void testCreateUsers() {
+    List<User> users = List.of(getDefaultUser(), new User("email2@test", "fullName2", false));
+    given(userRepository.saveAll(anyList())).willReturn(users);
+
+    List<CreateUserRequest> createUserRequests =
+        List.of(
+            new CreateUserRequest("email@test", "fullName", true),
+            new CreateUserRequest("email2@test", "fullName2", false));
+    List<User> usersSaved = userService.createUsers(createUserRequests);
+
+    assertThat(usersSaved).isEqualTo(users);
+    then(userEmitter).should().usersCreated(users, createUserRequests);
+  }
+
+  @Test
+  void testUpdateUser() {
+    User user = getDefaultUser();
+    given(userRepository.saveAndFlush(any(User.class))).willReturn(user);
+
+    UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, "fullName2", false);
+    User userSaved = userService.updateUser(user, updateUserRequest);
+
+    assertThat(userSaved).isNotNull();
+    assertThat(userSaved.getFullName()).isEqualTo("fullName2");
+    assertThat(userSaved.getActive()).isFalse();
+    then(userEmitter).should().userUpdated(user.getId(), user.getVersion(), updateUserRequest);
+    then(userCache).should().evictAfterTransaction(user.getId());
   }
 
   @Test
@@ -71,6 +156,24 @@ class UserServiceTest {
     userService.deleteUser(user);
 
     then(userRepository).should().delete(any(User.class));
+    then(userEmitter).should().userDeleted(user.getId(), 1L);
+    then(userCache).should().evictAfterTransaction(user.getId());
+  }
+
+  @Test
+  void testUpdateUserWhenVersionIsStale() {
+    User user = getDefaultUser();
+    user.setId(1L);
+    given(userRepository.saveAndFlush(any(User.class)))
+        .willThrow(new ObjectOptimisticLockingFailureException(User.class, 1L));
+
+    UpdateUserRequest updateUserRequest = new UpdateUserRequest(null, "fullName2", false);
+
+    assertThatExceptionOfType(UserVersionConflictException.class)
+        .isThrownBy(() -> userService.updateUser(user, updateUserRequest))
+        .withMessage("User with id '1' was changed concurrently. Please, try again.");
+    then(userCache).should().evictAfterTransaction(1L);
+    then(userEmitter).shouldHaveNoInteractions();
   }
 
   @Test
@@ -82,6 +185,18 @@ class UserServiceTest {
 
     assertThat(userFound).isNotNull();
     assertThat(userFound).isEqualTo(user);
+    then(userCache).should().put(user);
+  }
+
+  @Test
+  void testValidateAndGetUserByIdWhenCached() {
+    User user = getDefaultUser();
+    given(userCache.getById(1L)).willReturn(Optional.of(user));
+
+    User userFound = userService.validateAndGetUserById(1L);
+
+    assertThat(userFound).isEqualTo(user);
+    then(userRepository).shouldHaveNoInteractions();
   }
 
   @Test
@@ -101,6 +216,16 @@ class UserServiceTest {
     assertThatExceptionOfType(UserEmailDuplicatedException.class)
         .isThrownBy(() -> userService.validateUserExistsByEmail("email@test"))
         .withMessage("User with email 'email@test' already exist.");
+    then(userCache).should().put(user);
+  }
+
+  @Test
+  void testValidateUserExistsByEmailWhenCached() {
+    given(userCache.getByEmail("email@test")).willReturn(Optional.of(getDefaultUser()));
+
+    assertThatExceptionOfType(UserEmailDuplicatedException.class)
+        .isThrownBy(() -> userService.validateUserExistsByEmail("email@test"));
+    then(userRepository).shouldHaveNoInteractions();
   }
 
   @Test
@@ -112,7 +237,48 @@ class UserServiceTest {
     then(userRepository).should().findUserByEmail(anyString());
   }
 
+  @Test
+  void testValidateUsersDoNotExistByEmailWhenExistent() {
+    given(userRepository.findEmailsByEmailIn(anyCollection())).willReturn(List.of("email2@test"));
+
+    assertThatExceptionOfType(UserEmailDuplicatedException.class)
+        .isThrownBy(
+            () -> userService.validateUsersDoNotExistByEmail(List.of("email@test", "email2@test")))
+        .withMessage("Users with emails [email2@test] already exist.");
+  }
+
+  @Test
+  void testValidateUsersDoNotExistByEmailWhenRepeated() {
+    assertThatExceptionOfType(UserEmailDuplicatedException.class)
+        .isThrownBy(
+            () -> userService.validateUsersDoNotExistByEmail(List.of("email@test", "email@test")))
+        .withMessage("Email 'email@test' is repeated in the request.");
+    then(userRepository).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testValidateUsersDoNotExistByEmailWhenNonExistent() {
+    given(userRepository.findEmailsByEmailIn(anyCollection())).willReturn(List.of());
+
+    userService.validateUsersDoNotExistByEmail(List.of("email@test", "email2@test"));
+
+    then(userRepository).should().findEmailsByEmailIn(Set.of("email@test", "email2@test"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Specification<User> anySpecification() {
+    return any(Specification.class);
+  }
+
+  private User getUser(Long id) {
+    User user = new User("email" + id + "@test", "fullName" + id, true);
+    user.setId(id);
+    return user;
+  }
+
   private User getDefaultUser() {
-    return new User("email@test", "fullName", true);
+    User user = new User("email@test", "fullName", true);
+    user.setVersion(0L);
+    return user;
   }
 }